@@ -3,6 +3,7 @@ package net.pl3x.map.addon.flowermap.renderer;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import net.minecraft.core.BlockPos;
 import net.minecraft.util.RandomSource;
 import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.state.BlockState;
@@ -39,38 +40,44 @@ public class FlowerMapRenderer extends Renderer {
     }
 
     @Override
-    public void scanData(RegionCoordinate region, ScanData.Data scanData) {
+    public void scanData(RegionCoordinate region, ScanData scanData) {
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+
         // scan each block's data
-        for (ScanData data : scanData.values()) {
-            // get the current tile coordinates
-            int pixelX = data.getCoordinate().getBlockX() & Image.SIZE - 1;
-            int pixelZ = data.getCoordinate().getBlockZ() & Image.SIZE - 1;
+        for (int pixelZ = 0; pixelZ < Image.SIZE; pixelZ++) {
+            for (int pixelX = 0; pixelX < Image.SIZE; pixelX++) {
+                int index = ScanData.pixelToIndex(pixelX, pixelZ);
+                if (!scanData.shouldRender(index)) {
+                    continue;
+                }
 
-            int pixelColor = 0xFF7F7F7F;
+                int pixelColor = 0xFF7F7F7F;
 
-            // https://github.com/Draradech/FlowerMap (CC0-1.0 license)
-            List<ConfiguredFeature<?, ?>> flowers = data.getBlockBiome().getGenerationSettings().getFlowerFeatures();
-            if (!flowers.isEmpty()) {
-                RandomPatchConfiguration config = (RandomPatchConfiguration) flowers.get(0).config();
-                SimpleBlockConfiguration flower = (SimpleBlockConfiguration) config.feature().value().feature().value().config();
-                BlockState state = flower.toPlace().getState(this.random, data.getBlockPos());
-                pixelColor = this.colorMap.getOrDefault(state, 0xFF7F7F7F);
-            }
+                // https://github.com/Draradech/FlowerMap (CC0-1.0 license)
+                List<ConfiguredFeature<?, ?>> flowers = scanData.getBlockBiome(index).getGenerationSettings().getFlowerFeatures();
+                if (!flowers.isEmpty()) {
+                    RandomPatchConfiguration config = (RandomPatchConfiguration) flowers.get(0).config();
+                    SimpleBlockConfiguration flower = (SimpleBlockConfiguration) config.feature().value().feature().value().config();
+                    pos.set(scanData.getBlockX(index), scanData.getBlockY(index), scanData.getBlockZ(index));
+                    BlockState state = flower.toPlace().getState(this.random, pos);
+                    pixelColor = this.colorMap.getOrDefault(state, 0xFF7F7F7F);
+                }
 
-            // work out the heightmap
-            pixelColor = Colors.blend(getHeightmap().getColor(data.getCoordinate(), data, scanData), pixelColor);
+                // work out the heightmap
+                pixelColor = Colors.blend(getHeightmap().getColor(scanData, index), pixelColor);
 
-            // fluid stuff
-            if (data.getFluidPos() != null) {
-                if (getWorld().getConfig().RENDER_TRANSLUCENT_FLUIDS) {
-                    pixelColor = Colors.blend(fancyFluids(data, scanData, data.getFluidState(), (data.getFluidPos().getY() - data.getBlockPos().getY()) * 0.025F), pixelColor);
-                } else {
-                    pixelColor = getRender().getBiomeColors().getWaterColor(data, scanData);
+                // fluid stuff
+                if (scanData.hasFluid(index)) {
+                    if (getWorld().getConfig().RENDER_TRANSLUCENT_FLUIDS) {
+                        pixelColor = Colors.blend(fancyFluids(scanData, index, scanData.getFluidState(index), (scanData.getFluidY(index) - scanData.getBlockY(index)) * 0.025F), pixelColor);
+                    } else {
+                        pixelColor = getRender().getBiomeColors().getWaterColor(scanData, index);
+                    }
                 }
-            }
 
-            // draw color data to image
-            getImageHolder().getImage().setPixel(pixelX, pixelZ, pixelColor);
+                // draw color data to image
+                getImageHolder().getImage().setPixel(pixelX, pixelZ, pixelColor);
+            }
         }
     }
 }
@@ -1,6 +1,5 @@
 package net.pl3x.map.addon.heightmaps.heightmap;
 
-import net.pl3x.map.coordinate.BlockCoordinate;
 import net.pl3x.map.heightmap.Heightmap;
 import net.pl3x.map.render.ScanData;
 import net.pl3x.map.util.Colors;
@@ -11,11 +10,11 @@ public class EvenOddLowContrastHeightmap extends Heightmap {
     }
 
     @Override
-    public int getColor(BlockCoordinate coordinate, ScanData data, ScanData.Data scanData) {
+    public int getColor(ScanData scanData, int index) {
         int heightColor = 0x22;
-        heightColor = getColor(data, scanData.get(coordinate.west()), heightColor, 0x11);
-        heightColor = getColor(data, scanData.get(coordinate.north()), heightColor, 0x11);
-        if (data.getBlockPos().getY() % 2 == 1) {
+        heightColor = getColor(scanData, index, scanData.west(index), heightColor, 0x11);
+        heightColor = getColor(scanData, index, scanData.north(index), heightColor, 0x11);
+        if (scanData.getBlockY(index) % 2 == 1) {
             heightColor += 0x06;
         }
         return Colors.setAlpha(heightColor, 0x000000);
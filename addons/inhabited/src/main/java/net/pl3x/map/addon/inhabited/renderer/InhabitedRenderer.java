@@ -16,37 +16,40 @@ public class InhabitedRenderer extends Renderer {
     }
 
     @Override
-    public void scanData(RegionCoordinate region, ScanData.Data scanData) {
+    public void scanData(RegionCoordinate region, ScanData scanData) {
         // get the basic renderer so we can copy its tiles
         Renderer basic = getScanTask().getRenderer(RendererRegistry.BASIC);
 
         // scan each block's data
-        for (ScanData data : scanData.values()) {
-            // get the current tile coordinates
-            int pixelX = data.getCoordinate().getBlockX() & Image.SIZE - 1;
-            int pixelZ = data.getCoordinate().getBlockZ() & Image.SIZE - 1;
-
-            // get basic pixel color
-            int pixelColor;
-            if (basic != null) {
-                // get current color from basic renderer
-                pixelColor = basic.getImageHolder().getImage().getPixel(pixelX, pixelZ);
-            } else {
-                // could not find basic renderer (disabled?), we have to draw it ourselves
-                pixelColor = basicPixelColor(data, scanData);
+        for (int pixelZ = 0; pixelZ < Image.SIZE; pixelZ++) {
+            for (int pixelX = 0; pixelX < Image.SIZE; pixelX++) {
+                int index = ScanData.pixelToIndex(pixelX, pixelZ);
+                if (!scanData.shouldRender(index)) {
+                    continue;
+                }
+
+                // get basic pixel color
+                int pixelColor;
+                if (basic != null) {
+                    // get current color from basic renderer
+                    pixelColor = basic.getImageHolder().getImage().getPixel(pixelX, pixelZ);
+                } else {
+                    // could not find basic renderer (disabled?), we have to draw it ourselves
+                    pixelColor = basicPixelColor(scanData, index);
+                }
+
+                // we hsb lerp between blue and red with ratio being the
+                // percent inhabited time is of the maxed out inhabited time
+                float ratio = Mathf.clamp(0F, 1F, scanData.getChunk(index).getInhabitedTime() / 3600000F);
+                int inhabitedRGB = Colors.lerpHSB(0x880000FF, 0x88FF0000, ratio, false);
+
+                // set the color, mixing our heatmap on top
+                // set a low enough alpha, so we can see the basic map underneath
+                pixelColor = Colors.blend(inhabitedRGB, pixelColor);
+
+                // draw color data to image
+                getImageHolder().getImage().setPixel(pixelX, pixelZ, pixelColor);
             }
-
-            // we hsb lerp between blue and red with ratio being the
-            // percent inhabited time is of the maxed out inhabited time
-            float ratio = Mathf.clamp(0F, 1F, data.getChunk().getInhabitedTime() / 3600000F);
-            int inhabitedRGB = Colors.lerpHSB(0x880000FF, 0x88FF0000, ratio, false);
-
-            // set the color, mixing our heatmap on top
-            // set a low enough alpha, so we can see the basic map underneath
-            pixelColor = Colors.blend(inhabitedRGB, pixelColor);
-
-            // draw color data to image
-            getImageHolder().getImage().setPixel(pixelX, pixelZ, pixelColor);
         }
     }
 }
@@ -7,6 +7,7 @@ import com.sksamuel.scrimage.webp.WebpImageReader;
 import com.sksamuel.scrimage.webp.WebpWriter;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
@@ -71,4 +72,16 @@ public class Webp extends IO.Type {
             }
         }
     }
+
+    @Override
+    public BufferedImage decode(byte[] bytes) throws IOException {
+        return this.reader.fromBytes(bytes).awt();
+    }
+
+    @Override
+    public byte[] encode(BufferedImage buffer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        this.writer.write(ImmutableImage.wrapAwt(buffer), ImageMetadata.empty, out);
+        return out.toByteArray();
+    }
 }
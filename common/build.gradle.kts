@@ -1,3 +1,7 @@
+plugins {
+    id("me.champeau.jmh") version "0.6.8"
+}
+
 group = "net.pl3x.map.api"
 version = rootProject.version
 description = "Pl3xMap API"
@@ -5,6 +9,12 @@ description = "Pl3xMap API"
 val cloudVersion: String by rootProject
 val undertowVersion: String by rootProject
 
+// tile pixel loops use the vector api when the server has it. only these classes are
+// built against the incubating module, the plugin loads them by name when it is there
+val vector: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+}
+
 dependencies {
     implementation("cloud.commandframework", "cloud-core", cloudVersion)
     implementation("cloud.commandframework", "cloud-brigadier", cloudVersion)
@@ -15,6 +25,17 @@ dependencies {
     implementation("net.kyori", "adventure-text-minimessage", "4.11.0")
     implementation("com.github.Carleslc.Simple-YAML", "Simple-Yaml", "1.8.2")
     implementation("io.undertow", "undertow-core", undertowVersion)
+
+    testImplementation("org.junit.jupiter", "junit-jupiter", "5.9.1")
+    testRuntimeOnly(files(vector.output))
+    "jmhRuntimeOnly"(files(vector.output))
+}
+
+jmh {
+    jmhVersion.set("1.36")
+    // benchmarks share fixtures such as MemoryStore with the tests
+    includeTests.set(true)
+    jvmArgsAppend.add("--add-modules=jdk.incubator.vector")
 }
 
 tasks.register<Delete>("cleanWeb") {
@@ -22,6 +43,16 @@ tasks.register<Delete>("cleanWeb") {
 }
 
 tasks {
+    named<JavaCompile>(vector.compileJavaTaskName) {
+        options.compilerArgs.add("--add-modules=jdk.incubator.vector")
+    }
+    jar {
+        from(vector.output)
+    }
+    test {
+        useJUnitPlatform()
+        jvmArgs("--add-modules=jdk.incubator.vector")
+    }
     reobfJar {
         // do not output this to the root build dir
         outputJar.set(layout.buildDirectory.file("libs/${project.name}-${project.version}.jar"))
@@ -0,0 +1,61 @@
+package net.pl3x.map.image;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Plain loops against the Vector API for the tile pixel loops.
+ * <p>
+ * {@code opaque} tiles have every pixel set, {@code mixed} tiles leave a
+ * random quarter of them transparent.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PixelsBenchmark {
+    @Param({"scalar", "vector"})
+    public String pixels;
+
+    @Param({"opaque", "mixed"})
+    public String tile;
+
+    private Pixels impl;
+    private final int[] src = new int[Image.SIZE * Image.SIZE];
+    private final int[] dst = new int[Image.SIZE * Image.SIZE];
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        this.impl = this.pixels.equals("vector") ? Pixels.vector() : new Pixels();
+        Random random = new Random(1L);
+        for (int i = 0; i < this.src.length; i++) {
+            boolean visible = this.tile.equals("opaque") || random.nextInt(4) != 0;
+            this.src[i] = visible ? random.nextInt() | 0xFF000000 : 0;
+        }
+    }
+
+    @Benchmark
+    public int[] copyVisible() {
+        this.impl.copyVisible(this.src, this.dst);
+        return this.dst;
+    }
+
+    @Benchmark
+    public int[] downSample() {
+        this.impl.downSample(this.src, this.dst, 0);
+        return this.dst;
+    }
+}
@@ -0,0 +1,93 @@
+package net.pl3x.map.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import net.pl3x.map.Key;
+import net.pl3x.map.configuration.Config;
+import net.pl3x.map.image.io.IO;
+import net.pl3x.map.image.io.Png;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A parent tile patched once for each of its child tiles, decoding and
+ * saving it every time, against patching it in the {@link TileCache} and
+ * saving it once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileCacheBenchmark {
+    private static final TileKey KEY = new TileKey(Key.of("benchmark"), 1, 0, 0);
+
+    @Param({"4"})
+    public int patches;
+
+    private IO.Type io;
+    private MemoryStore store;
+    private TileCache cache;
+
+    @Setup
+    public void setup() throws IOException {
+        IO.unregister(Config.WEB_TILE_FORMAT);
+        IO.register(Config.WEB_TILE_FORMAT, new Png());
+        this.io = IO.get(Config.WEB_TILE_FORMAT);
+        this.store = new MemoryStore();
+        BufferedImage image = new BufferedImage(Image.SIZE, Image.SIZE, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = Image.getData(image);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | (int) (i * 2654435761L >>> 40) & 0x0F0F0F;
+        }
+        this.store.write(KEY, this.io.extension(), this.io.encode(image));
+        this.cache = new TileCache(this.store, 64L * 1024 * 1024, (key, version) -> {
+        }, Runnable::run);
+    }
+
+    @TearDown
+    public void cleanup() {
+        this.cache.shutdown();
+    }
+
+    @Benchmark
+    public void direct() throws IOException {
+        for (int i = 0; i < this.patches; i++) {
+            BufferedImage image = Image.toArgb(this.io.decode(this.store.read(KEY, this.io.extension())));
+            patch(image, i);
+            this.store.write(KEY, this.io.extension(), this.io.encode(image));
+        }
+    }
+
+    @Benchmark
+    public void cached() {
+        for (int i = 0; i < this.patches; i++) {
+            BufferedImage image = this.cache.get(KEY);
+            patch(image, i);
+            this.cache.put(KEY, image);
+        }
+        this.cache.flush();
+    }
+
+    private static void patch(BufferedImage image, int quarter) {
+        int half = Image.SIZE / 2;
+        int[] pixels = Image.getData(image);
+        int offset = (quarter >> 1) * half * Image.SIZE + (quarter & 1) * half;
+        for (int z = 0; z < half; z++) {
+            Arrays.fill(pixels, offset + z * Image.SIZE, offset + z * Image.SIZE + half, 0xFF000000 | quarter * 0x203040);
+        }
+    }
+}
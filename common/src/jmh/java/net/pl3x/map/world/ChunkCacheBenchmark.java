@@ -0,0 +1,158 @@
+package net.pl3x.map.world;
+
+import java.util.concurrent.TimeUnit;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.Holder;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.data.registries.VanillaRegistries;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.util.CrudeIncrementalIntIdentityHashBiMap;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.LevelHeightAccessor;
+import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.biome.Biomes;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import net.minecraft.world.level.chunk.ProtoChunk;
+import net.minecraft.world.level.chunk.UpgradeData;
+import net.minecraft.world.ticks.ProtoChunkTicks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Two neighboring regions scanned with their border chunks, once decoding
+ * every chunk each time and once through a shared {@link ChunkCache}.
+ * <p>
+ * Decoding builds a real chunk with a filled block palette below sea level
+ * and air above, plus {@code decode} tokens of busy work for the nbt. The
+ * two regions don't fit in the smaller {@code budget}, so that run keeps
+ * evicting, and the {@code hit} benchmark measures a lookup that is already
+ * cached, from several threads at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkCacheBenchmark {
+    private static final LevelHeightAccessor HEIGHT = LevelHeightAccessor.create(-64, 384);
+    private static final BlockState[] STATES = new BlockState[4];
+    private static PalettedContainer<Holder<Biome>> biomes;
+
+    @Param({"1000", "100000"})
+    public long decode;
+
+    // in megabytes
+    @Param({"32", "256"})
+    public long budget;
+
+    @Setup(Level.Trial)
+    public void bootstrap() {
+        if (biomes != null) {
+            return;
+        }
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+        STATES[0] = Blocks.STONE.defaultBlockState();
+        STATES[1] = Blocks.DEEPSLATE.defaultBlockState();
+        STATES[2] = Blocks.DIRT.defaultBlockState();
+        STATES[3] = Blocks.WATER.defaultBlockState();
+        Holder<Biome> plains = VanillaRegistries.createLookup().lookupOrThrow(Registries.BIOME).getOrThrow(Biomes.PLAINS);
+        CrudeIncrementalIntIdentityHashBiMap<Holder<Biome>> ids = CrudeIncrementalIntIdentityHashBiMap.create(1);
+        ids.add(plains);
+        biomes = new PalettedContainer<>(ids, plains, PalettedContainer.Strategy.SECTION_BIOMES);
+    }
+
+    private ChunkAccess load(long key) {
+        Blackhole.consumeCPU(this.decode);
+        LevelChunkSection[] sections = new LevelChunkSection[HEIGHT.getSectionsCount()];
+        for (int i = 0; i < sections.length; i++) {
+            int sectionY = HEIGHT.getSectionYFromSectionIndex(i);
+            PalettedContainer<BlockState> states = new PalettedContainer<>(Block.BLOCK_STATE_REGISTRY,
+                    Blocks.AIR.defaultBlockState(), PalettedContainer.Strategy.SECTION_STATES);
+            if (sectionY < 4) {
+                for (int y = 0; y < 16; y++) {
+                    for (int z = 0; z < 16; z++) {
+                        for (int x = 0; x < 16; x++) {
+                            states.getAndSetUnchecked(x, y, z, STATES[(x * 7 + y * 3 + z * 5 + (int) key) & 3]);
+                        }
+                    }
+                }
+            }
+            sections[i] = new LevelChunkSection(sectionY, states, biomes.copy());
+            sections[i].recalcBlockCounts();
+        }
+        return new ProtoChunk(new ChunkPos(key), UpgradeData.EMPTY, sections,
+                new ProtoChunkTicks<>(), new ProtoChunkTicks<>(), HEIGHT, null, null);
+    }
+
+    @Benchmark
+    public void uncached(Blackhole blackhole) {
+        for (int region = 0; region < 2; region++) {
+            for (int z = -1; z <= 32; z++) {
+                for (int x = region * 32 - 1; x <= region * 32 + 32; x++) {
+                    blackhole.consume(load(ChunkPos.asLong(x, z)));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void cached(Cold cold, Blackhole blackhole) {
+        for (int region = 0; region < 2; region++) {
+            for (int z = -1; z <= 32; z++) {
+                for (int x = region * 32 - 1; x <= region * 32 + 32; x++) {
+                    blackhole.consume(cold.cache.get(ChunkPos.asLong(x, z), this::load));
+                }
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Cold {
+        private ChunkCache cache;
+
+        @Setup(Level.Invocation)
+        public void setup(ChunkCacheBenchmark benchmark) {
+            this.cache = new ChunkCache(benchmark.budget * 1024L * 1024L, Runnable::run);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Warm {
+        private ChunkCache cache;
+
+        @Setup
+        public void setup(ChunkCacheBenchmark benchmark) {
+            this.cache = new ChunkCache(benchmark.budget * 1024L * 1024L, Runnable::run);
+            // the row the hit benchmark reads, small enough for either budget
+            for (int x = 0; x < 32; x++) {
+                this.cache.get(ChunkPos.asLong(x, 7), benchmark::load);
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ChunkAccess hit(Warm warm) {
+        long key = ChunkPos.asLong((int) (Thread.currentThread().getId() & 31), 7);
+        return warm.cache.get(key, k -> null);
+    }
+}
@@ -0,0 +1,132 @@
+package net.pl3x.map.world;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading every chunk of a full region file through {@link RegionReader},
+ * against reading each chunk into a fresh buffer and inflating it with a
+ * new inflater like the server's region files do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegionReaderBenchmark {
+    private final byte[] scratch = new byte[8192];
+
+    private Path file;
+    private FileChannel channel;
+    private RegionReader reader;
+
+    @Setup
+    public void setup() throws IOException {
+        this.file = Files.createTempFile("r.0.0", ".mca");
+        Random random = new Random(1L);
+        ByteBuffer header = ByteBuffer.allocate(8192);
+        ByteArrayOutputStream sectors = new ByteArrayOutputStream();
+        int sector = 2;
+        for (int i = 0; i < 1024; i++) {
+            // compresses about as well as chunk nbt does
+            byte[] raw = new byte[64 * 1024];
+            for (int j = 0; j < raw.length; j++) {
+                raw[j] = (byte) random.nextInt(16);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (DeflaterOutputStream deflate = new DeflaterOutputStream(out)) {
+                deflate.write(raw);
+            }
+            byte[] data = out.toByteArray();
+            int count = (data.length + 5 + 4095) / 4096;
+            header.putInt(i * 4, sector << 8 | count);
+            header.putInt(4096 + i * 4, 1);
+            ByteBuffer chunk = ByteBuffer.allocate(count * 4096);
+            chunk.putInt(data.length + 1).put((byte) 2).put(data);
+            sectors.writeBytes(chunk.array());
+            sector += count;
+        }
+        ByteArrayOutputStream region = new ByteArrayOutputStream();
+        region.writeBytes(header.array());
+        region.writeBytes(sectors.toByteArray());
+        Files.write(this.file, region.toByteArray());
+
+        this.channel = FileChannel.open(this.file, StandardOpenOption.READ);
+        this.reader = RegionReader.open(this.file);
+    }
+
+    @TearDown
+    public void cleanup() throws IOException {
+        this.channel.close();
+        Files.deleteIfExists(this.file);
+    }
+
+    @Benchmark
+    public long reader() throws IOException {
+        long total = 0;
+        for (int z = 0; z < 32; z++) {
+            for (int x = 0; x < 32; x++) {
+                try (DataInputStream in = this.reader.getChunkDataInputStream(x, z)) {
+                    total += drain(in);
+                }
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long heap() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4096);
+        this.channel.read(header, 0);
+        long total = 0;
+        for (int i = 0; i < 1024; i++) {
+            int offset = header.getInt(i * 4);
+            ByteBuffer sectors = ByteBuffer.allocate((offset & 0xFF) * 4096);
+            this.channel.read(sectors, (long) (offset >>> 8) * 4096);
+            int length = sectors.getInt(0) - 1;
+            InputStream in = new InflaterInputStream(new ByteArrayInputStream(sectors.array(), 5, length));
+            try (DataInputStream data = new DataInputStream(in)) {
+                total += drain(data);
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int[] timestamps() throws IOException {
+        return RegionReader.readTimestamps(this.file);
+    }
+
+    private long drain(InputStream in) throws IOException {
+        long total = 0;
+        int read;
+        while ((read = in.read(this.scratch)) != -1) {
+            total += read;
+        }
+        return total;
+    }
+}
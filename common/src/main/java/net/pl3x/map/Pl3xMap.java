@@ -11,6 +11,7 @@ import net.pl3x.map.palette.BlockPaletteRegistry;
 import net.pl3x.map.player.PlayerListener;
 import net.pl3x.map.player.PlayerRegistry;
 import net.pl3x.map.render.RendererRegistry;
+import net.pl3x.map.render.job.RenderScheduler;
 import net.pl3x.map.world.WorldListener;
 import net.pl3x.map.world.WorldRegistry;
 import org.jetbrains.annotations.NotNull;
@@ -42,6 +43,13 @@ public interface Pl3xMap {
 
     int getCurrentTick();
 
+    /**
+     * Get the average time the server took to run a tick recently.
+     *
+     * @return average milliseconds per tick
+     */
+    double getMSPT();
+
     @NotNull
     Path getMainDir();
 
@@ -81,6 +89,9 @@ public interface Pl3xMap {
     @NotNull
     RendererRegistry getRendererRegistry();
 
+    @NotNull
+    RenderScheduler getRenderScheduler();
+
     @NotNull
     WorldRegistry getWorldRegistry();
 
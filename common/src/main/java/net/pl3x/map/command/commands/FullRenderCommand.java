@@ -24,10 +24,16 @@ public class FullRenderCommand extends Pl3xMapCommand {
                 .argument(WorldArgument.optional("world"), description(Lang.COMMAND_ARGUMENT_OPTIONAL_WORLD_DESCRIPTION))
                 .meta(MinecraftExtrasMetaKeys.DESCRIPTION, Lang.parse(Lang.COMMAND_FULLRENDER_DESCRIPTION))
                 .permission("pl3xmap.command.fullrender")
-                .handler(this::execute));
+                .handler(context -> execute(context, false)));
+        getHandler().registerSubcommand(builder -> builder.literal("fullrender")
+                .literal("incremental")
+                .argument(WorldArgument.optional("world"), description(Lang.COMMAND_ARGUMENT_OPTIONAL_WORLD_DESCRIPTION))
+                .meta(MinecraftExtrasMetaKeys.DESCRIPTION, Lang.parse(Lang.COMMAND_FULLRENDER_INCREMENTAL_DESCRIPTION))
+                .permission("pl3xmap.command.fullrender")
+                .handler(context -> execute(context, true)));
     }
 
-    public void execute(CommandContext<Sender> context) {
+    public void execute(CommandContext<Sender> context, boolean incremental) {
         Sender sender = context.getSender();
         World world = WorldArgument.resolve(context, "world");
 
@@ -37,7 +43,7 @@ public class FullRenderCommand extends Pl3xMapCommand {
             return;
         }
 
-        Render render = new FullRender(world, sender);
+        Render render = new FullRender(world, sender, incremental);
 
         if (sender instanceof Player player) {
             render.getProgress().getBossbar().show(player);
@@ -43,10 +43,17 @@ public class ResetMapCommand extends Pl3xMapCommand {
         // pause background render
         world.setPaused(true);
 
+        // forget tiles not saved yet, they'd only bring old tiles back
+        world.getTileCache().clear();
+
         // delete all tiles for world
         Path worldTilesDir = world.getTilesDir();
         try {
+            world.getTileStore().clear();
             FileUtil.deleteSubdirectories(worldTilesDir);
+            world.getTileManifest().clear();
+            world.getBlockInfoCache().clear();
+            world.getTileFeed().clear();
         } catch (IOException e) {
             // resume background render
             world.setPaused(false);
@@ -55,6 +62,9 @@ public class ResetMapCommand extends Pl3xMapCommand {
                     e);
         }
 
+        // forget render times so incremental renders start from scratch
+        world.clearRenderedRegions();
+
         // rebuild biomes registry
         world.rebuildBiomesPaletteRegistry();
 
@@ -9,13 +9,19 @@ import java.util.Locale;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
+import net.pl3x.map.Pl3xMap;
 import net.pl3x.map.command.CommandHandler;
 import net.pl3x.map.command.Pl3xMapCommand;
 import net.pl3x.map.command.Sender;
 import net.pl3x.map.command.argument.WorldArgument;
+import net.pl3x.map.configuration.Config;
 import net.pl3x.map.configuration.Lang;
+import net.pl3x.map.httpd.IntegratedServer;
+import net.pl3x.map.image.TileCache;
 import net.pl3x.map.player.Player;
 import net.pl3x.map.render.job.Render;
+import net.pl3x.map.render.job.RenderGovernor;
+import net.pl3x.map.render.job.RenderScheduler;
 import net.pl3x.map.render.job.progress.Progress;
 import net.pl3x.map.world.World;
 
@@ -88,13 +94,45 @@ public class StatusCommand extends Pl3xMapCommand {
                 Placeholder.parsed("foreground", getStatus(world.hasActiveRender(), world.isPaused()))
         );
 
+        RenderScheduler scheduler = Pl3xMap.api().getRenderScheduler();
+        RenderGovernor governor = scheduler.getGovernor();
+        sender.send(Lang.COMMAND_STATUS_THROTTLE,
+                Placeholder.unparsed("workers", Integer.toString(governor.getWorkers())),
+                Placeholder.unparsed("max_workers", Integer.toString(governor.getMaxWorkers())),
+                Placeholder.unparsed("mspt", String.format("%.2f", governor.getMSPT()))
+        );
+        sender.send(Lang.COMMAND_STATUS_SAVE_QUEUE,
+                Placeholder.unparsed("depth", Integer.toString(scheduler.getSaveQueueDepth())),
+                Placeholder.unparsed("size", Integer.toString(scheduler.getSaveQueueSize())),
+                Placeholder.unparsed("wait", String.format("%.2f", scheduler.getSaveWait()))
+        );
+        TileCache tileCache = world.getTileCache();
+        sender.send(Lang.COMMAND_STATUS_TILE_CACHE,
+                Placeholder.unparsed("hits", Long.toString(tileCache.getHits())),
+                Placeholder.unparsed("misses", Long.toString(tileCache.getMisses())),
+                Placeholder.unparsed("ratio", String.format("%.2f", tileCache.getHitRatio())),
+                Placeholder.unparsed("size", Long.toString(tileCache.getSize() / 1024L / 1024L)),
+                Placeholder.unparsed("budget", Long.toString(tileCache.getBudget() / 1024L / 1024L))
+        );
+        if (Config.HTTPD_ENABLED) {
+            IntegratedServer server = Pl3xMap.api().getIntegratedServer();
+            sender.send(Lang.COMMAND_STATUS_HTTPD,
+                    Placeholder.unparsed("requests", Long.toString(server.getTileRequests())),
+                    Placeholder.unparsed("not_modified", Long.toString(server.getTileNotModified())),
+                    Placeholder.unparsed("served", String.format("%.2f", server.getTileBytesServed() / 1024D / 1024D))
+            );
+        }
+
         if (progress != null && !world.isPaused()) {
             sender.send(Lang.COMMAND_STATUS_RENDER_DETAILS,
                     Placeholder.unparsed("chunks_done", Long.toString(progress.getProcessedChunks().get())),
                     Placeholder.unparsed("chunks_total", Long.toString(progress.getTotalChunks())),
                     Placeholder.unparsed("percent", String.format("%.2f", progress.getPercent())),
                     Placeholder.unparsed("remaining", progress.getETA()),
-                    Placeholder.unparsed("cps", String.format("%.2f", progress.getCPS()))
+                    Placeholder.unparsed("cps", String.format("%.2f", progress.getCPS())),
+                    Placeholder.unparsed("cache_hits", Long.toString(render.getChunkCache().getHits())),
+                    Placeholder.unparsed("cache_misses", Long.toString(render.getChunkCache().getMisses())),
+                    Placeholder.unparsed("cache_ratio", String.format("%.2f", render.getChunkCache().getHitRatio()))
             );
         }
     }
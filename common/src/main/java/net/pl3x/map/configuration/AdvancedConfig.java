@@ -7,6 +7,7 @@ import net.minecraft.world.level.biome.Biome;
 import net.minecraft.world.level.biome.Biomes;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.Blocks;
+import net.pl3x.map.util.BlockStateTable;
 import net.pl3x.map.util.FileUtil;
 import net.pl3x.map.world.World;
 
@@ -1147,5 +1148,7 @@ public final class AdvancedConfig extends AbstractConfig {
         FileUtil.extract("/web/", World.WEB_DIR, !Config.WEB_DIR_READONLY);
 
         CONFIG.reload(FileUtil.MAIN_DIR.resolve("advanced.yml"), AdvancedConfig.class);
+
+        BlockStateTable.reload();
     }
 }
@@ -30,6 +30,54 @@ public final class Config extends AbstractConfig {
             The image format for tile images.
             Built in types: png""")
     public static String WEB_TILE_FORMAT = "png";
+    @Key("settings.web-directory.tile-store")
+    @Comment("""
+            How tiles are stored on disk.
+            directory - one file per tile
+            archive - tiles packed into a few large files per world,
+                      much easier on the filesystem for large worlds.
+                      Only the integrated web server can serve these,
+                      don't use it with an external or static web server
+            Built in types: directory, archive""")
+    public static String WEB_TILE_STORE = "directory";
+
+    @Key("settings.render-threads")
+    @Comment("""
+            The number of threads shared by all worlds for loading and
+            scanning chunks. Each world can be limited further in its
+            own world settings.
+            Value of -1 will use 50% of the available cores. (recommended)""")
+    public static int RENDER_THREADS = -1;
+
+    @Key("settings.render-save-queue")
+    @Comment("""
+            The most finished regions allowed to wait for their images to be
+            saved. When the queue is full, a region that finished scanning
+            waits for room while keeping its render thread, so no new region
+            is started in its place. This keeps memory in check when saving
+            images can't keep up with scanning.
+            Value of -1 will use twice the render threads.""")
+    public static int RENDER_SAVE_QUEUE_SIZE = -1;
+
+    @Key("settings.render-chunk-cache-size")
+    @Comment("""
+            Memory budget (in megabytes) for decoded chunks, shared by the
+            renders of all worlds and split evenly between the ones running.
+            Neighboring regions reuse each other's edge chunks from here
+            instead of decoding them again.""")
+    public static int RENDER_CHUNK_CACHE_SIZE = 128;
+
+    @Key("settings.render-throttle.enabled")
+    @Comment("""
+            Scale rendering up and down with server load. Render threads
+            are taken away while ticks run long and given back when the
+            server has time to spare.""")
+    public static boolean RENDER_THROTTLE_ENABLED = true;
+    @Key("settings.render-throttle.max-mspt")
+    @Comment("""
+            Average milliseconds per tick above which rendering backs off.
+            Rendering is paused entirely while the server is below 20 TPS.""")
+    public static int RENDER_THROTTLE_MAX_MSPT = 40;
 
     @Key("settings.internal-webserver.enabled")
     @Comment("""
@@ -52,6 +52,8 @@ public final class Lang extends AbstractConfig {
 
     @Key("command.fullrender.description")
     public static String COMMAND_FULLRENDER_DESCRIPTION = "Fully render a world";
+    @Key("command.fullrender.incremental-description")
+    public static String COMMAND_FULLRENDER_INCREMENTAL_DESCRIPTION = "Render only the regions of a world that changed since they were last rendered";
     @Key("command.fullrender.already-rendering")
     public static String COMMAND_FULLRENDER_ALREADY_RENDERING = "<grey><world> <red>is already rendering";
     @Key("command.fullrender.starting")
@@ -64,6 +66,8 @@ public final class Lang extends AbstractConfig {
     public static String COMMAND_FULLRENDER_RESUMED_RENDERING = "<yellow>Previously incomplete full render for <grey><world></grey> has resumed where it left off";
     @Key("command.fullrender.obtaining-regions")
     public static String COMMAND_FULLRENDER_OBTAINING_REGIONS = "<yellow>Obtaining regions from files... (this may take a moment)";
+    @Key("command.fullrender.incremental-skipped")
+    public static String COMMAND_FULLRENDER_INCREMENTAL_SKIPPED = "<green>Skipping <grey><skipped></grey> regions unchanged since they were last rendered";
     @Key("command.fullrender.found-total-regions")
     public static String COMMAND_FULLRENDER_FOUND_TOTAL_REGIONS = "<green>Found <grey><total></grey> region files";
     @Key("command.fullrender.resumed-total-regions")
@@ -145,7 +149,16 @@ public final class Lang extends AbstractConfig {
     @Key("command.status.render-details")
     public static String COMMAND_STATUS_RENDER_DETAILS = """
             <grey>    Chunks: <chunks_done>/<chunks_total> (<gold><percent>%</gold>)
-            <grey>    Remaining: <remaining> (<gold><cps> cps</gold>)""";
+            <grey>    Remaining: <remaining> (<gold><cps> cps</gold>)
+            <grey>    Chunk cache: <cache_hits> hits, <cache_misses> misses (<gold><cache_ratio>%</gold>)""";
+    @Key("command.status.throttle")
+    public static String COMMAND_STATUS_THROTTLE = "<grey>    Workers: <workers>/<max_workers> (<gold><mspt> mspt</gold>)";
+    @Key("command.status.save-queue")
+    public static String COMMAND_STATUS_SAVE_QUEUE = "<grey>    Save queue: <depth>/<size> (<gold><wait>ms wait</gold>)";
+    @Key("command.status.tile-cache")
+    public static String COMMAND_STATUS_TILE_CACHE = "<grey>    Tile cache: <hits> hits, <misses> misses (<gold><ratio>%</gold>), <size>/<budget> MB";
+    @Key("command.status.httpd")
+    public static String COMMAND_STATUS_HTTPD = "<grey>    Web tiles: <requests> requests, <not_modified> not modified (<gold><served> MB served</gold>)";
     @Key("command.status.render-running")
     public static String COMMAND_STATUS_RENDER_RUNNING = "<green>Running";
     @Key("command.status.render-not-running")
@@ -22,15 +22,24 @@ public final class WorldConfig extends AbstractConfig {
 
     @Key("render.render-threads")
     @Comment("""
-            The number of threads to use for loading and scanning chunks.
-            Value of -1 will use 50% of the available cores. (recommended)""")
+            The most render threads this world may use at once, out of the
+            threads shared by all worlds (see settings.render-threads).
+            Value of -1 lets this world use all of them. (recommended)""")
     public int RENDER_THREADS = -1;
 
+    @Key("render.tile-cache-size")
+    @Comment("""
+            Memory budget (in megabytes) for decoded map tiles. Tiles written
+            again shortly after are patched here and saved to disk once,
+            instead of being read back and saved every time.""")
+    public int RENDER_TILE_CACHE_SIZE = 64;
+
     @Key("render.biome-blend")
     @Comment("""
             Enables blending of biome grass/foliage/water colors similar to
             the client's biome blending option.
-            Note: This may slow down your renders quite drastically if enabled.
+            Note: Blending costs the same at any radius, but does add a
+            fixed amount of work to each region when enabled.
             Values are in range 0-7""")
     public int RENDER_BIOME_BLEND = 2;
 
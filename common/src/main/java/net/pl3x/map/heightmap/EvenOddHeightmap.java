@@ -1,6 +1,5 @@
 package net.pl3x.map.heightmap;
 
-import net.pl3x.map.coordinate.BlockCoordinate;
 import net.pl3x.map.render.ScanData;
 import net.pl3x.map.util.Colors;
 
@@ -10,9 +9,9 @@ public class EvenOddHeightmap extends Heightmap {
     }
 
     @Override
-    public int getColor(BlockCoordinate coordinate, ScanData data, ScanData.Data scanData) {
+    public int getColor(ScanData scanData, int index) {
         int heightColor = 0x22;
-        if (data.getBlockPos().getY() % 2 == 1) {
+        if (scanData.getBlockY(index) % 2 == 1) {
             heightColor = 0x33;
         }
         return Colors.setAlpha(heightColor, 0x000000);
@@ -4,7 +4,6 @@ import java.util.Arrays;
 import java.util.Objects;
 import net.pl3x.map.Key;
 import net.pl3x.map.Keyed;
-import net.pl3x.map.coordinate.BlockCoordinate;
 import net.pl3x.map.render.ScanData;
 import net.pl3x.map.util.Mathf;
 import org.jetbrains.annotations.Nullable;
@@ -17,13 +16,15 @@ public abstract class Heightmap extends Keyed {
         super(Key.of(name));
     }
 
-    public abstract int getColor(BlockCoordinate coordinate, ScanData data, ScanData.Data scanData);
+    public abstract int getColor(ScanData scanData, int index);
 
-    public int getColor(ScanData data1, ScanData data2, int heightColor, int step) {
-        if (data2 != null) {
-            if (data1.getBlockPos().getY() > data2.getBlockPos().getY()) {
+    public int getColor(ScanData scanData, int index1, int index2, int heightColor, int step) {
+        if (scanData.has(index2)) {
+            int y1 = scanData.getBlockY(index1);
+            int y2 = scanData.getBlockY(index2);
+            if (y1 > y2) {
                 heightColor -= step;
-            } else if (data1.getBlockPos().getY() < data2.getBlockPos().getY()) {
+            } else if (y1 < y2) {
                 heightColor += step;
             }
         }
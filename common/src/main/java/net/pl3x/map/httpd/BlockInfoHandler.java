@@ -0,0 +1,159 @@
+package net.pl3x.map.httpd;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.StatusCodes;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import net.minecraft.world.level.ChunkPos;
+import net.pl3x.map.image.BlockInfoCache;
+import net.pl3x.map.world.World;
+
+/**
+ * Answers what is at one or a few blocks, so the web map doesn't have to
+ * download block info tiles for it.
+ * <p>
+ * {@code /blockinfo?world=<world>&x=<x>&z=<z>}, with {@code x} and
+ * {@code z} repeated for more blocks. Answers
+ * {@code {"minY":<min build height>,"blocks":[<packed>,...]}} in the order
+ * asked, packed the same as in block info tiles. Anything else is passed
+ * on to the next handler.
+ * <p>
+ * A request may only touch a few regions, so it can't push the rest out of
+ * the {@link BlockInfoCache}, and each client address gets a limited rate
+ * of requests.
+ */
+public class BlockInfoHandler implements HttpHandler {
+    private static final int MAX_POINTS = 64;
+    private static final int MAX_REGIONS = 4;
+
+    // per client address, a burst of requests and then a steady rate
+    private static final double REQUESTS_PER_SECOND = 20.0D;
+    private static final double BURST = 40.0D;
+    private static final int MAX_CLIENTS = 1024;
+    private static final long PRUNE_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final HttpHandler next;
+    private final Map<InetAddress, Bucket> clients = new ConcurrentHashMap<>();
+    private final AtomicLong lastPrune = new AtomicLong(System.nanoTime());
+
+    public BlockInfoHandler(HttpHandler next) {
+        this.next = next;
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        if (!exchange.getRelativePath().equals("/blockinfo")) {
+            this.next.handleRequest(exchange);
+            return;
+        }
+
+        Deque<String> worldName = exchange.getQueryParameters().get("world");
+        Deque<String> xs = exchange.getQueryParameters().get("x");
+        Deque<String> zs = exchange.getQueryParameters().get("z");
+        if (worldName == null || xs == null || zs == null || xs.size() != zs.size() || xs.size() > MAX_POINTS) {
+            exchange.setStatusCode(StatusCodes.BAD_REQUEST);
+            return;
+        }
+
+        if (!allow(exchange.getSourceAddress())) {
+            exchange.setStatusCode(StatusCodes.TOO_MANY_REQUESTS);
+            return;
+        }
+
+        World world = TileHandler.getWorld(worldName.getFirst());
+        if (world == null || !world.isEnabled()) {
+            exchange.setStatusCode(StatusCodes.NOT_FOUND);
+            return;
+        }
+
+        int[] points = new int[xs.size() * 2];
+        LongSet regions = new LongOpenHashSet();
+        try {
+            Iterator<String> x = xs.iterator();
+            Iterator<String> z = zs.iterator();
+            for (int i = 0; i < points.length; i += 2) {
+                points[i] = Integer.parseInt(x.next());
+                points[i + 1] = Integer.parseInt(z.next());
+                regions.add(ChunkPos.asLong(points[i] >> 9, points[i + 1] >> 9));
+            }
+        } catch (NumberFormatException e) {
+            exchange.setStatusCode(StatusCodes.BAD_REQUEST);
+            return;
+        }
+        if (regions.size() > MAX_REGIONS) {
+            exchange.setStatusCode(StatusCodes.BAD_REQUEST);
+            return;
+        }
+
+        if (exchange.isInIoThread()) {
+            // regions not cached yet are read from disk, keep it off the io threads
+            exchange.dispatch((HttpHandler) ex -> send(ex, world, points));
+            return;
+        }
+        send(exchange, world, points);
+    }
+
+    private boolean allow(InetSocketAddress source) {
+        if (source == null || source.getAddress() == null) {
+            return true;
+        }
+        long now = System.nanoTime();
+        long lastPrune = this.lastPrune.get();
+        if (this.clients.size() > MAX_CLIENTS && now - lastPrune > PRUNE_INTERVAL && this.lastPrune.compareAndSet(lastPrune, now)) {
+            // a bucket that had time to fill up again is the same as no bucket.
+            // one request a second does the sweep, the rest don't wait on it
+            this.clients.values().removeIf(bucket -> bucket.isFull(now));
+        }
+        return this.clients.computeIfAbsent(source.getAddress(), k -> new Bucket(now)).take(now);
+    }
+
+    private void send(HttpServerExchange exchange, World world, int[] points) {
+        BlockInfoCache cache = world.getBlockInfoCache();
+        JsonArray blocks = new JsonArray();
+        for (int i = 0; i < points.length; i += 2) {
+            blocks.add(cache.get(points[i], points[i + 1]));
+        }
+        JsonObject json = new JsonObject();
+        json.addProperty("minY", world.getLevel().getMinBuildHeight());
+        json.add("blocks", blocks);
+
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json");
+        exchange.getResponseHeaders().put(Headers.CACHE_CONTROL, "no-cache");
+        exchange.getResponseSender().send(json.toString());
+    }
+
+    private static class Bucket {
+        private double tokens = BURST;
+        private long last;
+
+        private Bucket(long now) {
+            this.last = now;
+        }
+
+        private synchronized boolean take(long now) {
+            this.tokens = Math.min(BURST, this.tokens + (now - this.last) / 1_000_000_000D * REQUESTS_PER_SECOND);
+            this.last = now;
+            if (this.tokens < 1.0D) {
+                return false;
+            }
+            this.tokens -= 1.0D;
+            return true;
+        }
+
+        private synchronized boolean isFull(long now) {
+            return this.tokens + (now - this.last) / 1_000_000_000D * REQUESTS_PER_SECOND >= BURST;
+        }
+    }
+}
@@ -4,4 +4,16 @@ public interface IntegratedServer {
     void startServer();
 
     void stopServer();
+
+    default long getTileRequests() {
+        return 0L;
+    }
+
+    default long getTileNotModified() {
+        return 0L;
+    }
+
+    default long getTileBytesServed() {
+        return 0L;
+    }
 }
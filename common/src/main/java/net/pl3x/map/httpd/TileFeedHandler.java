@@ -0,0 +1,129 @@
+package net.pl3x.map.httpd;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.sse.ServerSentEventConnection;
+import io.undertow.server.handlers.sse.ServerSentEventHandler;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import net.pl3x.map.image.TileFeed;
+import net.pl3x.map.world.World;
+
+/**
+ * Pushes the worlds' tile feeds to the web map with server-sent events.
+ * <p>
+ * Clients connect to {@code /tiles/<world>/feed} and get the changes in
+ * batches once a second. Each batch has the feed's last sequence as event
+ * id, so a reconnecting client picks up where it left off.
+ */
+public class TileFeedHandler implements HttpHandler {
+    // /tiles/<world>/feed
+    private static final Pattern FEED_PATH = Pattern.compile("^/tiles/([^/]+)/feed$");
+
+    private final HttpHandler next;
+    private final ServerSentEventHandler eventHandler = new ServerSentEventHandler(this::connected);
+    private final Map<ServerSentEventConnection, Client> clients = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor;
+
+    public TileFeedHandler(HttpHandler next) {
+        this.next = next;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("Pl3xMap-TileFeed")
+                .setDaemon(true)
+                .build());
+        this.executor.scheduleWithFixedDelay(this::broadcast, 1L, 1L, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        Matcher matcher = FEED_PATH.matcher(exchange.getRelativePath());
+        World world = matcher.matches() ? TileHandler.getWorld(matcher.group(1)) : null;
+        if (world == null || !world.isEnabled()) {
+            this.next.handleRequest(exchange);
+            return;
+        }
+        this.eventHandler.handleRequest(exchange);
+    }
+
+    /**
+     * Stop pushing and close every connection.
+     */
+    public void shutdown() {
+        this.executor.shutdownNow();
+        for (ServerSentEventConnection connection : this.clients.keySet()) {
+            connection.shutdown();
+        }
+        this.clients.clear();
+    }
+
+    private void connected(ServerSentEventConnection connection, String lastEventId) {
+        Matcher matcher = FEED_PATH.matcher(connection.getRequestURI());
+        World world = matcher.matches() ? TileHandler.getWorld(matcher.group(1)) : null;
+        if (world == null) {
+            connection.shutdown();
+            return;
+        }
+
+        // new clients start from now, reconnecting ones from the last batch they got
+        long sequence = world.getTileFeed().getSequence();
+        if (lastEventId != null) {
+            try {
+                sequence = Long.parseLong(lastEventId);
+            } catch (NumberFormatException ignore) {
+            }
+        }
+
+        // tells the client where the feed is at, and what it missed if it was gone
+        TileFeed feed = world.getTileFeed();
+        Client client;
+        synchronized (feed) {
+            client = new Client(world, feed.getSequence());
+            connection.send(feed.toJson(sequence), null, Long.toString(client.sent), null);
+        }
+
+        connection.setKeepAliveTime(15000L);
+        connection.addCloseTask(this.clients::remove);
+        this.clients.put(connection, client);
+    }
+
+    private void broadcast() {
+        // surround in try/catch because executor eats exceptions
+        try {
+            // most clients are caught up to the same sequence, build their batch once
+            Map<World, Map<Long, Map.Entry<Long, String>>> batches = new HashMap<>();
+            for (Map.Entry<ServerSentEventConnection, Client> entry : this.clients.entrySet()) {
+                Client client = entry.getValue();
+                TileFeed feed = client.world.getTileFeed();
+                Map.Entry<Long, String> batch;
+                synchronized (feed) {
+                    if (feed.getSequence() == client.sent) {
+                        continue;
+                    }
+                    batch = batches.computeIfAbsent(client.world, k -> new HashMap<>())
+                            .computeIfAbsent(client.sent, since -> Map.entry(feed.getSequence(), feed.toJson(since)));
+                }
+                client.sent = batch.getKey();
+                entry.getKey().send(batch.getValue(), null, Long.toString(batch.getKey()), null);
+            }
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+    }
+
+    private static class Client {
+        private final World world;
+        private volatile long sent;
+
+        private Client(World world, long sent) {
+            this.world = world;
+            this.sent = sent;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package net.pl3x.map.httpd;
+
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.ETag;
+import io.undertow.util.ETagUtils;
+import io.undertow.util.Headers;
+import io.undertow.util.StatusCodes;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Deque;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import net.pl3x.map.Key;
+import net.pl3x.map.Pl3xMap;
+import net.pl3x.map.configuration.Config;
+import net.pl3x.map.image.TileKey;
+import net.pl3x.map.image.io.IO;
+import net.pl3x.map.image.store.TileStore;
+import net.pl3x.map.render.RendererRegistry;
+import net.pl3x.map.render.builtin.BlockInfoRenderer;
+import net.pl3x.map.world.World;
+
+/**
+ * Serves tiles straight from the worlds' tile stores.
+ * <p>
+ * Tile urls asking for the tile's current version, {@code ?v=<version>} as
+ * found in the {@link net.pl3x.map.image.TileManifest}, are cacheable
+ * forever. Other tile urls have to be revalidated.
+ * <p>
+ * Conditional requests are answered from the stores' in-memory tile
+ * versions without touching the disk. Plain tile files are handed to the
+ * socket with {@link FileChannel#transferTo}, archived tiles are sent from
+ * their mapped buffers. Anything that isn't a tile is passed on to the next
+ * handler.
+ * <p>
+ * Only tiles the world can have are looked up: its renderers, zoom levels
+ * up to its max zoom out, and the configured image format or block info.
+ * Anything else is a 404. A tile that could exist but wasn't rendered yet
+ * is an empty 200, the same as before tiles were served from here, so
+ * browsers don't log an error for every blank spot on the map.
+ */
+public class TileHandler implements HttpHandler {
+    // /tiles/<world>/<zoom>/<renderer>/<x>_<z>.<extension>
+    private static final Pattern TILE_PATH = Pattern.compile("^/tiles/([^/]+)/(\\d+)/([^/]+)/(-?\\d+)_(-?\\d+)\\.(.+)$");
+
+    private final HttpHandler next;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder bytesServed = new LongAdder();
+
+    public TileHandler(HttpHandler next) {
+        this.next = next;
+    }
+
+    public long getRequests() {
+        return this.requests.sum();
+    }
+
+    public long getNotModified() {
+        return this.notModified.sum();
+    }
+
+    public long getBytesServed() {
+        return this.bytesServed.sum();
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        Matcher matcher = TILE_PATH.matcher(exchange.getRelativePath());
+        if (!matcher.matches()) {
+            this.next.handleRequest(exchange);
+            return;
+        }
+
+        World world = getWorld(matcher.group(1));
+        if (world == null || !world.isEnabled()) {
+            this.next.handleRequest(exchange);
+            return;
+        }
+
+        TileKey key = parseKey(matcher);
+        String extension = matcher.group(6);
+        if (key == null || !isTile(world, key, extension)) {
+            exchange.setStatusCode(StatusCodes.NOT_FOUND);
+            return;
+        }
+
+        this.requests.increment();
+
+        if (exchange.isInIoThread()) {
+            // looking the tile up may touch the disk, keep it off the io threads
+            exchange.dispatch((HttpHandler) ex -> handleTile(ex, world.getTileStore(), key, extension));
+            return;
+        }
+        handleTile(exchange, world.getTileStore(), key, extension);
+    }
+
+    private void handleTile(HttpServerExchange exchange, TileStore store, TileKey key, String extension) throws IOException {
+        long lastModified = store.lastModified(key, extension);
+        if (lastModified == 0L) {
+            // not rendered yet
+            exchange.setStatusCode(StatusCodes.OK);
+            return;
+        }
+
+        // a url naming the current version always gets these bytes, let browsers and proxies keep it
+        Deque<String> version = exchange.getQueryParameters().get("v");
+        if (version != null && Long.toString(lastModified).equals(version.peekFirst())) {
+            exchange.getResponseHeaders().put(Headers.CACHE_CONTROL, "public, max-age=31536000, immutable");
+        }
+
+        ETag etag = new ETag(false, Long.toString(lastModified));
+        exchange.getResponseHeaders().put(Headers.ETAG, etag.toString());
+        if (!ETagUtils.handleIfNoneMatch(exchange, etag, true)) {
+            this.notModified.increment();
+            exchange.setStatusCode(StatusCodes.NOT_MODIFIED);
+            return;
+        }
+
+        send(exchange, store, key, extension);
+    }
+
+    private void send(HttpServerExchange exchange, TileStore store, TileKey key, String extension) throws IOException {
+        if (!exchange.getResponseHeaders().contains(Headers.CONTENT_TYPE)) {
+            exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "image/" + extension);
+        }
+
+        FileChannel channel = store.openChannel(key, extension);
+        if (channel != null) {
+            long size = channel.size();
+            exchange.getResponseHeaders().put(Headers.CONTENT_LENGTH, size);
+            exchange.getResponseSender().transferFrom(channel, new IoCallback() {
+                @Override
+                public void onComplete(HttpServerExchange exchange, Sender sender) {
+                    bytesServed.add(size);
+                    close(channel);
+                    IoCallback.END_EXCHANGE.onComplete(exchange, sender);
+                }
+
+                @Override
+                public void onException(HttpServerExchange exchange, Sender sender, IOException exception) {
+                    close(channel);
+                    IoCallback.END_EXCHANGE.onException(exchange, sender, exception);
+                }
+            });
+            return;
+        }
+
+        ByteBuffer buffer = store.readBuffer(key, extension);
+        if (buffer == null) {
+            // gone since it was looked up, the map was reset
+            exchange.setStatusCode(StatusCodes.OK);
+            return;
+        }
+        int size = buffer.remaining();
+        exchange.getResponseHeaders().put(Headers.CONTENT_LENGTH, size);
+        exchange.getResponseSender().send(buffer);
+        this.bytesServed.add(size);
+    }
+
+    private static void close(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    /**
+     * Get the tile a tile path names, without checking the world has it.
+     *
+     * @param path request path, {@code /tiles/<world>/<zoom>/<renderer>/<x>_<z>.<extension>}
+     * @return tile, or null if the path isn't a tile path or its numbers are out of range
+     */
+    static TileKey parseKey(String path) {
+        Matcher matcher = TILE_PATH.matcher(path);
+        return matcher.matches() ? parseKey(matcher) : null;
+    }
+
+    private static TileKey parseKey(Matcher matcher) {
+        try {
+            return new TileKey(Key.of(matcher.group(3)),
+                    Integer.parseInt(matcher.group(2)),
+                    Integer.parseInt(matcher.group(4)),
+                    Integer.parseInt(matcher.group(5)));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Check if a tile can exist in a world, before looking for it in the tile store.
+     *
+     * @param world     world
+     * @param key       tile
+     * @param extension tile file extension
+     * @return true if the world renders this tile
+     */
+    static boolean isTile(World world, TileKey key, String extension) {
+        if (key.getZoom() < 0 || key.getZoom() > world.getConfig().ZOOM_MAX_OUT) {
+            return false;
+        }
+        if (key.getRenderer().equals(RendererRegistry.BLOCKINFO)) {
+            String blockInfo = world.getConfig().UI_BLOCKINFO;
+            return blockInfo != null && !blockInfo.isEmpty() && BlockInfoRenderer.EXTENSION.equals(extension);
+        }
+        return world.getRendererHolders().containsKey(key.getRenderer()) && IO.get(Config.WEB_TILE_FORMAT).extension().equals(extension);
+    }
+
+    static World getWorld(String dirName) {
+        for (World world : Pl3xMap.api().getWorldRegistry().entries().values()) {
+            if (world.getTilesDir().getFileName().toString().equals(dirName)) {
+                return world;
+            }
+        }
+        return null;
+    }
+}
@@ -20,6 +20,9 @@ import net.pl3x.map.world.World;
 
 public class UndertowServer implements IntegratedServer {
     private Undertow server;
+    private TileHandler tileHandler;
+    private TileFeedHandler tileFeedHandler;
+    private BlockInfoHandler blockInfoHandler;
 
     public void startServer() {
         if (!Config.HTTPD_ENABLED) {
@@ -52,6 +55,9 @@ public class UndertowServer implements IntegratedServer {
                     UndertowLogger.PREDICATE_LOGGER.debugf("Response code set to [%s] for %s.", 404, exchange);
                 }
             });
+            this.tileHandler = new TileHandler(resourceHandler);
+            this.tileFeedHandler = new TileFeedHandler(this.tileHandler);
+            this.blockInfoHandler = new BlockInfoHandler(this.tileFeedHandler);
 
             LogFilter.HIDE_UNDERTOW_LOGS = true;
             this.server = Undertow.builder()
@@ -65,7 +71,7 @@ public class UndertowServer implements IntegratedServer {
                             exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json");
                             exchange.getResponseHeaders().put(Headers.CONTENT_ENCODING, "gzip");
                         }
-                        resourceHandler.handleRequest(exchange);
+                        this.blockInfoHandler.handleRequest(exchange);
                     })
                     .build();
             this.server.start();
@@ -82,6 +88,21 @@ public class UndertowServer implements IntegratedServer {
         }
     }
 
+    @Override
+    public long getTileRequests() {
+        return this.tileHandler == null ? 0L : this.tileHandler.getRequests();
+    }
+
+    @Override
+    public long getTileNotModified() {
+        return this.tileHandler == null ? 0L : this.tileHandler.getNotModified();
+    }
+
+    @Override
+    public long getTileBytesServed() {
+        return this.tileHandler == null ? 0L : this.tileHandler.getBytesServed();
+    }
+
     public void stopServer() {
         if (!Config.HTTPD_ENABLED) {
             return;
@@ -92,6 +113,8 @@ public class UndertowServer implements IntegratedServer {
             return;
         }
 
+        this.tileFeedHandler.shutdown();
+
         LogFilter.HIDE_UNDERTOW_LOGS = true;
         this.server.stop();
         LogFilter.HIDE_UNDERTOW_LOGS = false;
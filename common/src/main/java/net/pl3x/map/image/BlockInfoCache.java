@@ -0,0 +1,114 @@
+package net.pl3x.map.image;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import net.pl3x.map.render.RendererRegistry;
+import net.pl3x.map.render.builtin.BlockInfoRenderer;
+import net.pl3x.map.util.ByteUtil;
+import net.pl3x.map.util.FileUtil;
+import net.pl3x.map.world.World;
+
+/**
+ * Block info of a world's regions, kept inflated for point lookups.
+ * <p>
+ * Lets the web server answer what is at a block without the web map
+ * downloading and inflating a whole block info tile for it. Only the most
+ * recently looked at regions are kept, regions without block info included.
+ * Concurrent lookups in a region that is not cached yet wait on a single read.
+ */
+public class BlockInfoCache {
+    // each region is a little over 1 MB
+    private static final int MAX_REGIONS = 32;
+
+    private final World world;
+
+    // guarded by this, least recently used first
+    private final Long2ObjectLinkedOpenHashMap<CompletableFuture<ByteBuffer>> regions = new Long2ObjectLinkedOpenHashMap<>();
+
+    public BlockInfoCache(World world) {
+        this.world = world;
+    }
+
+    /**
+     * Get the block info at a block.
+     *
+     * @param blockX block x
+     * @param blockZ block z
+     * @return packed block, biome and y (relative to the world's min build height), or 0 if nothing was rendered there
+     */
+    public int get(int blockX, int blockZ) {
+        ByteBuffer buffer = getRegion(blockX >> 9, blockZ >> 9);
+        if (buffer == null) {
+            return 0;
+        }
+        int index = (blockZ & (Image.SIZE - 1)) * Image.SIZE + (blockX & (Image.SIZE - 1));
+        return ByteUtil.getInt(buffer, 12 + index * 4);
+    }
+
+    /**
+     * Drop a region after its block info was saved.
+     *
+     * @param regionX region x
+     * @param regionZ region z
+     */
+    public synchronized void invalidate(int regionX, int regionZ) {
+        // a read still in flight only answers the lookups already waiting on it
+        this.regions.remove(pack(regionX, regionZ));
+    }
+
+    /**
+     * Drop every region.
+     */
+    public synchronized void clear() {
+        this.regions.clear();
+    }
+
+    private ByteBuffer getRegion(int regionX, int regionZ) {
+        long packed = pack(regionX, regionZ);
+        CompletableFuture<ByteBuffer> future;
+        boolean load = false;
+        synchronized (this) {
+            future = this.regions.getAndMoveToLast(packed);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                this.regions.putAndMoveToLast(packed, future);
+                if (this.regions.size() > MAX_REGIONS) {
+                    this.regions.removeFirst();
+                }
+                load = true;
+            }
+        }
+        if (!load) {
+            return future.join();
+        }
+
+        ByteBuffer buffer;
+        try {
+            TileKey key = new TileKey(RendererRegistry.BLOCKINFO, 0, regionX, regionZ);
+            byte[] bytes = this.world.getTileStore().read(key, BlockInfoRenderer.EXTENSION);
+            if (bytes == null) {
+                buffer = null;
+            } else {
+                buffer = ByteBuffer.allocate(Image.SIZE * Image.SIZE * 4 + 12);
+                FileUtil.gunzip(bytes, buffer);
+            }
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                // let the next lookup try again
+                if (this.regions.get(packed) == future) {
+                    this.regions.remove(packed);
+                }
+            }
+            future.completeExceptionally(e);
+            throw e instanceof RuntimeException runtime ? runtime : new RuntimeException(e);
+        }
+        future.complete(buffer);
+        return buffer;
+    }
+
+    private static long pack(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+}
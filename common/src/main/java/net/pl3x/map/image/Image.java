@@ -1,9 +1,7 @@
 package net.pl3x.map.image;
 
 import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.awt.image.DataBufferInt;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -12,13 +10,10 @@ import net.pl3x.map.Key;
 import net.pl3x.map.configuration.Config;
 import net.pl3x.map.coordinate.RegionCoordinate;
 import net.pl3x.map.image.io.IO;
-import net.pl3x.map.util.Colors;
-import net.pl3x.map.util.FileUtil;
-import net.pl3x.map.util.Mathf;
 import net.pl3x.map.world.World;
 
 public class Image {
-    private static final Map<Path, ReadWriteLock> FILE_LOCKS = new ConcurrentHashMap<>();
+    private static final Map<TileKey, ReadWriteLock> TILE_LOCKS = new ConcurrentHashMap<>();
 
     public static final int SIZE = 512;
     public static final String DIR_PATH = "%d/%s/";
@@ -54,92 +49,70 @@ public class Image {
         this.pixels[getIndex(x, z)] = color;
     }
 
-    public void saveToDisk() {
-        Path worldDir = this.world.getTilesDir();
-        for (int zoom = 0; zoom <= this.world.getConfig().ZOOM_MAX_OUT; zoom++) {
-            Path dirPath = worldDir.resolve(String.format(DIR_PATH, zoom, this.id));
-
-            // create directories if they don't exist
-            FileUtil.createDirs(dirPath);
-
-            // calculate correct sizes for this zoom level
-            int step = Mathf.pow2(zoom);
-            int size = SIZE / step;
-
-            Path filePath = dirPath.resolve(String.format(FILE_PATH,
-                    (int) Math.floor((double) this.regionX / step),
-                    (int) Math.floor((double) this.regionZ / step),
-                    this.io.extension()));
+    public static ReadWriteLock getLock(TileKey key) {
+        return TILE_LOCKS.computeIfAbsent(key, k -> new ReentrantReadWriteLock(true));
+    }
 
-            ReadWriteLock lock = FILE_LOCKS.computeIfAbsent(filePath, k -> new ReentrantReadWriteLock(true));
-            lock.writeLock().lock();
+    public void saveToDisk() {
+        // only zoom 0 is written here, the zoomed out levels are built by the world's tile compositor
+        TileCache cache = this.world.getTileCache();
+        TileKey key = new TileKey(this.id, 0, this.regionX, this.regionZ);
 
-            // read existing image from disk
-            BufferedImage buffer = getBuffer(filePath);
+        ReadWriteLock lock = getLock(key);
+        lock.writeLock().lock();
+        try {
+            // patch the existing tile, if there is one
+            BufferedImage buffer = cache.get(key);
+            if (buffer == null) {
+                buffer = this.io.createBuffer();
+            }
 
             // write new pixels
-            writePixels(buffer, size, step);
-
-            // finally, save buffer to disk
-            this.io.write(filePath, buffer);
+            writePixels(buffer);
 
+            // the cache saves it to disk once nothing touched it for a bit
+            cache.put(key, buffer);
+        } finally {
             lock.writeLock().unlock();
         }
-    }
 
-    private BufferedImage getBuffer(Path path) {
-        BufferedImage buffer = null;
-        try {
-            if (Files.exists(path) && Files.size(path) > 0) {
-                buffer = this.io.read(path);
-            }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-
-        // if not file was loaded, create a new image
-        if (buffer == null) {
-            buffer = this.io.createBuffer();
-        }
+        this.world.getTileCompositor().tileDone(key);
+    }
 
-        return buffer;
+    private void writePixels(BufferedImage buffer) {
+        // both are row-major SIZE * SIZE, copy straight into the backing array
+        Pixels.get().copyVisible(this.pixels, getData(buffer));
     }
 
-    private void writePixels(BufferedImage buffer, int size, int step) {
-        int baseX = (this.regionX * size) & (SIZE - 1);
-        int baseZ = (this.regionZ * size) & (SIZE - 1);
-        for (int x = 0; x < SIZE; x += step) {
-            for (int z = 0; z < SIZE; z += step) {
-                int rgb = getPixel(x, z);
-                if (rgb == 0) {
-                    // skipping 0 prevents overwrite existing
-                    // parts of the buffer of existing images
-                    continue;
-                }
-                if (step > 1) {
-                    // merge pixel colors instead of skipping them
-                    rgb = downSample(x, z, rgb, step);
-                }
-                buffer.setRGB(baseX + (x / step), baseZ + (z / step), rgb);
-            }
-        }
+    /**
+     * Get the pixel array backing a tile buffer.
+     * <p>
+     * Pixels are ARGB in row-major order. Changes show up in the buffer directly.
+     *
+     * @param buffer tile buffer, as made by {@link IO.Type#createBuffer()} or {@link #toArgb(BufferedImage)}
+     * @return backing pixel array
+     */
+    public static int[] getData(BufferedImage buffer) {
+        return ((DataBufferInt) buffer.getRaster().getDataBuffer()).getData();
     }
 
-    private int downSample(int x, int z, int rgb, int step) {
-        int a = 0, r = 0, g = 0, b = 0, count = 0;
-        for (int i = 0; i < step; i++) {
-            for (int j = 0; j < step; j++) {
-                if (i != 0 && j != 0) {
-                    rgb = getPixel(x + i, z + j);
-                }
-                a += Colors.alpha(rgb);
-                r += Colors.red(rgb);
-                g += Colors.green(rgb);
-                b += Colors.blue(rgb);
-                count++;
-            }
+    /**
+     * Get an image as a tile buffer whose pixels can be used with {@link #getData(BufferedImage)}.
+     * <p>
+     * Decoders pick whatever layout fits the file best, so decoded images usually need this.
+     *
+     * @param image image to convert
+     * @return the image itself if it already is a tile buffer, otherwise a converted copy
+     */
+    public static BufferedImage toArgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB && image.getWidth() == SIZE && image.getHeight() == SIZE) {
+            return image;
         }
-        return Colors.argb(a / count, r / count, g / count, b / count);
+        BufferedImage buffer = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        int width = Math.min(image.getWidth(), SIZE);
+        int height = Math.min(image.getHeight(), SIZE);
+        image.getRGB(0, 0, width, height, getData(buffer), 0, SIZE);
+        return buffer;
     }
 
     public static class Holder {
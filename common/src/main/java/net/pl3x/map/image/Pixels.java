@@ -0,0 +1,100 @@
+package net.pl3x.map.image;
+
+/**
+ * Pixel loops over tile buffers.
+ * <p>
+ * When the server was started with {@code --add-modules jdk.incubator.vector}
+ * these run on the Vector API, otherwise as plain loops. Both give the
+ * same pixels.
+ */
+public class Pixels {
+    private static final int HALF = Image.SIZE / 2;
+
+    private static final Pixels INSTANCE = create();
+
+    public static Pixels get() {
+        return INSTANCE;
+    }
+
+    private static Pixels create() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return vector();
+            } catch (Throwable ignore) {
+            }
+        }
+        return new Pixels();
+    }
+
+    // only loaded by name, the vector classes are built in their own source set and don't resolve without the module
+    static Pixels vector() throws ReflectiveOperationException {
+        return (Pixels) Class.forName("net.pl3x.map.image.VectorPixels").getDeclaredConstructor().newInstance();
+    }
+
+    /**
+     * Copy pixels, leaving the destination alone where the source is fully transparent.
+     *
+     * @param src source pixels
+     * @param dst destination pixels, at least as long as the source
+     */
+    public void copyVisible(int[] src, int[] dst) {
+        for (int i = 0; i < src.length; i++) {
+            int argb = src[i];
+            if (argb == 0) {
+                // skipping 0 prevents overwrite existing
+                // parts of the buffer of existing images
+                continue;
+            }
+            dst[i] = argb;
+        }
+    }
+
+    /**
+     * Average each 2x2 block of a tile into a quarter of another tile.
+     * <p>
+     * Transparent pixels don't count towards the average.
+     *
+     * @param src    source tile pixels
+     * @param dst    destination tile pixels
+     * @param offset index of the quarter's top left pixel in the destination
+     */
+    public void downSample(int[] src, int[] dst, int offset) {
+        for (int z = 0; z < HALF; z++) {
+            downSampleRow(src, dst, offset, z, 0);
+        }
+    }
+
+    static void downSampleRow(int[] src, int[] dst, int offset, int z, int fromX) {
+        int top = (z * 2) * Image.SIZE;
+        int bottom = top + Image.SIZE;
+        int out = offset + z * Image.SIZE;
+        for (int x = fromX; x < HALF; x++) {
+            int p0 = src[top + x * 2];
+            int p1 = src[top + x * 2 + 1];
+            int p2 = src[bottom + x * 2];
+            int p3 = src[bottom + x * 2 + 1];
+            int count = (p0 != 0 ? 1 : 0) + (p1 != 0 ? 1 : 0) + (p2 != 0 ? 1 : 0) + (p3 != 0 ? 1 : 0);
+            if (count == 4) {
+                dst[out + x] = average(p0, p1, p2, p3);
+            } else if (count > 0) {
+                dst[out + x] = average(p0, p1, p2, p3, count);
+            } else {
+                dst[out + x] = 0;
+            }
+        }
+    }
+
+    // sums alpha/green and red/blue two at a time in 16 bit lanes, which can't overflow into each other
+    static int average(int p0, int p1, int p2, int p3) {
+        int rb = (p0 & 0x00FF00FF) + (p1 & 0x00FF00FF) + (p2 & 0x00FF00FF) + (p3 & 0x00FF00FF);
+        int ag = ((p0 >>> 8) & 0x00FF00FF) + ((p1 >>> 8) & 0x00FF00FF) + ((p2 >>> 8) & 0x00FF00FF) + ((p3 >>> 8) & 0x00FF00FF);
+        return ((ag << 6) & 0xFF00FF00) | ((rb >>> 2) & 0x00FF00FF);
+    }
+
+    // transparent pixels add nothing to the sums, only the count tells them apart
+    static int average(int p0, int p1, int p2, int p3, int count) {
+        int rb = (p0 & 0x00FF00FF) + (p1 & 0x00FF00FF) + (p2 & 0x00FF00FF) + (p3 & 0x00FF00FF);
+        int ag = ((p0 >>> 8) & 0x00FF00FF) + ((p1 >>> 8) & 0x00FF00FF) + ((p2 >>> 8) & 0x00FF00FF) + ((p3 >>> 8) & 0x00FF00FF);
+        return (ag >>> 16) / count << 24 | (rb >>> 16) / count << 16 | (ag & 0xFFFF) / count << 8 | (rb & 0xFFFF) / count;
+    }
+}
@@ -0,0 +1,380 @@
+package net.pl3x.map.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.ObjLongConsumer;
+import net.pl3x.map.configuration.Config;
+import net.pl3x.map.image.io.IO;
+import net.pl3x.map.image.store.TileStore;
+
+/**
+ * Decoded tiles of a world, written back to disk lazily.
+ * <p>
+ * Tiles that get patched again shortly after, such as a parent tile
+ * touched by several regions in a row, are decoded once and saved once
+ * things settle down instead of every time. Memory is bounded by a byte
+ * budget, and the least recently used tiles are evicted first. Evicted
+ * tiles that are not saved yet get a budget of the same size; when saving
+ * falls that far behind, changed tiles are saved right away instead.
+ * <p>
+ * Callers hold the tile's {@link Image#getLock(TileKey)} while using a tile,
+ * the read lock to look at it and the write lock to change or put it.
+ * <p>
+ * Each saved tile is passed on with its new version, for the world to
+ * update its manifest and feed. Saves run on the executor it is given,
+ * whenever {@link #flushIdle()} is called or evicted tiles pile up, so
+ * the cache has no thread of its own.
+ */
+public class TileCache {
+    // time a tile has to go untouched before it is saved, and the longest it may stay unsaved
+    private static final long FLUSH_DELAY = 2000L;
+    private static final long MAX_DELAY = 10000L;
+
+    private final TileStore store;
+    private final long budget;
+    private final ObjLongConsumer<TileKey> saved;
+
+    // guarded by this
+    private final LinkedHashMap<TileKey, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+    private final Map<TileKey, Entry> evicted = new HashMap<>();
+    private long size;
+    private long evictedSize;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private final Executor flushExecutor;
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private volatile boolean shutdown;
+
+    public TileCache(TileStore store, long budget, ObjLongConsumer<TileKey> saved, Executor flushExecutor) {
+        this.store = store;
+        this.budget = budget;
+        this.saved = saved;
+        this.flushExecutor = flushExecutor;
+    }
+
+    /**
+     * Get a tile, decoding it from disk if it is not cached.
+     * <p>
+     * The returned image is shared, only change it while holding the tile's write lock.
+     *
+     * @param key tile
+     * @return tile image, or null if the tile does not exist
+     */
+    public BufferedImage get(TileKey key) {
+        synchronized (this) {
+            Entry entry = this.entries.get(key);
+            if (entry == null) {
+                entry = removeEvicted(key);
+                if (entry != null) {
+                    // not saved yet, take it back
+                    insert(key, entry);
+                }
+            }
+            if (entry != null) {
+                this.hits.getAndIncrement();
+                return entry.image;
+            }
+        }
+        this.misses.getAndIncrement();
+
+        BufferedImage image;
+        try {
+            IO.Type io = IO.get(Config.WEB_TILE_FORMAT);
+            byte[] bytes = this.store.read(key, io.extension());
+            if (bytes == null) {
+                return null;
+            }
+            image = io.decode(bytes);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        if (image == null) {
+            return null;
+        }
+        // tile users work on the raw pixel array
+        image = Image.toArgb(image);
+
+        synchronized (this) {
+            Entry entry = this.entries.get(key);
+            if (entry != null) {
+                // someone else decoded it first
+                return entry.image;
+            }
+            insert(key, new Entry(image, 0L));
+        }
+        return image;
+    }
+
+    /**
+     * Put a changed tile, to be saved to disk a little later.
+     *
+     * @param key   tile
+     * @param image tile image
+     */
+    public void put(TileKey key, BufferedImage image) {
+        if (this.shutdown) {
+            // world is unloading, late saves go straight to disk
+            save(key, image);
+            return;
+        }
+        if (isBackedUp()) {
+            // saving can't keep up, don't pile up more unsaved tiles
+            save(key, image);
+            synchronized (this) {
+                Entry entry = this.entries.get(key);
+                if (entry == null) {
+                    entry = removeEvicted(key);
+                } else {
+                    this.size += size(image) - size(entry.image);
+                }
+                if (entry != null) {
+                    // a flush may have picked it up already, don't let it save the old image over this one
+                    entry.image = image;
+                    entry.dirtySince = 0L;
+                }
+            }
+            return;
+        }
+        long now = System.currentTimeMillis();
+        boolean evicting;
+        synchronized (this) {
+            Entry entry = this.entries.get(key);
+            if (entry == null) {
+                entry = removeEvicted(key);
+            }
+            if (entry == null) {
+                insert(key, new Entry(image, now));
+            } else {
+                if (entry.image != image) {
+                    this.size += size(image) - size(entry.image);
+                    entry.image = image;
+                }
+                if (entry.dirtySince == 0L) {
+                    entry.dirtySince = now;
+                }
+                entry.lastPut = now;
+                if (!this.entries.containsKey(key)) {
+                    insert(key, entry);
+                }
+            }
+            evicting = !this.evicted.isEmpty();
+        }
+        if (evicting) {
+            // over budget, save evicted tiles now instead of waiting for the next flush
+            flushIdle();
+        }
+    }
+
+    /**
+     * Drop a tile without saving it.
+     *
+     * @param key tile
+     */
+    public synchronized void invalidate(TileKey key) {
+        Entry entry = this.entries.remove(key);
+        if (entry != null) {
+            this.size -= size(entry.image);
+        }
+        removeEvicted(key);
+    }
+
+    /**
+     * Drop every tile without saving them.
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.evicted.clear();
+        this.size = 0L;
+        this.evictedSize = 0L;
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    public float getHitRatio() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (float) hits / total * 100.0F;
+    }
+
+    /**
+     * Get the estimated size of the cached tiles, evicted ones waiting to be saved included.
+     *
+     * @return size in bytes
+     */
+    public synchronized long getSize() {
+        return this.size + this.evictedSize;
+    }
+
+    public long getBudget() {
+        return this.budget;
+    }
+
+    /**
+     * Save every changed tile to disk right away.
+     */
+    public void flush() {
+        flush(true);
+    }
+
+    /**
+     * Queue a save of the tiles that settled down or were evicted on the flush executor.
+     * <p>
+     * Does nothing if a save is already queued, or after {@link #shutdown()}.
+     */
+    public void flushIdle() {
+        if (this.shutdown || !this.flushQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.flushExecutor.execute(() -> {
+                this.flushQueued.set(false);
+                flush(false);
+            });
+        } catch (RejectedExecutionException e) {
+            this.flushQueued.set(false);
+        }
+    }
+
+    /**
+     * Save every changed tile, later puts are saved right away.
+     */
+    public void shutdown() {
+        this.shutdown = true;
+        flush(true);
+    }
+
+    private void flush(boolean all) {
+        // surround in try/catch because executor eats exceptions
+        try {
+            long now = System.currentTimeMillis();
+            List<Map.Entry<TileKey, Entry>> dirty = new ArrayList<>();
+            synchronized (this) {
+                dirty.addAll(this.evicted.entrySet());
+                for (Map.Entry<TileKey, Entry> entry : this.entries.entrySet()) {
+                    if (all || entry.getValue().isDue(now)) {
+                        dirty.add(entry);
+                    }
+                }
+                dirty.removeIf(entry -> entry.getValue().dirtySince == 0L);
+                // copy the pairs, the map entries don't survive changes to the map
+                dirty.replaceAll(entry -> Map.entry(entry.getKey(), entry.getValue()));
+            }
+            for (Map.Entry<TileKey, Entry> entry : dirty) {
+                // one bad tile shouldn't keep the rest from being saved
+                try {
+                    write(entry.getKey(), entry.getValue());
+                } catch (Throwable t) {
+                    t.printStackTrace();
+                }
+            }
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+    }
+
+    private void write(TileKey key, Entry entry) {
+        ReadWriteLock lock = Image.getLock(key);
+        // puts hold the write lock, so the tile can't change while it is encoded
+        lock.readLock().lock();
+        try {
+            BufferedImage image;
+            synchronized (this) {
+                if (entry.dirtySince == 0L) {
+                    return;
+                }
+                image = entry.image;
+            }
+            save(key, image);
+            synchronized (this) {
+                entry.dirtySince = 0L;
+                if (this.evicted.remove(key, entry)) {
+                    this.evictedSize -= size(entry.image);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void save(TileKey key, BufferedImage image) {
+        try {
+            IO.Type io = IO.get(Config.WEB_TILE_FORMAT);
+            this.store.write(key, io.extension(), io.encode(image));
+            this.saved.accept(key, this.store.lastModified(key, io.extension()));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // caller holds the lock
+    private void insert(TileKey key, Entry entry) {
+        this.entries.put(key, entry);
+        this.size += size(entry.image);
+        Iterator<Map.Entry<TileKey, Entry>> iter = this.entries.entrySet().iterator();
+        while (this.size > this.budget && iter.hasNext()) {
+            Map.Entry<TileKey, Entry> eldest = iter.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            iter.remove();
+            this.size -= size(eldest.getValue().image);
+            if (eldest.getValue().dirtySince != 0L) {
+                // still served from here until a flush saved it
+                this.evicted.put(eldest.getKey(), eldest.getValue());
+                this.evictedSize += size(eldest.getValue().image);
+            }
+        }
+    }
+
+    // caller holds the lock
+    private Entry removeEvicted(TileKey key) {
+        Entry entry = this.evicted.remove(key);
+        if (entry != null) {
+            this.evictedSize -= size(entry.image);
+        }
+        return entry;
+    }
+
+    private synchronized boolean isBackedUp() {
+        return this.evictedSize >= this.budget;
+    }
+
+    private static long size(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * 4L;
+    }
+
+    private static class Entry {
+        private BufferedImage image;
+        private long dirtySince;
+        private long lastPut;
+
+        private Entry(BufferedImage image, long dirtySince) {
+            this.image = image;
+            this.dirtySince = dirtySince;
+            this.lastPut = dirtySince;
+        }
+
+        private boolean isDue(long now) {
+            return this.dirtySince != 0L && (now - this.lastPut > FLUSH_DELAY || now - this.dirtySince > MAX_DELAY);
+        }
+    }
+}
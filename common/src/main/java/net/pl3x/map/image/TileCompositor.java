@@ -0,0 +1,184 @@
+package net.pl3x.map.image;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Predicate;
+import net.pl3x.map.configuration.Config;
+import net.pl3x.map.coordinate.RegionCoordinate;
+import net.pl3x.map.image.io.IO;
+import net.pl3x.map.world.World;
+
+/**
+ * Builds the zoomed out tiles of a world from the tiles below them.
+ * <p>
+ * Region images only save zoom level 0. Each finished tile is reported
+ * here, and its parent is built once from its four children as soon as
+ * every child the running render is expected to touch is done. Parents
+ * nobody expects, such as from background renders, are built once no
+ * child has been reported for a little while. A built parent is reported
+ * in turn, so the pyramid fills in up to the max zoom out.
+ */
+public class TileCompositor {
+    private static final long IDLE_TIME = 5000L;
+    private static final int HALF = Image.SIZE / 2;
+
+    private final World world;
+
+    // guarded by this
+    private final Map<TileKey, Pending> pending = new HashMap<>();
+    private final Map<TileKey, Integer> expected = new HashMap<>();
+
+    public TileCompositor(World world) {
+        this.world = world;
+    }
+
+    /**
+     * Tell the compositor which regions a render is about to save.
+     * <p>
+     * Parents wait for all of these before being built.
+     *
+     * @param regions regions the render will save
+     */
+    public synchronized void expect(Collection<RegionCoordinate> regions) {
+        int maxZoom = this.world.getConfig().ZOOM_MAX_OUT;
+        for (RegionCoordinate region : regions) {
+            int x = region.getRegionX();
+            int z = region.getRegionZ();
+            for (int zoom = 1; zoom <= maxZoom; zoom++) {
+                TileKey parent = new TileKey(null, zoom, Math.floorDiv(x, 2), Math.floorDiv(z, 2));
+                this.expected.merge(parent, quadrant(x, z), (a, b) -> a | b);
+                x = parent.getX();
+                z = parent.getZ();
+            }
+        }
+    }
+
+    /**
+     * Forget what the last render expected, letting its leftovers build on the idle timer.
+     */
+    public synchronized void clearExpected() {
+        this.expected.clear();
+    }
+
+    /**
+     * Report a tile that was just saved.
+     *
+     * @param tile tile that was saved
+     */
+    public void tileDone(TileKey tile) {
+        if (tile.getZoom() >= this.world.getConfig().ZOOM_MAX_OUT) {
+            return;
+        }
+        TileKey parent = tile.getParent();
+        synchronized (this) {
+            Pending pending = this.pending.computeIfAbsent(parent, k -> new Pending());
+            pending.children |= quadrant(tile.getX(), tile.getZ());
+            pending.lastTouched = System.currentTimeMillis();
+
+            int expected = this.expected.getOrDefault(expectedKey(parent), 0);
+            if (expected == 0 || (pending.children & expected) != expected) {
+                return;
+            }
+            this.pending.remove(parent);
+        }
+        compose(parent);
+    }
+
+    /**
+     * Build parents that were not touched for a while and nobody is waiting on.
+     */
+    public void flushIdle() {
+        long now = System.currentTimeMillis();
+        flush(pending -> now - pending.lastTouched > IDLE_TIME);
+    }
+
+    /**
+     * Build every pending parent right away, all the way up the pyramid.
+     */
+    public void flushAll() {
+        clearExpected();
+        flush(pending -> true);
+    }
+
+    private void flush(Predicate<Pending> filter) {
+        // parents of tiles built here are built in the same flush instead of waiting to go idle themselves
+        Set<TileKey> cascade = new HashSet<>();
+        while (true) {
+            List<TileKey> ready = new ArrayList<>();
+            synchronized (this) {
+                this.pending.forEach((key, pending) -> {
+                    if ((cascade.contains(key) || filter.test(pending)) && !this.expected.containsKey(expectedKey(key))) {
+                        ready.add(key);
+                    }
+                });
+                ready.forEach(this.pending::remove);
+            }
+            if (ready.isEmpty()) {
+                return;
+            }
+            cascade.clear();
+            for (TileKey key : ready) {
+                // surround in try/catch so one bad tile doesn't stop the rest
+                try {
+                    compose(key);
+                    cascade.add(key.getParent());
+                } catch (Throwable t) {
+                    t.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void compose(TileKey key) {
+        TileCache cache = this.world.getTileCache();
+
+        // the parent is rebuilt from scratch, its children are always the full picture
+        BufferedImage parent = IO.get(Config.WEB_TILE_FORMAT).createBuffer();
+        int[] dst = Image.getData(parent);
+        for (int i = 0; i < 4; i++) {
+            TileKey childKey = new TileKey(key.getRenderer(), key.getZoom() - 1, key.getX() * 2 + (i & 1), key.getZ() * 2 + (i >> 1));
+            ReadWriteLock lock = Image.getLock(childKey);
+            lock.readLock().lock();
+            try {
+                BufferedImage child = cache.get(childKey);
+                if (child != null) {
+                    Pixels.get().downSample(Image.getData(child), dst, (i >> 1) * HALF * Image.SIZE + (i & 1) * HALF);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        ReadWriteLock lock = Image.getLock(key);
+        lock.writeLock().lock();
+        try {
+            cache.put(key, parent);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        tileDone(key);
+    }
+
+    // bit of a child within its parent
+    private static int quadrant(int tileX, int tileZ) {
+        return 1 << ((tileX & 1) + (tileZ & 1) * 2);
+    }
+
+    // expectations are the same for every renderer
+    private static TileKey expectedKey(TileKey key) {
+        return new TileKey(null, key.getZoom(), key.getX(), key.getZ());
+    }
+
+    private static class Pending {
+        private int children;
+        private long lastTouched;
+    }
+}
@@ -0,0 +1,145 @@
+package net.pl3x.map.image;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import net.pl3x.map.util.FileUtil;
+import net.pl3x.map.world.World;
+
+/**
+ * Recently saved tiles of a world, so the web map can refresh just those.
+ * <p>
+ * Every saved tile gets the next sequence number. Clients remember the
+ * last sequence they saw and look at what came after it. When that has
+ * already dropped out of the feed, or the feed started over, they redraw
+ * everything instead.
+ * <p>
+ * The integrated web server pushes the feed to clients as it grows. For
+ * other web servers it is also written to {@value #FILE} in the world's
+ * tiles directory for clients to poll.
+ */
+public class TileFeed {
+    public static final String FILE = "feed.json";
+
+    private static final int MAX_CHANGES = 4096;
+
+    private final World world;
+
+    // guarded by this
+    private final ArrayDeque<Change> changes = new ArrayDeque<>();
+    private long sequence;
+    private long written;
+
+    public TileFeed(World world) {
+        this.world = world;
+    }
+
+    /**
+     * Add a saved tile to the feed.
+     *
+     * @param key     tile
+     * @param version tile version, as given by the tile store
+     */
+    public synchronized void add(TileKey key, long version) {
+        this.changes.add(new Change(++this.sequence, key, version));
+        if (this.changes.size() > MAX_CHANGES) {
+            this.changes.poll();
+        }
+    }
+
+    /**
+     * Forget every change, telling clients to redraw everything.
+     */
+    public synchronized void clear() {
+        this.changes.clear();
+        // skip a sequence so clients see they missed something
+        this.sequence++;
+    }
+
+    public synchronized long getSequence() {
+        return this.sequence;
+    }
+
+    /**
+     * Get the changes after the given sequence as json.
+     * <p>
+     * {@code {"sequence":<last>,"oldest":<first kept>,"tiles":[[<sequence>,"<renderer>",<zoom>,<x>,<z>,<version>],...]}}
+     *
+     * @param since last sequence the client saw, or 0 for every change in the feed
+     * @return json
+     */
+    public synchronized String toJson(long since) {
+        return toJson(since, this.sequence);
+    }
+
+    // caller holds the lock
+    private String toJson(long since, long until) {
+        JsonArray tiles = new JsonArray();
+        for (Change change : this.changes) {
+            if (change.sequence <= since) {
+                continue;
+            }
+            if (change.sequence > until) {
+                break;
+            }
+            JsonArray tile = new JsonArray();
+            tile.add(change.sequence);
+            tile.add(change.key.getRenderer().toString());
+            tile.add(change.key.getZoom());
+            tile.add(change.key.getX());
+            tile.add(change.key.getZ());
+            tile.add(change.version);
+            tiles.add(tile);
+        }
+        JsonObject json = new JsonObject();
+        json.addProperty("sequence", until);
+        json.addProperty("oldest", this.changes.isEmpty() ? until + 1 : Math.min(this.changes.getFirst().sequence, until + 1));
+        json.add("tiles", tiles);
+        return json.toString();
+    }
+
+    /**
+     * Write the feed to {@value #FILE} if it changed since the last write.
+     * <p>
+     * Only changes up to the given sequence are written. Take it before
+     * writing the manifests, so the feed never names a version the
+     * manifests written before it don't have.
+     *
+     * @param until last sequence to write, as given by {@link #getSequence()}
+     */
+    public void write(long until) {
+        String json;
+        synchronized (this) {
+            if (this.written == until) {
+                return;
+            }
+            this.written = until;
+            json = toJson(0L, until);
+        }
+        Path file = this.world.getTilesDir().resolve(FILE);
+        // swap the whole file in at once, the web server may be sending the old one
+        Path tmp = file.resolveSibling(FILE + ".tmp");
+        FileUtil.write(json, tmp);
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class Change {
+        private final long sequence;
+        private final TileKey key;
+        private final long version;
+
+        private Change(long sequence, TileKey key, long version) {
+            this.sequence = sequence;
+            this.key = key;
+            this.version = version;
+        }
+    }
+}
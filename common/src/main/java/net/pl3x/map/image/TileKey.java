@@ -0,0 +1,67 @@
+package net.pl3x.map.image;
+
+import java.util.Objects;
+import net.pl3x.map.Key;
+
+/**
+ * Identifies a single map tile of a world.
+ */
+public class TileKey {
+    private final Key renderer;
+    private final int zoom;
+    private final int x;
+    private final int z;
+
+    public TileKey(Key renderer, int zoom, int x, int z) {
+        this.renderer = renderer;
+        this.zoom = zoom;
+        this.x = x;
+        this.z = z;
+    }
+
+    public Key getRenderer() {
+        return this.renderer;
+    }
+
+    public int getZoom() {
+        return this.zoom;
+    }
+
+    public int getX() {
+        return this.x;
+    }
+
+    public int getZ() {
+        return this.z;
+    }
+
+    /**
+     * Get the tile one zoom level out that contains this tile.
+     *
+     * @return parent tile
+     */
+    public TileKey getParent() {
+        return new TileKey(this.renderer, this.zoom + 1, Math.floorDiv(this.x, 2), Math.floorDiv(this.z, 2));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TileKey other)) {
+            return false;
+        }
+        return this.zoom == other.zoom && this.x == other.x && this.z == other.z && Objects.equals(this.renderer, other.renderer);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.renderer, this.zoom, this.x, this.z);
+    }
+
+    @Override
+    public String toString() {
+        return "TileKey{renderer=" + this.renderer + ",zoom=" + this.zoom + ",x=" + this.x + ",z=" + this.z + "}";
+    }
+}
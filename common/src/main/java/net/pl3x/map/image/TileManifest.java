@@ -0,0 +1,150 @@
+package net.pl3x.map.image;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import net.pl3x.map.Key;
+import net.pl3x.map.util.FileUtil;
+import net.pl3x.map.world.World;
+
+/**
+ * Versions of the saved tiles of a world, for the web map to put in tile urls.
+ * <p>
+ * A tile's url with its version only changes when the tile does, so those
+ * urls can be cached forever. Each renderer and zoom level gets a gzipped
+ * json manifest, {@code <zoom>/<renderer>/}{@value #FILE} in the world's
+ * tiles directory, holding {@code {"base":<lowest version>,"tiles":[<x>,<z>,<version - base>,...]}}.
+ */
+public class TileManifest {
+    public static final String FILE = "manifest.gz";
+
+    private final World world;
+
+    // guarded by this
+    private final Map<String, Versions> manifests = new HashMap<>();
+
+    public TileManifest(World world) {
+        this.world = world;
+    }
+
+    /**
+     * Set the version of a saved tile.
+     *
+     * @param key     tile
+     * @param version tile version, as given by the tile store
+     */
+    public synchronized void update(TileKey key, long version) {
+        Versions versions = getVersions(key.getRenderer(), key.getZoom());
+        versions.map.put(pack(key.getX(), key.getZ()), version);
+        versions.dirty = true;
+    }
+
+    /**
+     * Forget every version. The manifest files go with the tiles.
+     */
+    public synchronized void clear() {
+        this.manifests.clear();
+    }
+
+    /**
+     * Write the manifests that changed since the last write.
+     */
+    public void write() {
+        List<Map.Entry<Path, String>> dirty = new ArrayList<>();
+        synchronized (this) {
+            for (Versions versions : this.manifests.values()) {
+                if (versions.dirty) {
+                    versions.dirty = false;
+                    dirty.add(Map.entry(versions.path, versions.toJson()));
+                }
+            }
+        }
+        for (Map.Entry<Path, String> entry : dirty) {
+            Path file = entry.getKey();
+            // swap the whole file in at once, the web server may be sending the old one
+            Path tmp = file.resolveSibling(FILE + ".tmp");
+            try {
+                FileUtil.saveGzip(entry.getValue(), tmp);
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    // caller holds the lock
+    private Versions getVersions(Key renderer, int zoom) {
+        String name = renderer + "/" + zoom;
+        Versions versions = this.manifests.get(name);
+        if (versions == null) {
+            Path path = this.world.getTilesDir().resolve(String.format(Image.DIR_PATH, zoom, renderer)).resolve(FILE);
+            versions = new Versions(path);
+            // carry on from the last run
+            if (Files.exists(path)) {
+                try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+                    versions.read(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                } catch (Exception e) {
+                    // rebuilt as tiles get saved, tiles not in it just aren't cached forever
+                    e.printStackTrace();
+                }
+            }
+            this.manifests.put(name, versions);
+        }
+        return versions;
+    }
+
+    private static long pack(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    private static class Versions {
+        private final Path path;
+        private final Long2LongMap map = new Long2LongOpenHashMap();
+        private boolean dirty;
+
+        private Versions(Path path) {
+            this.path = path;
+        }
+
+        private void read(String str) {
+            JsonObject json = JsonParser.parseString(str).getAsJsonObject();
+            long base = json.get("base").getAsLong();
+            JsonArray tiles = json.getAsJsonArray("tiles");
+            for (int i = 0; i + 2 < tiles.size(); i += 3) {
+                this.map.put(pack(tiles.get(i).getAsInt(), tiles.get(i + 1).getAsInt()), base + tiles.get(i + 2).getAsLong());
+            }
+        }
+
+        private String toJson() {
+            // versions are close together, store them as offsets to keep the file small
+            long base = this.map.isEmpty() ? 0L : Long.MAX_VALUE;
+            for (long version : this.map.values()) {
+                base = Math.min(base, version);
+            }
+            JsonArray tiles = new JsonArray();
+            for (Long2LongMap.Entry entry : this.map.long2LongEntrySet()) {
+                long key = entry.getLongKey();
+                tiles.add((int) (key >> 32));
+                tiles.add((int) key);
+                tiles.add(entry.getLongValue() - base);
+            }
+            JsonObject json = new JsonObject();
+            json.addProperty("base", base);
+            json.add("tiles", tiles);
+            return json.toString();
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package net.pl3x.map.image.io;
 
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Locale;
@@ -39,5 +41,43 @@ public abstract class IO {
         public abstract BufferedImage read(Path path);
 
         public abstract void write(Path path, BufferedImage buffer);
+
+        /**
+         * Decode an image from the bytes of an image file.
+         * <p>
+         * Types that can decode from memory should override this, the default goes through a temporary file.
+         *
+         * @param bytes image file contents
+         * @return decoded image, or null if it could not be decoded
+         * @throws IOException if the temporary file fails
+         */
+        public BufferedImage decode(byte[] bytes) throws IOException {
+            Path tmp = Files.createTempFile("pl3xmap", "." + extension());
+            try {
+                Files.write(tmp, bytes);
+                return read(tmp);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+
+        /**
+         * Encode an image to the bytes of an image file.
+         * <p>
+         * Types that can encode to memory should override this, the default goes through a temporary file.
+         *
+         * @param buffer image to encode
+         * @return image file contents
+         * @throws IOException if the temporary file fails
+         */
+        public byte[] encode(BufferedImage buffer) throws IOException {
+            Path tmp = Files.createTempFile("pl3xmap", "." + extension());
+            try {
+                write(tmp, buffer);
+                return Files.readAllBytes(tmp);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
     }
 }
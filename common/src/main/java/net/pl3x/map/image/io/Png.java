@@ -1,7 +1,11 @@
 package net.pl3x.map.image.io;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import javax.imageio.ImageIO;
@@ -22,30 +26,57 @@ public class Png extends IO.Type {
 
     @Override
     public BufferedImage read(Path path) {
-        BufferedImage buffer = null;
-        ImageReader reader = null;
-        try (ImageInputStream in = ImageIO.createImageInputStream(Files.newInputStream(path))) {
-            reader = ImageIO.getImageReadersBySuffix(extension()).next();
-            reader.setInput(in, false, true);
-            buffer = reader.read(0);
-            in.flush();
+        try (InputStream in = Files.newInputStream(path)) {
+            return read(in);
         } catch (IOException e) {
             if (!e.getMessage().contains("InterruptedException")) {
                 Logger.warn("Could not read tile image: " + path);
                 e.printStackTrace();
             }
+        }
+        return null;
+    }
+
+    @Override
+    public void write(Path path, BufferedImage buffer) {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            write(out, buffer);
+        } catch (IOException e) {
+            if (!e.getMessage().contains("InterruptedException")) {
+                Logger.warn("Could not write tile image: " + path);
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public BufferedImage decode(byte[] bytes) throws IOException {
+        return read(new ByteArrayInputStream(bytes));
+    }
+
+    @Override
+    public byte[] encode(BufferedImage buffer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(out, buffer);
+        return out.toByteArray();
+    }
+
+    private BufferedImage read(InputStream stream) throws IOException {
+        ImageReader reader = null;
+        try (ImageInputStream in = ImageIO.createImageInputStream(stream)) {
+            reader = ImageIO.getImageReadersBySuffix(extension()).next();
+            reader.setInput(in, false, true);
+            return reader.read(0);
         } finally {
             if (reader != null) {
                 reader.dispose();
             }
         }
-        return buffer;
     }
 
-    @Override
-    public void write(Path path, BufferedImage buffer) {
+    private void write(OutputStream stream, BufferedImage buffer) throws IOException {
         ImageWriter writer = null;
-        try (ImageOutputStream out = ImageIO.createImageOutputStream(Files.newOutputStream(path))) {
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(stream)) {
             writer = ImageIO.getImageWritersBySuffix(extension()).next();
             ImageWriteParam param = writer.getDefaultWriteParam();
             if (param.canWriteCompressed()) {
@@ -58,11 +89,6 @@ public class Png extends IO.Type {
             writer.setOutput(out);
             writer.write(buffer);
             out.flush();
-        } catch (IOException e) {
-            if (!e.getMessage().contains("InterruptedException")) {
-                Logger.warn("Could not write tile image: " + path);
-                e.printStackTrace();
-            }
         } finally {
             if (writer != null) {
                 writer.dispose();
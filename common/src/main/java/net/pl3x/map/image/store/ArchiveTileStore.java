@@ -0,0 +1,521 @@
+package net.pl3x.map.image.store;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import net.pl3x.map.Pl3xMap;
+import net.pl3x.map.image.TileKey;
+import net.pl3x.map.logger.Logger;
+import net.pl3x.map.util.FileUtil;
+import net.pl3x.map.world.World;
+
+/**
+ * Packs tiles into a few large files instead of one file per tile.
+ * <p>
+ * Each renderer, zoom level and extension gets an archive under
+ * {@code archive/<renderer>/} in the world's tiles directory. An archive is
+ * an append-only data file holding the tiles back to back, and an
+ * append-only index file with a fixed size record per write. The newest
+ * record of a tile wins. Tiles are read from memory mapped segments of the
+ * data file, a tile never spans two segments. Once most of an archive is
+ * space taken by replaced tiles, its live tiles are copied into fresh files
+ * in the background and swapped in, while reads and writes carry on.
+ * <p>
+ * Archives are only created by writes, reading a tile nobody wrote never
+ * touches the disk.
+ */
+public class ArchiveTileStore extends TileStore {
+    private static final String DIR = "archive";
+
+    private static final int SEGMENT_SHIFT = 26;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT; // 64 MB
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    // x, z, offset, length, time
+    private static final int INDEX_RECORD = 4 + 4 + 8 + 4 + 8;
+
+    // don't bother compacting small archives
+    private static final long COMPACT_THRESHOLD = 16L * 1024 * 1024;
+
+    private final Path tilesDir;
+    private final Executor compactExecutor;
+
+    // clear and close take the write lock, everything else the read lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // guarded by itself, archives open their files on first use outside of it
+    private final Map<String, Archive> archives = new HashMap<>();
+    private volatile boolean closed;
+
+    public ArchiveTileStore(World world) {
+        this(world.getTilesDir(), task -> Pl3xMap.api().getRenderScheduler().submitIO(task));
+    }
+
+    ArchiveTileStore(Path tilesDir, Executor compactExecutor) {
+        this.tilesDir = tilesDir;
+        this.compactExecutor = compactExecutor;
+    }
+
+    @Override
+    public byte[] read(TileKey key, String extension) throws IOException {
+        ByteBuffer buffer = readBuffer(key, extension);
+        if (buffer == null) {
+            return null;
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Override
+    public ByteBuffer readBuffer(TileKey key, String extension) throws IOException {
+        // the mapped buffer stays readable after its archive is closed
+        return use(key, extension, false, archive -> archive.read(pack(key.getX(), key.getZ())));
+    }
+
+    @Override
+    public void write(TileKey key, String extension, byte[] bytes) throws IOException {
+        use(key, extension, true, archive -> {
+            archive.write(key.getX(), key.getZ(), bytes);
+            return null;
+        });
+    }
+
+    @Override
+    public long lastModified(TileKey key, String extension) {
+        try {
+            Long time = use(key, extension, false, archive -> archive.lastModified(pack(key.getX(), key.getZ())));
+            return time == null ? 0L : time;
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    @Override
+    public void sync() throws IOException {
+        this.lock.readLock().lock();
+        try {
+            List<Archive> archives;
+            synchronized (this.archives) {
+                archives = new ArrayList<>(this.archives.values());
+            }
+            for (Archive archive : archives) {
+                archive.force();
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() throws IOException {
+        this.lock.writeLock().lock();
+        try {
+            closeArchives();
+            Path dir = this.tilesDir.resolve(DIR);
+            if (Files.exists(dir)) {
+                FileUtil.deleteDirectory(dir);
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        this.lock.writeLock().lock();
+        try {
+            this.closed = true;
+            closeArchives();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    // caller holds the write lock
+    private void closeArchives() {
+        for (Archive archive : this.archives.values()) {
+            try {
+                archive.close();
+            } catch (IOException e) {
+                Logger.warn("Could not close tile archive " + archive.dataPath);
+                e.printStackTrace();
+            }
+        }
+        this.archives.clear();
+    }
+
+    private <T> T use(TileKey key, String extension, boolean create, ArchiveTask<T> task) throws IOException {
+        this.lock.readLock().lock();
+        try {
+            Archive archive = getArchive(key, extension, create);
+            if (archive == null) {
+                return null;
+            }
+            try {
+                return task.run(archive);
+            } finally {
+                if (this.closed) {
+                    // late save after the world unloaded, don't keep the files open
+                    archive.close();
+                }
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    // caller holds the read lock
+    private Archive getArchive(TileKey key, String extension, boolean create) throws IOException {
+        String name = key.getRenderer() + "/" + key.getZoom() + "." + extension;
+        synchronized (this.archives) {
+            Archive archive = this.archives.get(name);
+            if (archive != null) {
+                return archive;
+            }
+        }
+        Path dir = this.tilesDir.resolve(DIR).resolve(key.getRenderer().toString());
+        Path dataPath = dir.resolve(key.getZoom() + "." + extension + ".dat");
+        if (!create && !Files.exists(dataPath)) {
+            return null;
+        }
+        Files.createDirectories(dir);
+        synchronized (this.archives) {
+            Archive archive = this.archives.get(name);
+            if (archive == null) {
+                archive = new Archive(dataPath, dir.resolve(key.getZoom() + "." + extension + ".idx"));
+                if (!this.closed) {
+                    this.archives.put(name, archive);
+                }
+            }
+            return archive;
+        }
+    }
+
+    private void compactLater(Archive archive) {
+        try {
+            this.compactExecutor.execute(() -> {
+                // surround in try/catch because executor eats exceptions
+                try {
+                    compact(archive);
+                } catch (Throwable t) {
+                    Logger.warn("Could not compact tile archive " + archive.dataPath);
+                    t.printStackTrace();
+                } finally {
+                    archive.compacted();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            archive.compacted();
+        }
+    }
+
+    private void compact(Archive archive) throws IOException {
+        // clear and close wait for this to finish
+        this.lock.readLock().lock();
+        try {
+            if (!this.closed) {
+                archive.compact();
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private static long pack(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    private class Archive {
+        private final Path dataPath;
+        private final Path indexPath;
+        // opened on first use
+        private FileChannel data;
+        private FileChannel index;
+
+        private final Long2ObjectMap<Slot> slots = new Long2ObjectOpenHashMap<>();
+        private final List<MappedByteBuffer> segments = new ArrayList<>();
+        private long size;
+        private long live;
+        private long dead;
+        private boolean unsynced;
+        private boolean compacting;
+        private boolean closed;
+
+        private Archive(Path dataPath, Path indexPath) {
+            this.dataPath = dataPath;
+            this.indexPath = indexPath;
+        }
+
+        // caller holds the archive lock
+        private void ensureOpen() throws IOException {
+            if (this.closed) {
+                throw new IOException("Tile archive closed " + this.dataPath);
+            }
+            if (this.data == null) {
+                open();
+                compactIfWasteful();
+            }
+        }
+
+        private void open() throws IOException {
+            this.data = FileChannel.open(this.dataPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.index = FileChannel.open(this.indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.size = this.data.size();
+            this.slots.clear();
+            this.segments.clear();
+            this.live = 0L;
+            this.dead = 0L;
+
+            // a partly written record at the end is from a crash, drop it
+            long records = this.index.size() / INDEX_RECORD;
+            ByteBuffer buffer = ByteBuffer.allocate(INDEX_RECORD * 1024);
+            long position = 0L;
+            long end = records * INDEX_RECORD;
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                while (buffer.hasRemaining()) {
+                    if (this.index.read(buffer, position + buffer.position()) < 0) {
+                        throw new IOException("Unexpected end of tile archive index " + this.indexPath);
+                    }
+                }
+                buffer.flip();
+                while (buffer.remaining() >= INDEX_RECORD) {
+                    int x = buffer.getInt();
+                    int z = buffer.getInt();
+                    Slot slot = new Slot(buffer.getLong(), buffer.getInt(), buffer.getLong());
+                    if (slot.offset + slot.length > this.size) {
+                        // tile data never made it to disk
+                        continue;
+                    }
+                    put(pack(x, z), slot);
+                }
+                position += buffer.limit();
+            }
+            this.index.truncate(end);
+            this.index.position(end);
+        }
+
+        private synchronized ByteBuffer read(long key) throws IOException {
+            ensureOpen();
+            Slot slot = this.slots.get(key);
+            if (slot == null) {
+                return null;
+            }
+            int segment = (int) (slot.offset >>> SEGMENT_SHIFT);
+            int start = (int) (slot.offset & SEGMENT_MASK);
+            MappedByteBuffer mapped = segment < this.segments.size() ? this.segments.get(segment) : null;
+            if (mapped == null || mapped.capacity() < start + slot.length) {
+                // not mapped yet, or the segment grew since it was mapped
+                long base = (long) segment << SEGMENT_SHIFT;
+                mapped = this.data.map(FileChannel.MapMode.READ_ONLY, base, Math.min(SEGMENT_SIZE, this.size - base));
+                while (this.segments.size() <= segment) {
+                    this.segments.add(null);
+                }
+                this.segments.set(segment, mapped);
+            }
+            return mapped.slice(start, slot.length).asReadOnlyBuffer();
+        }
+
+        private synchronized void write(int x, int z, byte[] bytes) throws IOException {
+            if (bytes.length > SEGMENT_SIZE) {
+                throw new IOException("Tile too large for archive " + this.dataPath);
+            }
+            ensureOpen();
+            long offset = append(this.data, this.size, ByteBuffer.wrap(bytes));
+            this.size = offset + bytes.length;
+
+            // tile urls carry the time, a changed tile has to get a new one even within the same millisecond
+            Slot old = this.slots.get(pack(x, z));
+            long time = System.currentTimeMillis();
+            Slot slot = new Slot(offset, bytes.length, old == null ? time : Math.max(time, old.time + 1));
+            writeRecord(this.index, pack(x, z), slot);
+            put(pack(x, z), slot);
+            this.unsynced = true;
+            compactIfWasteful();
+        }
+
+        // data first, an index record is only good if its tile made it to disk
+        private synchronized void force() throws IOException {
+            if (!this.unsynced || this.data == null) {
+                return;
+            }
+            this.data.force(false);
+            this.index.force(false);
+            this.unsynced = false;
+        }
+
+        private synchronized long lastModified(long key) throws IOException {
+            ensureOpen();
+            Slot slot = this.slots.get(key);
+            return slot == null ? 0L : slot.time;
+        }
+
+        private void put(long key, Slot slot) {
+            Slot old = this.slots.put(key, slot);
+            if (old != null) {
+                this.live -= old.length;
+                this.dead += old.length;
+            }
+            this.live += slot.length;
+        }
+
+        // caller holds the archive lock
+        private void compactIfWasteful() {
+            if (!this.compacting && this.dead > this.live && this.dead > COMPACT_THRESHOLD) {
+                this.compacting = true;
+                compactLater(this);
+            }
+        }
+
+        private synchronized void compacted() {
+            this.compacting = false;
+        }
+
+        /**
+         * Copy the live tiles into fresh files and swap them in.
+         * <p>
+         * The bulk of the copying happens without the archive lock, reads and
+         * writes go on meanwhile. Writes only ever append, so the tiles a
+         * snapshot points at stay put. Tiles written since the snapshot are
+         * copied over under the lock right before the swap.
+         */
+        private void compact() throws IOException {
+            Long2ObjectMap<Slot> snapshot;
+            FileChannel data;
+            synchronized (this) {
+                if (this.closed || this.data == null) {
+                    return;
+                }
+                snapshot = new Long2ObjectOpenHashMap<>(this.slots);
+                data = this.data;
+            }
+            Path dataTmp = this.dataPath.resolveSibling(this.dataPath.getFileName() + ".tmp");
+            Path indexTmp = this.indexPath.resolveSibling(this.indexPath.getFileName() + ".tmp");
+            try (FileChannel newData = FileChannel.open(dataTmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 FileChannel newIndex = FileChannel.open(indexTmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                long size = copy(data, snapshot.long2ObjectEntrySet(), newData, newIndex, 0L);
+                synchronized (this) {
+                    if (this.closed || this.data != data) {
+                        return;
+                    }
+                    // written while copying
+                    List<Long2ObjectMap.Entry<Slot>> changed = new ArrayList<>();
+                    for (Long2ObjectMap.Entry<Slot> entry : this.slots.long2ObjectEntrySet()) {
+                        if (snapshot.get(entry.getLongKey()) != entry.getValue()) {
+                            changed.add(entry);
+                        }
+                    }
+                    copy(data, changed, newData, newIndex, size);
+                    // the new files replace the old ones, they have to be on disk first
+                    newData.force(true);
+                    newIndex.force(true);
+                    newData.close();
+                    newIndex.close();
+
+                    closeFiles();
+                    Files.move(dataTmp, this.dataPath, StandardCopyOption.REPLACE_EXISTING);
+                    Files.move(indexTmp, this.indexPath, StandardCopyOption.REPLACE_EXISTING);
+                    open();
+                }
+            } finally {
+                Files.deleteIfExists(dataTmp);
+                Files.deleteIfExists(indexTmp);
+            }
+        }
+
+        private long copy(FileChannel from, Iterable<Long2ObjectMap.Entry<Slot>> entries, FileChannel data, FileChannel index, long size) throws IOException {
+            for (Long2ObjectMap.Entry<Slot> entry : entries) {
+                Slot slot = entry.getValue();
+                ByteBuffer buffer = ByteBuffer.allocate(slot.length);
+                while (buffer.hasRemaining()) {
+                    if (from.read(buffer, slot.offset + buffer.position()) < 0) {
+                        throw new IOException("Unexpected end of tile archive " + this.dataPath);
+                    }
+                }
+                buffer.flip();
+                long offset = append(data, size, buffer);
+                writeRecord(index, entry.getLongKey(), new Slot(offset, slot.length, slot.time));
+                size = offset + slot.length;
+            }
+            return size;
+        }
+
+        private synchronized void close() throws IOException {
+            this.closed = true;
+            closeFiles();
+        }
+
+        // caller holds the archive lock
+        private void closeFiles() throws IOException {
+            if (this.data == null) {
+                return;
+            }
+            this.segments.clear();
+            try {
+                force();
+            } finally {
+                try {
+                    this.data.close();
+                } finally {
+                    this.index.close();
+                    this.data = null;
+                    this.index = null;
+                }
+            }
+        }
+    }
+
+    // write at the end of the data, starting a new segment if it doesn't fit in the last one. the gap stays empty
+    private static long append(FileChannel data, long size, ByteBuffer buffer) throws IOException {
+        long offset = size;
+        long segmentEnd = ((offset >>> SEGMENT_SHIFT) + 1) << SEGMENT_SHIFT;
+        if (offset + buffer.remaining() > segmentEnd) {
+            offset = segmentEnd;
+        }
+        while (buffer.hasRemaining()) {
+            data.write(buffer, offset + buffer.position());
+        }
+        return offset;
+    }
+
+    private static void writeRecord(FileChannel index, long key, Slot slot) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(INDEX_RECORD);
+        record.putInt((int) (key >> 32)).putInt((int) key).putLong(slot.offset).putInt(slot.length).putLong(slot.time).flip();
+        while (record.hasRemaining()) {
+            index.write(record);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ArchiveTask<T> {
+        T run(Archive archive) throws IOException;
+    }
+
+    private static class Slot {
+        private final long offset;
+        private final int length;
+        private final long time;
+
+        private Slot(long offset, int length, long time) {
+            this.offset = offset;
+            this.length = length;
+            this.time = time;
+        }
+    }
+}
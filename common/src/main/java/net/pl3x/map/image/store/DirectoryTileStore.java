@@ -0,0 +1,135 @@
+package net.pl3x.map.image.store;
+
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+import net.pl3x.map.image.Image;
+import net.pl3x.map.image.TileKey;
+import net.pl3x.map.util.FileUtil;
+import net.pl3x.map.world.World;
+
+/**
+ * Keeps every tile in its own file, {@code <zoom>/<renderer>/<x>_<z>.<extension>}
+ * under the world's tiles directory.
+ */
+public class DirectoryTileStore extends TileStore {
+    private final World world;
+
+    // last modified times by renderer/zoom/extension, then packed x/z (guarded by itself)
+    private final Map<String, Long2LongMap> versions = new HashMap<>();
+
+    public DirectoryTileStore(World world) {
+        this.world = world;
+    }
+
+    public Path getPath(TileKey key, String extension) {
+        return this.world.getTilesDir()
+                .resolve(String.format(Image.DIR_PATH, key.getZoom(), key.getRenderer()))
+                .resolve(String.format(Image.FILE_PATH, key.getX(), key.getZ(), extension));
+    }
+
+    @Override
+    public byte[] read(TileKey key, String extension) throws IOException {
+        Path path = getPath(key, extension);
+        try {
+            byte[] bytes = Files.readAllBytes(path);
+            return bytes.length == 0 ? null : bytes;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public FileChannel openChannel(TileKey key, String extension) throws IOException {
+        try {
+            return FileChannel.open(getPath(key, extension), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void write(TileKey key, String extension, byte[] bytes) throws IOException {
+        Path path = getPath(key, extension);
+        FileUtil.createDirs(path.getParent());
+        // swap the whole file in at once, the web server may be sending the old one
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(tmp, bytes);
+        // the file's time is the version after a restart, keep them the same
+        long time = nextVersion(key, extension);
+        Files.setLastModifiedTime(tmp, FileTime.fromMillis(time));
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        setVersion(key, extension, time);
+    }
+
+    @Override
+    public long lastModified(TileKey key, String extension) {
+        long packed = pack(key);
+        synchronized (this.versions) {
+            Long2LongMap map = this.versions.get(name(key, extension));
+            if (map != null && map.containsKey(packed)) {
+                return map.get(packed);
+            }
+        }
+        // first time this tile is asked for, everything after is written through this store
+        long time;
+        try {
+            time = Files.getLastModifiedTime(getPath(key, extension)).toMillis();
+        } catch (IOException e) {
+            // misses aren't kept, anyone can ask for any tile
+            return 0L;
+        }
+        setVersion(key, extension, time);
+        return time;
+    }
+
+    // tile urls carry the version, a changed tile has to get a new one even within the same millisecond
+    private long nextVersion(TileKey key, String extension) {
+        long now = System.currentTimeMillis();
+        synchronized (this.versions) {
+            Long2LongMap map = this.versions.get(name(key, extension));
+            return map == null ? now : Math.max(now, map.get(pack(key)) + 1);
+        }
+    }
+
+    private void setVersion(TileKey key, String extension, long time) {
+        synchronized (this.versions) {
+            this.versions.computeIfAbsent(name(key, extension), k -> new Long2LongOpenHashMap()).put(pack(key), time);
+        }
+    }
+
+    private static String name(TileKey key, String extension) {
+        return key.getRenderer() + "/" + key.getZoom() + "." + extension;
+    }
+
+    private static long pack(TileKey key) {
+        return ((long) key.getX() << 32) | (key.getZ() & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public void clear() throws IOException {
+        synchronized (this.versions) {
+            this.versions.clear();
+        }
+        Path tilesDir = this.world.getTilesDir();
+        if (!Files.exists(tilesDir)) {
+            return;
+        }
+        // zoom level directories, leave markers and such alone
+        try (Stream<Path> dirs = Files.list(tilesDir)) {
+            for (Path dir : dirs.filter(dir -> dir.getFileName().toString().matches("-?\\d+")).toList()) {
+                FileUtil.deleteDirectory(dir);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package net.pl3x.map.image.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import net.pl3x.map.image.TileKey;
+import net.pl3x.map.world.World;
+
+/**
+ * Where the tiles of a world are kept.
+ * <p>
+ * Tiles are opaque bytes, identified by their {@link TileKey} and file
+ * extension. Encoding and decoding is up to the caller.
+ */
+public abstract class TileStore {
+    private static final Map<String, Factory> TYPES = new HashMap<>();
+
+    public static void register(String name, Factory factory) {
+        if (TYPES.containsKey(name)) {
+            throw new IllegalStateException(String.format("Tile store %s already registered", name));
+        }
+        TYPES.put(name, factory);
+    }
+
+    public static void unregister(String name) {
+        TYPES.remove(name);
+    }
+
+    public static TileStore create(String name, World world) {
+        Factory factory = TYPES.get(name.toLowerCase(Locale.ROOT));
+        if (factory == null) {
+            throw new IllegalStateException("Unknown or unsupported tile store");
+        }
+        return factory.create(world);
+    }
+
+    /**
+     * Read a tile.
+     *
+     * @param key       tile
+     * @param extension tile file extension
+     * @return tile contents, or null if the tile does not exist
+     * @throws IOException if the tile could not be read
+     */
+    public abstract byte[] read(TileKey key, String extension) throws IOException;
+
+    /**
+     * Read a tile without copying it, if the store can.
+     * <p>
+     * The returned buffer must not be changed.
+     *
+     * @param key       tile
+     * @param extension tile file extension
+     * @return tile contents, or null if the tile does not exist
+     * @throws IOException if the tile could not be read
+     */
+    public ByteBuffer readBuffer(TileKey key, String extension) throws IOException {
+        byte[] bytes = read(key, extension);
+        return bytes == null ? null : ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    /**
+     * Open a tile's file for reading, if the store keeps tiles as plain files.
+     * <p>
+     * Lets the web server hand the file to the socket without copying it.
+     *
+     * @param key       tile
+     * @param extension tile file extension
+     * @return open channel the caller has to close, or null if the tile does not exist or isn't a plain file
+     * @throws IOException if the file could not be opened
+     */
+    public FileChannel openChannel(TileKey key, String extension) throws IOException {
+        return null;
+    }
+
+    /**
+     * Write a tile, replacing what was there.
+     *
+     * @param key       tile
+     * @param extension tile file extension
+     * @param bytes     tile contents
+     * @throws IOException if the tile could not be written
+     */
+    public abstract void write(TileKey key, String extension, byte[] bytes) throws IOException;
+
+    /**
+     * Get when a tile was last written.
+     * <p>
+     * This is answered from memory once the tile was looked at, so it is cheap enough to call per request.
+     *
+     * @param key       tile
+     * @param extension tile file extension
+     * @return time in milliseconds, or 0 if the tile does not exist
+     */
+    public abstract long lastModified(TileKey key, String extension);
+
+    /**
+     * Force written tiles to disk, if the store holds on to anything that isn't yet.
+     *
+     * @throws IOException if tiles could not be forced to disk
+     */
+    public void sync() throws IOException {
+    }
+
+    /**
+     * Delete every tile of the world.
+     *
+     * @throws IOException if tiles could not be deleted
+     */
+    public abstract void clear() throws IOException;
+
+    /**
+     * Release anything held open.
+     * <p>
+     * Saves still running when the world unloads may write after this,
+     * the store must take those without holding anything open again.
+     */
+    public void close() {
+    }
+
+    @FunctionalInterface
+    public interface Factory {
+        TileStore create(World world);
+    }
+}
@@ -49,4 +49,10 @@ public class Area {
                 regionZ < Coordinate.chunkToRegion(getMinZ()) ||
                 regionZ > Coordinate.chunkToRegion(getMaxZ()));
     }
+
+    public boolean containsWholeRegion(int regionX, int regionZ) {
+        int chunkX = Coordinate.regionToChunk(regionX);
+        int chunkZ = Coordinate.regionToChunk(regionZ);
+        return containsChunk(chunkX, chunkZ) && containsChunk(chunkX + 31, chunkZ + 31);
+    }
 }
@@ -0,0 +1,95 @@
+package net.pl3x.map.render;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import net.minecraft.world.level.ChunkPos;
+
+/**
+ * Finished column data of region border chunks, handed to neighboring regions.
+ * <p>
+ * Every region scans a one chunk ring around itself that its neighbors scan
+ * as part of their own region. Border chunks are published here once scanned,
+ * so the neighbor can copy the columns instead of decoding and scanning the
+ * chunk again. Entries are dropped once every neighbor took them, or when
+ * they get too old to trust.
+ */
+public class EdgeCache {
+    private static final long MAX_AGE = TimeUnit.SECONDS.toMillis(60);
+
+    private final Map<Long, Columns> columns = new ConcurrentHashMap<>();
+    private final AtomicLong lastPrune = new AtomicLong(System.currentTimeMillis());
+
+    public boolean has(int chunkX, int chunkZ) {
+        return this.columns.containsKey(ChunkPos.asLong(chunkX, chunkZ));
+    }
+
+    public void put(int chunkX, int chunkZ, Columns columns) {
+        long now = System.currentTimeMillis();
+        long last = this.lastPrune.get();
+        if (now - last > MAX_AGE && this.lastPrune.compareAndSet(last, now)) {
+            // neighbors that never got rendered leave their entries behind
+            this.columns.values().removeIf(entry -> entry.isExpired(now));
+        }
+        columns.uses.set(getNeighbors(chunkX, chunkZ));
+        this.columns.put(ChunkPos.asLong(chunkX, chunkZ), columns);
+    }
+
+    public Columns take(int chunkX, int chunkZ) {
+        long key = ChunkPos.asLong(chunkX, chunkZ);
+        Columns columns = this.columns.get(key);
+        if (columns == null) {
+            return null;
+        }
+        if (columns.isExpired(System.currentTimeMillis())) {
+            this.columns.remove(key, columns);
+            return null;
+        }
+        if (columns.uses.decrementAndGet() <= 0) {
+            this.columns.remove(key, columns);
+        }
+        return columns;
+    }
+
+    public void invalidate(long key) {
+        this.columns.remove(key);
+    }
+
+    public void clear() {
+        this.columns.clear();
+    }
+
+    // number of other regions whose edge ring contains this chunk
+    private static int getNeighbors(int chunkX, int chunkZ) {
+        int x = chunkX & 31;
+        int z = chunkZ & 31;
+        int nx = x == 0 || x == 31 ? 2 : 1;
+        int nz = z == 0 || z == 31 ? 2 : 1;
+        return nx * nz - 1;
+    }
+
+    /**
+     * Scanned columns of a single chunk, in {@code z * 16 + x} order.
+     */
+    public static class Columns {
+        final int[] blockState = new int[256];
+        final short[] blockY = new short[256];
+        final short[] blockBiome = new short[256];
+
+        final int[] fluidState = new int[256];
+        final short[] fluidY = new short[256];
+        final short[] fluidBiome = new short[256];
+
+        final short[] glassCount = new short[256];
+        int[] glass;
+
+        private final long created = System.currentTimeMillis();
+        private final AtomicInteger uses = new AtomicInteger();
+
+        private boolean isExpired(long now) {
+            return now - this.created > MAX_AGE;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package net.pl3x.map.render;
+
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits a range of work in half until it is small enough, letting idle
+ * render threads steal the halves.
+ */
+final class RangeTask extends RecursiveAction {
+    private final int from;
+    private final int to;
+    private final int threshold;
+    private final Action action;
+
+    private RangeTask(int from, int to, int threshold, Action action) {
+        this.from = from;
+        this.to = to;
+        this.threshold = threshold;
+        this.action = action;
+    }
+
+    @Override
+    protected void compute() {
+        if (this.to - this.from <= this.threshold) {
+            this.action.run(this.from, this.to);
+            return;
+        }
+        int mid = (this.from + this.to) >>> 1;
+        invokeAll(new RangeTask(this.from, mid, this.threshold, this.action),
+                new RangeTask(mid, this.to, this.threshold, this.action));
+    }
+
+    static void run(int from, int to, int threshold, boolean parallel, Action action) {
+        if (parallel && ForkJoinTask.inForkJoinPool()) {
+            new RangeTask(from, to, threshold, action).invoke();
+        } else {
+            // throttled, or not on a render pool thread (don't spill into the common pool)
+            action.run(from, to);
+        }
+    }
+
+    @FunctionalInterface
+    interface Action {
+        void run(int from, int to);
+    }
+}
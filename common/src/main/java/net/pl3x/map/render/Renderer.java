@@ -1,16 +1,16 @@
 package net.pl3x.map.render;
 
 import java.util.Locale;
-import net.minecraft.core.BlockPos;
+import java.util.function.IntConsumer;
 import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.state.BlockState;
-import net.minecraft.world.level.chunk.ChunkAccess;
 import net.pl3x.map.Key;
 import net.pl3x.map.Pl3xMap;
 import net.pl3x.map.coordinate.RegionCoordinate;
 import net.pl3x.map.heightmap.Heightmap;
 import net.pl3x.map.image.Image;
 import net.pl3x.map.render.job.Render;
+import net.pl3x.map.util.BlockStateTable;
 import net.pl3x.map.util.Colors;
 import net.pl3x.map.util.LightEngine;
 import net.pl3x.map.util.Mathf;
@@ -73,70 +73,88 @@ public abstract class Renderer {
         this.imageHolder.save();
     }
 
-    public abstract void scanData(RegionCoordinate region, ScanData.Data scanData);
+    public abstract void scanData(RegionCoordinate region, ScanData scanData);
+
+    /**
+     * Run a pass over every pixel row of the region image.
+     * <p>
+     * Bands of rows are split across the render pool, so the pass must only
+     * write to the pixels of the row it was given.
+     *
+     * @param row pass to run for each pixel row
+     */
+    public void forEachRow(IntConsumer row) {
+        RangeTask.run(0, Image.SIZE, 32, this.scanTask.isParallel(), (from, to) -> {
+            for (int pixelZ = from; pixelZ < to; pixelZ++) {
+                row.accept(pixelZ);
+            }
+        });
+    }
 
-    public int basicPixelColor(ScanData data, ScanData.Data scanData) {
+    public int basicPixelColor(ScanData scanData, int index) {
         // fluid stuff
-        boolean isFluid = data.getFluidPos() != null;
+        boolean isFluid = scanData.hasFluid(index);
         boolean transFluid = getWorld().getConfig().RENDER_TRANSLUCENT_FLUIDS;
         boolean flatFluid = isFluid && !transFluid;
 
         // fix true block color
         int pixelColor = 0;
         if (!flatFluid) {
-            pixelColor = Colors.fixBlockColor(getRender().getBiomeColors(), data, scanData, Colors.getRawBlockColor(data.getBlockState()));
+            pixelColor = Colors.fixBlockColor(getRender().getBiomeColors(), scanData, index, BlockStateTable.getColor(scanData.getBlockStateId(index)));
             if (pixelColor != 0) {
                 // fix alpha
                 pixelColor = Colors.setAlpha(0xFF, pixelColor);
                 // work out the heightmap
-                pixelColor = Colors.blend(getHeightmap().getColor(data.getCoordinate(), data, scanData), pixelColor);
+                pixelColor = Colors.blend(getHeightmap().getColor(scanData, index), pixelColor);
             }
         }
 
         // fancy fluids, yum
         if (isFluid) {
             if (transFluid) {
-                int fluidColor = fancyFluids(data, scanData, data.getFluidState(), (data.getFluidPos().getY() - data.getBlockPos().getY()) * 0.025F);
+                int fluidColor = fancyFluids(scanData, index, scanData.getFluidState(index), (scanData.getFluidY(index) - scanData.getBlockY(index)) * 0.025F);
                 pixelColor = Colors.blend(fluidColor, pixelColor);
             } else {
-                pixelColor = getRender().getBiomeColors().getWaterColor(data, scanData);
+                pixelColor = getRender().getBiomeColors().getWaterColor(scanData, index);
             }
         }
 
         // if there was translucent glass, mix it in here
-        for (int color : data.getGlassColors()) {
-            pixelColor = Colors.blend(color, pixelColor);
+        for (int layer = 0; layer < scanData.getGlassCount(index); layer++) {
+            pixelColor = Colors.blend(scanData.getGlassColor(index, layer), pixelColor);
         }
 
         return pixelColor;
     }
 
-    public int fancyFluids(ScanData data, ScanData.Data scanData, BlockState fluidState, float depth) {
+    public int fancyFluids(ScanData scanData, int index, BlockState fluidState, float depth) {
         // let's do some maths to get pretty fluid colors based on depth
         int fluidColor;
         if (fluidState.is(Blocks.LAVA)) {
-            fluidColor = Colors.getRawBlockColor(fluidState);
+            fluidColor = BlockStateTable.getColor(scanData.getFluidStateId(index));
             fluidColor = Colors.lerpARGB(fluidColor, 0xFF000000, Mathf.clamp(0, 0.3F, Easing.cubicOut(depth / 1.5F)));
             fluidColor = Colors.setAlpha(0xFF, fluidColor);
         } else {
-            fluidColor = getRender().getBiomeColors().getWaterColor(data, scanData);
+            fluidColor = getRender().getBiomeColors().getWaterColor(scanData, index);
             fluidColor = Colors.lerpARGB(fluidColor, 0xFF000000, Mathf.clamp(0, 0.45F, Easing.cubicOut(depth / 1.5F)));
             fluidColor = Colors.setAlpha((int) (Easing.quinticOut(Mathf.clamp(0, 1, depth * 5F)) * 0xFF), fluidColor);
         }
         return fluidColor;
     }
 
-    public int calculateLight(ChunkAccess chunk, BlockPos blockPos, BlockState fluidState, BlockPos fluidPos, int pixelColor) {
+    public int calculateLight(ScanData scanData, int index, int pixelColor) {
         if (getWorld().getConfig().RENDER_SKYLIGHT < 15) {
             // get light level right above this block
             int blockLight;
+            BlockState fluidState = scanData.getFluidState(index);
             if (fluidState != null && fluidState.is(Blocks.LAVA)) {
                 // not sure why lava isn't returning
                 // the correct light levels in the nether..
                 // maybe a starlight optimization?
                 blockLight = 15;
             } else {
-                blockLight = LightEngine.getBlockLightValue(chunk, (fluidPos == null ? blockPos : fluidPos).above());
+                int y = fluidState == null ? scanData.getBlockY(index) : scanData.getFluidY(index);
+                blockLight = LightEngine.getBlockLightValue(scanData.getChunk(index), scanData.getBlockX(index), y + 1, scanData.getBlockZ(index));
             }
             // blocklight in 0-255 range
             int alpha = (int) (Mathf.inverseLerp(0, 15, blockLight) * 0xFF);
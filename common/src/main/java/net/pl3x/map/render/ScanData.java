@@ -1,52 +1,89 @@
 package net.pl3x.map.render;
 
-import java.util.Collection;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import net.minecraft.core.BlockPos;
-import net.minecraft.core.Direction;
-import net.minecraft.core.Holder;
+import net.minecraft.core.Registry;
 import net.minecraft.resources.ResourceKey;
 import net.minecraft.world.level.biome.Biome;
-import net.minecraft.world.level.block.Blocks;
-import net.minecraft.world.level.block.StainedGlassBlock;
-import net.minecraft.world.level.block.StainedGlassPaneBlock;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockBehaviour;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
 import net.minecraft.world.level.levelgen.Heightmap;
 import net.pl3x.map.coordinate.BlockCoordinate;
+import net.pl3x.map.coordinate.Coordinate;
 import net.pl3x.map.image.Image;
+import net.pl3x.map.util.BiomeBlend;
+import net.pl3x.map.util.BlockStateTable;
 import net.pl3x.map.util.Colors;
 import net.pl3x.map.world.World;
 
+/**
+ * Columnar scan results for a region and its one chunk edge ring.
+ * <p>
+ * Every column is addressed by an index of {@code z * size() + x}, where
+ * x and z are relative to the most northwest block of the edge ring.
+ */
 public class ScanData {
+    public static final int EDGE = 16;
+    public static final int NONE = -1;
+
+    private static final int SECTION_AIR = 1;
+    private static final int SECTION_SURFACE = 1 << 1;
+
+    private static final int CHUNKS = size() >> 4;
+
     private final ScanTask scanTask;
-    private final ChunkAccess chunk;
-    private final BlockCoordinate coordinate;
+    private final World world;
+    private final Registry<Biome> biomeRegistry;
 
-    private Biome blockBiome;
-    private ResourceKey<Biome> blockBiomeKey;
-    private final BlockPos.MutableBlockPos blockPos;
-    private BlockState blockState;
+    private final int minX;
+    private final int minZ;
+    private final int minY;
+    private final boolean hasCeiling;
+    private final boolean translucentGlass;
+    private final int surfaceFlags;
 
-    private Biome fluidBiome = null;
-    private ResourceKey<Biome> fluidBiomeKey = null;
-    private BlockPos.MutableBlockPos fluidPos = null;
-    private BlockState fluidState = null;
+    private final ChunkAccess[] chunks = new ChunkAccess[CHUNKS * CHUNKS];
 
-    private final LinkedList<Integer> glass = new LinkedList<>();
+    private final int[] blockState = new int[size() * size()];
+    private final short[] blockY = new short[size() * size()];
+    private final short[] blockBiome = new short[size() * size()];
 
-    public ScanData(ScanTask scanTask, ChunkAccess chunk, BlockCoordinate coordinate) {
-        this.scanTask = scanTask;
-        this.chunk = chunk;
-        this.coordinate = coordinate;
+    private final int[] fluidState = new int[size() * size()];
+    private final short[] fluidY = new short[size() * size()];
+    private final short[] fluidBiome = new short[size() * size()];
 
-        int y = chunk.getHeight(Heightmap.Types.WORLD_SURFACE, coordinate.getBlockX(), coordinate.getBlockZ()) + 1;
-        this.blockPos = new BlockPos.MutableBlockPos(coordinate.getBlockX(), y, coordinate.getBlockZ());
+    private final int[] glassOffset = new int[size() * size()];
+    private final short[] glassCount = new short[size() * size()];
+    private int[] glass = new int[Image.SIZE];
+    private int glassSize;
 
-        scan();
+    private final int sectionCount;
+
+    private final BiomeBlend biomeBlend;
+    private BitSet dirtyChunks;
+
+    public ScanData(ScanTask scanTask) {
+        this.scanTask = scanTask;
+        this.world = scanTask.getWorld();
+        this.biomeRegistry = this.world.getBiomeRegistry();
+
+        this.minX = scanTask.getRegion().getBlockX() - EDGE;
+        this.minZ = scanTask.getRegion().getBlockZ() - EDGE;
+        this.minY = this.world.getLevel().getMinBuildHeight();
+        this.hasCeiling = this.world.getLevel().dimensionType().hasCeiling();
+        this.translucentGlass = this.world.getConfig().RENDER_TRANSLUCENT_GLASS;
+        this.surfaceFlags = BlockStateTable.RENDERABLE | BlockStateTable.FLUID | (this.translucentGlass ? BlockStateTable.GLASS : 0);
+        this.sectionCount = this.world.getLevel().getSectionsCount();
+        this.biomeBlend = new BiomeBlend(this);
+
+        Arrays.fill(this.blockState, NONE);
+        Arrays.fill(this.fluidState, NONE);
     }
 
     public ScanTask getScanTask() {
@@ -54,144 +91,404 @@ public class ScanData {
     }
 
     public World getWorld() {
-        return this.scanTask.getWorld();
+        return this.world;
+    }
+
+    public BiomeBlend getBiomeBlend() {
+        return this.biomeBlend;
+    }
+
+    public boolean has(int index) {
+        return index >= 0 && this.blockState[index] != NONE;
+    }
+
+    /**
+     * Limit rendering to the dirty chunks of the region.
+     * <p>
+     * Chunks around the dirty ones are still scanned so heightmaps and biome
+     * blending have neighbors to work with, but only dirty chunks are drawn.
+     *
+     * @param dirtyChunks dirty chunks indexed by {@code (chunkZ & 31) * 32 + (chunkX & 31)}, or null for all
+     */
+    public void setDirtyChunks(BitSet dirtyChunks) {
+        this.dirtyChunks = dirtyChunks;
+    }
+
+    public boolean shouldRender(int index) {
+        if (!has(index)) {
+            return false;
+        }
+        if (this.dirtyChunks == null) {
+            return true;
+        }
+        int chunkX = ((index % size()) - EDGE) >> 4;
+        int chunkZ = ((index / size()) - EDGE) >> 4;
+        return chunkX >= 0 && chunkX < 32 && chunkZ >= 0 && chunkZ < 32 && this.dirtyChunks.get(chunkZ * 32 + chunkX);
+    }
+
+    public int getBlockX(int index) {
+        return this.minX + index % size();
+    }
+
+    public int getBlockZ(int index) {
+        return this.minZ + index / size();
+    }
+
+    public ChunkAccess getChunk(int index) {
+        int chunkX = (index % size()) >> 4;
+        int chunkZ = (index / size()) >> 4;
+        return this.chunks[chunkZ * CHUNKS + chunkX];
+    }
+
+    public int getBlockStateId(int index) {
+        return this.blockState[index];
+    }
+
+    public BlockState getBlockState(int index) {
+        return Block.stateById(this.blockState[index]);
+    }
+
+    public int getBlockY(int index) {
+        return this.blockY[index];
+    }
+
+    public int getBlockBiomeId(int index) {
+        return this.blockBiome[index];
+    }
+
+    public Biome getBlockBiome(int index) {
+        return this.biomeRegistry.byId(this.blockBiome[index]);
+    }
+
+    public ResourceKey<Biome> getBlockBiomeKey(int index) {
+        return this.biomeRegistry.getResourceKey(getBlockBiome(index)).orElse(null);
+    }
+
+    public boolean hasFluid(int index) {
+        return this.fluidState[index] != NONE;
+    }
+
+    public int getFluidStateId(int index) {
+        return this.fluidState[index];
     }
 
-    public ChunkAccess getChunk() {
-        return this.chunk;
+    public BlockState getFluidState(int index) {
+        return hasFluid(index) ? Block.stateById(this.fluidState[index]) : null;
     }
 
-    public BlockCoordinate getCoordinate() {
-        return this.coordinate;
+    public int getFluidY(int index) {
+        return this.fluidY[index];
     }
 
-    public Biome getBlockBiome() {
-        return this.blockBiome;
+    public int getFluidBiomeId(int index) {
+        return hasFluid(index) ? this.fluidBiome[index] : this.blockBiome[index];
     }
 
-    public ResourceKey<Biome> getBlockBiomeKey() {
-        return this.blockBiomeKey;
+    public Biome getFluidBiome(int index) {
+        return this.biomeRegistry.byId(getFluidBiomeId(index));
     }
 
-    public BlockPos getBlockPos() {
-        return this.blockPos;
+    public ResourceKey<Biome> getFluidBiomeKey(int index) {
+        return this.biomeRegistry.getResourceKey(getFluidBiome(index)).orElse(null);
     }
 
-    public BlockState getBlockState() {
-        return this.blockState;
+    public int getGlassCount(int index) {
+        return this.glassCount[index];
     }
 
-    public Biome getFluidBiome() {
-        return this.fluidBiome;
+    /**
+     * Get a translucent glass color in a column, ordered bottom up.
+     *
+     * @param index column index
+     * @param layer glass layer, 0 being the lowest
+     * @return glass color
+     */
+    public int getGlassColor(int index, int layer) {
+        return this.glass[this.glassOffset[index] + this.glassCount[index] - 1 - layer];
     }
 
-    public ResourceKey<Biome> getFluidBiomeKey() {
-        return this.fluidBiomeKey;
+    public int index(BlockCoordinate coordinate) {
+        return index(coordinate.getBlockX(), coordinate.getBlockZ());
     }
 
-    public BlockPos getFluidPos() {
-        return this.fluidPos;
+    public int index(int blockX, int blockZ) {
+        final int x = blockX - this.minX;
+        final int z = blockZ - this.minZ;
+        if (x < 0 || x >= size() || z < 0 || z >= size()) {
+            return NONE;
+        }
+        return z * size() + x;
+    }
+
+    /**
+     * Get the index of a neighboring column.
+     *
+     * @param index column index
+     * @param dx    blocks to offset on the x axis
+     * @param dz    blocks to offset on the z axis
+     * @return neighboring column index, or {@link #NONE} if outside the scan window
+     */
+    public int offset(int index, int dx, int dz) {
+        final int x = index % size() + dx;
+        final int z = index / size() + dz;
+        if (x < 0 || x >= size() || z < 0 || z >= size()) {
+            return NONE;
+        }
+        return index + dz * size() + dx;
     }
 
-    public BlockState getFluidState() {
-        return this.fluidState;
+    public int north(int index) {
+        return offset(index, 0, -1);
     }
 
-    public List<Integer> getGlassColors() {
-        return this.glass;
+    public int east(int index) {
+        return offset(index, 1, 0);
     }
 
-    private void scan() {
+    public int south(int index) {
+        return offset(index, 0, 1);
+    }
+
+    public int west(int index) {
+        return offset(index, -1, 0);
+    }
+
+    public void scanChunk(ChunkAccess chunk) {
+        int blockX = Coordinate.chunkToBlock(chunk.getPos().x);
+        int blockZ = Coordinate.chunkToBlock(chunk.getPos().z);
+        int index = index(blockX, blockZ);
+        if (index == NONE) {
+            return;
+        }
+
+        this.chunks[((index / size()) >> 4) * CHUNKS + ((index % size()) >> 4)] = chunk;
+
+        // chunks are scanned on several threads at once, keep scratch state per chunk
+        Scratch scratch = new Scratch(this.sectionCount);
+
+        // check each section palette once so whole sections can be skipped per column
+        LevelChunkSection[] sections = chunk.getSections();
+        for (int i = 0; i < sections.length; i++) {
+            scratch.sectionFlags[i] = getSectionFlags(sections[i]);
+        }
+
+        // iterate each block in this chunk
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                scan(chunk, sections, scratch, blockX + x, blockZ + z, index + z * size() + x);
+            }
+        }
+
+        commitGlass(index, scratch.glass.elements(), scratch.glass.size());
+    }
+
+    /**
+     * Copy the scanned columns of a chunk, so a neighboring region can reuse them.
+     *
+     * @param chunkX chunk x coordinate
+     * @param chunkZ chunk z coordinate
+     * @return copied columns, or null if the chunk is outside the scan window
+     */
+    public EdgeCache.Columns copyChunk(int chunkX, int chunkZ) {
+        int index = index(Coordinate.chunkToBlock(chunkX), Coordinate.chunkToBlock(chunkZ));
+        if (index == NONE) {
+            return null;
+        }
+        EdgeCache.Columns columns = new EdgeCache.Columns();
+        int[] pool;
+        synchronized (this) {
+            pool = this.glass;
+        }
+        int glassTotal = 0;
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                int i = index + z * size() + x;
+                int j = z * 16 + x;
+                columns.blockState[j] = this.blockState[i];
+                columns.blockY[j] = this.blockY[i];
+                columns.blockBiome[j] = this.blockBiome[i];
+                columns.fluidState[j] = this.fluidState[i];
+                columns.fluidY[j] = this.fluidY[i];
+                columns.fluidBiome[j] = this.fluidBiome[i];
+                columns.glassCount[j] = this.glassCount[i];
+                glassTotal += this.glassCount[i];
+            }
+        }
+        columns.glass = new int[glassTotal];
+        int glass = 0;
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                int i = index + z * size() + x;
+                System.arraycopy(pool, this.glassOffset[i], columns.glass, glass, this.glassCount[i]);
+                glass += this.glassCount[i];
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Fill a chunk's columns from data another region already scanned.
+     *
+     * @param chunkX  chunk x coordinate
+     * @param chunkZ  chunk z coordinate
+     * @param columns columns to copy in
+     */
+    public void pasteChunk(int chunkX, int chunkZ, EdgeCache.Columns columns) {
+        int index = index(Coordinate.chunkToBlock(chunkX), Coordinate.chunkToBlock(chunkZ));
+        if (index == NONE) {
+            return;
+        }
+        int glass = 0;
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                int i = index + z * size() + x;
+                int j = z * 16 + x;
+                this.blockState[i] = columns.blockState[j];
+                this.blockY[i] = columns.blockY[j];
+                this.blockBiome[i] = columns.blockBiome[j];
+                this.fluidState[i] = columns.fluidState[j];
+                this.fluidY[i] = columns.fluidY[j];
+                this.fluidBiome[i] = columns.fluidBiome[j];
+                this.glassOffset[i] = glass;
+                this.glassCount[i] = columns.glassCount[j];
+                glass += columns.glassCount[j];
+            }
+        }
+        commitGlass(index, columns.glass, columns.glass.length);
+    }
+
+    private int getSectionFlags(LevelChunkSection section) {
+        if (section == null || section.hasOnlyAir()) {
+            return SECTION_AIR;
+        }
+        PalettedContainer<BlockState> states = section.getStates();
+        int flags = 0;
+        if (states.maybeHas(BlockBehaviour.BlockStateBase::isAir)) {
+            flags |= SECTION_AIR;
+        }
+        if (states.maybeHas(state -> BlockStateTable.is(Block.getId(state), this.surfaceFlags))) {
+            flags |= SECTION_SURFACE;
+        }
+        return flags;
+    }
+
+    private void scan(ChunkAccess chunk, LevelChunkSection[] sections, Scratch scratch, int blockX, int blockZ, int index) {
+        int y = chunk.getHeight(Heightmap.Types.WORLD_SURFACE, blockX, blockZ);
+        int minSection = chunk.getMinSection();
+        int localX = blockX & 15;
+        int localZ = blockZ & 15;
+
         // if world has ceiling iterate down until we find air
-        if (getWorld().getLevel().dimensionType().hasCeiling()) {
-            do {
-                this.blockPos.move(Direction.DOWN);
-                this.blockState = this.chunk.getBlockState(this.blockPos);
-            } while (this.blockPos.getY() > getWorld().getLevel().getMinBuildHeight() && !this.blockState.isAir());
+        if (this.hasCeiling) {
+            while (y > this.minY) {
+                int section = (y >> 4) - minSection;
+                if ((scratch.sectionFlags[section] & SECTION_AIR) == 0) {
+                    // no air anywhere in this section
+                    y = Math.max(this.minY, (y & ~15) - 1);
+                    continue;
+                }
+                if (sections[section] == null || sections[section].getBlockState(localX, y & 15, localZ).isAir()) {
+                    break;
+                }
+                y--;
+            }
+            y--;
         }
 
+        this.fluidState[index] = NONE;
+        this.glassOffset[index] = scratch.glass.size();
+        this.glassCount[index] = 0;
+
         // iterate down until we find a renderable block
-        do {
-            this.blockPos.move(Direction.DOWN);
-            this.blockState = this.chunk.getBlockState(this.blockPos);
-            if (!this.blockState.getFluidState().isEmpty()) {
-                if (this.fluidPos == null) {
+        int id = NONE;
+        for (; y >= this.minY; y--) {
+            int section = (y >> 4) - minSection;
+            if ((scratch.sectionFlags[section] & SECTION_SURFACE) == 0) {
+                // nothing in this section can stop the search
+                y = y & ~15;
+                continue;
+            }
+            id = Block.getId(sections[section].getBlockState(localX, y & 15, localZ));
+            int flags = BlockStateTable.getFlags(id);
+            if ((flags & BlockStateTable.FLUID) != 0) {
+                if (this.fluidState[index] == NONE) {
                     // get fluid information for the top fluid block
-                    this.fluidPos = this.blockPos.mutable();
-                    this.fluidState = this.blockState;
-                    Holder<Biome> biome = this.scanTask.getChunkHelper().getBiome(getWorld(), this.chunk, this.blockPos);
-                    this.fluidBiome = biome.value();
-                    this.fluidBiomeKey = biome.unwrapKey().orElse(null);
+                    this.fluidState[index] = id;
+                    this.fluidY[index] = (short) y;
+                    scratch.pos.set(blockX, y, blockZ);
+                    this.fluidBiome[index] = (short) getBiomeId(chunk, scratch.pos);
                 }
                 continue;
             }
-            // just get a quick color for now
-            int blockColor = Colors.getRawBlockColor(this.blockState);
 
-            if (getWorld().getConfig().RENDER_TRANSLUCENT_GLASS && isGlass(this.blockState)) {
+            if (this.translucentGlass && (flags & BlockStateTable.GLASS) != 0) {
                 // translucent glass. store this color and keep iterating
-                this.glass.addFirst(Colors.setAlpha(0x99, blockColor));
+                scratch.glass.add(Colors.setAlpha(0x99, BlockStateTable.getColor(id)));
+                this.glassCount[index]++;
                 continue;
             }
 
-            // test if block is renderable. we ignore blocks with black color
-            if (blockColor > 0) {
+            // test if block is renderable
+            if ((flags & BlockStateTable.RENDERABLE) != 0) {
                 break;
             }
-        } while (this.blockPos.getY() > getWorld().getLevel().getMinBuildHeight());
+        }
 
-        // determine the biome of final block
-        Holder<Biome> biome = this.scanTask.getChunkHelper().getBiome(getWorld(), this.chunk, this.blockPos);
-        this.blockBiome = biome.value();
-        this.blockBiomeKey = biome.unwrapKey().orElse(null);
-    }
+        if (y < this.minY) {
+            // nothing renderable, settle on the bottom block
+            y = this.minY;
+            scratch.pos.set(blockX, y, blockZ);
+            id = Block.getId(chunk.getBlockState(scratch.pos));
+        }
 
-    private boolean isGlass(BlockState state) {
-        return state.is(Blocks.GLASS) || state.is(Blocks.GLASS_PANE) ||
-                state.getBlock() instanceof StainedGlassBlock ||
-                state.getBlock() instanceof StainedGlassPaneBlock;
-    }
+        this.blockState[index] = id;
+        this.blockY[index] = (short) y;
 
-    public static ScanData get(ScanData[] scanData, BlockCoordinate coordinate) {
-        final int size = size();
-        final int x = coordinate.getBlockX() & size - 1;
-        final int z = coordinate.getBlockZ() & size - 1;
-        return scanData[z * size + x];
+        // determine the biome of final block
+        scratch.pos.set(blockX, y, blockZ);
+        this.blockBiome[index] = (short) getBiomeId(chunk, scratch.pos);
     }
 
-    public static void put(ScanData[] scanData, BlockCoordinate coordinate, ScanData data) {
-        final int size = size();
-        final int x = coordinate.getBlockX() & size - 1;
-        final int z = coordinate.getBlockZ() & size - 1;
-        scanData[z * size + x] = data;
+    private int getBiomeId(ChunkAccess chunk, BlockPos pos) {
+        return this.biomeRegistry.getId(this.scanTask.getChunkHelper().getBiome(this.world, chunk, pos).value());
     }
 
-    public static int size() {
-        return Image.SIZE + 16 * 2;
-    }
-
-    public static class Data {
-        private final Map<BlockCoordinate, ScanData> scanData = new LinkedHashMap<>(Image.SIZE * Image.SIZE, 1.0F);
-        private final Map<BlockCoordinate, ScanData> edgeData = new LinkedHashMap<>((Image.SIZE + 2) * 4, 1.0F);
-
-        public ScanData get(BlockCoordinate coordinate) {
-            ScanData data = this.scanData.get(coordinate);
-            if (data == null) {
-                data = this.edgeData.get(coordinate);
+    // moves a chunk's glass colors into the shared pool, offsets in the chunk are relative until now
+    private void commitGlass(int index, int[] colors, int length) {
+        if (length == 0) {
+            return;
+        }
+        int base;
+        synchronized (this) {
+            base = this.glassSize;
+            if (base + length > this.glass.length) {
+                this.glass = Arrays.copyOf(this.glass, Math.max(this.glass.length * 2, base + length));
             }
-            return data;
+            System.arraycopy(colors, 0, this.glass, base, length);
+            this.glassSize += length;
         }
-
-        public void put(BlockCoordinate coordinate, ScanData data) {
-            this.scanData.put(coordinate, data);
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                this.glassOffset[index + z * size() + x] += base;
+            }
         }
+    }
 
-        public void edge(BlockCoordinate coordinate, ScanData data) {
-            this.edgeData.put(coordinate, data);
-        }
+    private static class Scratch {
+        private final BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        private final IntArrayList glass = new IntArrayList();
+        private final int[] sectionFlags;
 
-        public Collection<ScanData> values() {
-            return this.scanData.values();
+        private Scratch(int sectionCount) {
+            this.sectionFlags = new int[sectionCount];
         }
     }
+
+    public static int pixelToIndex(int pixelX, int pixelZ) {
+        return (pixelZ + EDGE) * size() + pixelX + EDGE;
+    }
+
+    public static int size() {
+        return Image.SIZE + EDGE * 2;
+    }
 }
@@ -1,15 +1,15 @@
 package net.pl3x.map.render;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import net.minecraft.world.level.chunk.ChunkAccess;
 import net.pl3x.map.Key;
 import net.pl3x.map.Pl3xMap;
-import net.pl3x.map.coordinate.BlockCoordinate;
-import net.pl3x.map.coordinate.Coordinate;
 import net.pl3x.map.coordinate.RegionCoordinate;
 import net.pl3x.map.render.job.Render;
+import net.pl3x.map.render.job.RenderGovernor;
 import net.pl3x.map.world.ChunkHelper;
 import net.pl3x.map.world.World;
 
@@ -19,15 +19,21 @@ public class ScanTask implements Runnable {
     private final Area area;
     private final World world;
     private final ChunkHelper chunkHelper;
+    private final BitSet dirtyChunks;
 
     private final LinkedHashMap<Key, Renderer> renderers = new LinkedHashMap<>();
 
-    private final ScanData.Data scanData = new ScanData.Data();
+    private ScanData scanData;
 
     public ScanTask(Render render, RegionCoordinate region, Area area) {
+        this(render, region, area, null);
+    }
+
+    public ScanTask(Render render, RegionCoordinate region, Area area, BitSet dirtyChunks) {
         this.render = render;
         this.region = region;
         this.area = area;
+        this.dirtyChunks = dirtyChunks;
         this.world = render.getWorld();
         this.chunkHelper = new ChunkHelper(render);
 
@@ -63,6 +69,19 @@ public class ScanTask implements Runnable {
         return this.chunkHelper;
     }
 
+    /**
+     * Check if this task may split its work across the render pool.
+     * <p>
+     * Throttled renders keep each region on a single thread, so fewer
+     * workers really means less CPU taken from the server.
+     *
+     * @return true if subtasks may run in parallel
+     */
+    public boolean isParallel() {
+        RenderGovernor governor = Pl3xMap.api().getRenderScheduler().getGovernor();
+        return governor.getWorkers() >= governor.getMaxWorkers();
+    }
+
     public Renderer getRenderer(Key id) {
         return this.renderers.get(id);
     }
@@ -80,78 +99,140 @@ public class ScanTask implements Runnable {
     }
 
     public void scanRegion() {
-        // allocate images
+        // anything saved to the region files after this is picked up by the next incremental render
+        long timeStarted = System.currentTimeMillis() / 1000;
+
+        // allocate images and scan buffer
         this.renderers.forEach((id, renderer) -> renderer.allocateData());
+        this.scanData = new ScanData(this);
+        this.scanData.setDirtyChunks(this.dirtyChunks);
 
         int x = this.region.getChunkX();
         int z = this.region.getChunkZ();
 
-        // scan data in chunks in region
-        for (int chunkX = x - 1; chunkX < x + 32 + 1; chunkX++) {
-            for (int chunkZ = z - 1; chunkZ < z + 32 + 1; chunkZ++) {
-                // make sure render task is still running
-                if (this.render.isCancelled()) {
-                    return;
-                }
-
-                // pause here if we have to
-                while (this.world.isPaused()) {
-                    this.render.sleep(500);
-                }
-
-                if (chunkX < x || chunkX >= x + 32 || chunkZ < z || chunkZ >= z + 32) {
-                    scanChunk(chunkX, chunkZ, true);
-                } else {
-                    scanChunk(chunkX, chunkZ, false);
-                    this.render.getProgress().getProcessedChunks().getAndIncrement();
-                }
+        // scan data in chunks in region, each chunk column is its own subtask on the render pool
+        RangeTask.run(x - 1, x + 32 + 1, 1, isParallel(), (from, to) -> {
+            for (int chunkX = from; chunkX < to; chunkX++) {
+                scanColumn(chunkX);
             }
+        });
+        if (this.render.isCancelled()) {
+            return;
         }
 
-        // run the renderers on scanned data
-        this.renderers.forEach((id, renderer) -> renderer.scanData(this.region, this.scanData));
+        // run the renderers on scanned data, every renderer writes to its own images
+        List<Renderer> renderers = new ArrayList<>(this.renderers.values());
+        RangeTask.run(0, renderers.size(), 1, isParallel(), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                renderers.get(i).scanData(this.region, this.scanData);
+            }
+        });
+
+        // release the scan buffer, renderers are done with it
+        this.scanData = null;
 
         // save images to disk
         if (!this.render.isCancelled()) {
-            // submit to IO executor, so we can move on to next region without waiting
-            this.render.getImageExecutor().submit(() -> {
-                // surround in try/catch because executor eats exceptions
-                try {
-                    this.renderers.forEach((id, renderer) -> renderer.saveData());
-                } catch (Throwable t) {
-                    t.printStackTrace();
+            // hand off to the IO pool. while the save queue is full this waits here, with the
+            // finished images and still holding the render slot, so no region starts in its place
+            Pl3xMap.api().getRenderScheduler().submitSave(this.render, () -> {
+                this.renderers.forEach((id, renderer) -> renderer.saveData());
+                if (this.dirtyChunks == null && this.area.containsWholeRegion(this.region.getRegionX(), this.region.getRegionZ())) {
+                    this.world.setRenderedRegion(this.region, timeStarted);
                 }
             });
         }
     }
 
-    public void scanChunk(int chunkX, int chunkZ, boolean edge) {
+    private void scanColumn(int chunkX) {
+        int x = this.region.getChunkX();
+        int z = this.region.getChunkZ();
+
+        // decode the next column in the background while this one is scanned
+        if (chunkX < x + 32) {
+            prefetchColumn(chunkX + 1);
+        }
+        for (int chunkZ = z - 1; chunkZ < z + 32 + 1; chunkZ++) {
+            // make sure render task is still running
+            if (this.render.isCancelled()) {
+                return;
+            }
+
+            // pause here if we have to
+            while (this.world.isPaused()) {
+                this.render.sleep(500);
+            }
+
+            // hold off while the server is struggling to keep up
+            while (Pl3xMap.api().getRenderScheduler().getGovernor().isPaused() && !this.render.isCancelled()) {
+                this.render.sleep(100);
+            }
+
+            if (isNearDirty(chunkX - x, chunkZ - z)) {
+                scanChunk(chunkX, chunkZ);
+            }
+            if (chunkX >= x && chunkX < x + 32 && chunkZ >= z && chunkZ < z + 32) {
+                this.render.getProgress().getProcessedChunks().getAndIncrement();
+            }
+        }
+    }
+
+    private void prefetchColumn(int chunkX) {
+        int x = this.region.getChunkX();
+        int z = this.region.getChunkZ();
+        for (int chunkZ = z - 1; chunkZ < z + 32 + 1; chunkZ++) {
+            if (isNearDirty(chunkX - x, chunkZ - z) && this.area.containsChunk(chunkX, chunkZ) &&
+                    !this.render.getEdgeCache().has(chunkX, chunkZ)) {
+                this.chunkHelper.prefetchChunk(this.world.getLevel(), chunkX, chunkZ);
+            }
+        }
+    }
+
+    // dirty chunks and the one chunk ring around them, relative to the region
+    private boolean isNearDirty(int chunkX, int chunkZ) {
+        if (this.dirtyChunks == null) {
+            return true;
+        }
+        for (int dz = Math.max(0, chunkZ - 1); dz <= Math.min(31, chunkZ + 1); dz++) {
+            for (int dx = Math.max(0, chunkX - 1); dx <= Math.min(31, chunkX + 1); dx++) {
+                if (this.dirtyChunks.get(dz * 32 + dx)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public void scanChunk(int chunkX, int chunkZ) {
         // make sure chunk is within scannable area
         if (!this.area.containsChunk(chunkX, chunkZ)) {
             return;
         }
 
+        int x = chunkX - this.region.getChunkX();
+        int z = chunkZ - this.region.getChunkZ();
+        boolean ring = x < 0 || x > 31 || z < 0 || z > 31;
+
+        // edge ring chunks may already be scanned by the neighboring region
+        if (ring) {
+            EdgeCache.Columns columns = this.render.getEdgeCache().take(chunkX, chunkZ);
+            if (columns != null) {
+                this.scanData.pasteChunk(chunkX, chunkZ, columns);
+                return;
+            }
+        }
+
         // scan the chunk
         ChunkAccess chunk = this.chunkHelper.getChunk(this.world.getLevel(), chunkX, chunkZ);
         if (chunk == null) {
             return;
         }
 
-        // world coordinates for most northwest block in chunk
-        int blockX = Coordinate.chunkToBlock(chunkX);
-        int blockZ = Coordinate.chunkToBlock(chunkZ);
-
-        // iterate each block in this chunk
-        for (int z = 0; z < 16; z++) {
-            for (int x = 0; x < 16; x++) {
-                BlockCoordinate coordinate = new BlockCoordinate(blockX + x, blockZ + z);
-                ScanData data = new ScanData(this, chunk, coordinate);
-                if (edge) {
-                    this.scanData.edge(coordinate, data);
-                } else {
-                    this.scanData.put(coordinate, data);
-                }
-            }
+        this.scanData.scanChunk(chunk);
+
+        // our border chunks are the edge ring of the neighboring regions
+        if (!ring && (x == 0 || x == 31 || z == 0 || z == 31)) {
+            this.render.getEdgeCache().put(chunkX, chunkZ, this.scanData.copyChunk(chunkX, chunkZ));
         }
     }
 }
@@ -28,18 +28,22 @@ public final class BasicRenderer extends Renderer {
     }
 
     @Override
-    public void scanData(RegionCoordinate region, ScanData.Data scanData) {
-        for (ScanData data : scanData.values()) {
-            int pixelColor = basicPixelColor(data, scanData);
-
-            int pixelX = data.getCoordinate().getBlockX() & Image.SIZE - 1;
-            int pixelZ = data.getCoordinate().getBlockZ() & Image.SIZE - 1;
-
-            getImageHolder().getImage().setPixel(pixelX, pixelZ, pixelColor);
-
-            // get light level right above this block
-            int lightPixel = calculateLight(data.getChunk(), data.getBlockPos(), data.getFluidState(), data.getFluidPos(), pixelColor);
-            this.lightImageHolder.getImage().setPixel(pixelX, pixelZ, lightPixel);
-        }
+    public void scanData(RegionCoordinate region, ScanData scanData) {
+        forEachRow(pixelZ -> {
+            for (int pixelX = 0; pixelX < Image.SIZE; pixelX++) {
+                int index = ScanData.pixelToIndex(pixelX, pixelZ);
+                if (!scanData.shouldRender(index)) {
+                    continue;
+                }
+
+                int pixelColor = basicPixelColor(scanData, index);
+
+                getImageHolder().getImage().setPixel(pixelX, pixelZ, pixelColor);
+
+                // get light level right above this block
+                int lightPixel = calculateLight(scanData, index, pixelColor);
+                this.lightImageHolder.getImage().setPixel(pixelX, pixelZ, lightPixel);
+            }
+        });
     }
 }
@@ -9,6 +9,7 @@ import net.pl3x.map.render.Renderer;
 import net.pl3x.map.render.RendererHolder;
 import net.pl3x.map.render.ScanData;
 import net.pl3x.map.render.ScanTask;
+import net.pl3x.map.util.BlockStateTable;
 import net.pl3x.map.util.Colors;
 
 public final class BiomeRenderer extends Renderer {
@@ -17,27 +18,31 @@ public final class BiomeRenderer extends Renderer {
     }
 
     @Override
-    public void scanData(RegionCoordinate region, ScanData.Data scanData) {
-        for (ScanData data : scanData.values()) {
-            int pixelColor = 0;
+    public void scanData(RegionCoordinate region, ScanData scanData) {
+        forEachRow(pixelZ -> {
+            for (int pixelX = 0; pixelX < Image.SIZE; pixelX++) {
+                int index = ScanData.pixelToIndex(pixelX, pixelZ);
+                if (!scanData.shouldRender(index)) {
+                    continue;
+                }
 
-            if (Colors.getRawBlockColor(data.getBlockState()) > 0) {
-                boolean fluid = data.getFluidPos() != null;
+                int pixelColor = 0;
 
-                // determine the biome
-                ResourceKey<Biome> biomeKey = fluid ? data.getFluidBiomeKey() : data.getBlockBiomeKey();
-                pixelColor = biomeKey == null ? 0 : Colors.setAlpha(0xFF, AdvancedConfig.BIOME_COLORS.getOrDefault(biomeKey, 0));
+                if (BlockStateTable.is(scanData.getBlockStateId(index), BlockStateTable.RENDERABLE)) {
+                    boolean fluid = scanData.hasFluid(index);
 
-                // work out the heightmap
-                if (!fluid) {
-                    pixelColor = Colors.blend(getHeightmap().getColor(data.getCoordinate(), data, scanData), pixelColor);
-                }
-            }
+                    // determine the biome
+                    ResourceKey<Biome> biomeKey = fluid ? scanData.getFluidBiomeKey(index) : scanData.getBlockBiomeKey(index);
+                    pixelColor = biomeKey == null ? 0 : Colors.setAlpha(0xFF, AdvancedConfig.BIOME_COLORS.getOrDefault(biomeKey, 0));
 
-            int pixelX = data.getCoordinate().getBlockX() & Image.SIZE - 1;
-            int pixelZ = data.getCoordinate().getBlockZ() & Image.SIZE - 1;
+                    // work out the heightmap
+                    if (!fluid) {
+                        pixelColor = Colors.blend(getHeightmap().getColor(scanData, index), pixelColor);
+                    }
+                }
 
-            getImageHolder().getImage().setPixel(pixelX, pixelZ, pixelColor);
-        }
+                getImageHolder().getImage().setPixel(pixelX, pixelZ, pixelColor);
+            }
+        });
     }
 }
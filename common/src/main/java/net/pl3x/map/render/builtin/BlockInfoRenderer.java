@@ -2,18 +2,14 @@ package net.pl3x.map.render.builtin;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.biome.Biome;
 import net.minecraft.world.level.block.Block;
 import net.pl3x.map.Pl3xMap;
 import net.pl3x.map.coordinate.RegionCoordinate;
 import net.pl3x.map.image.Image;
+import net.pl3x.map.image.TileKey;
+import net.pl3x.map.image.store.TileStore;
 import net.pl3x.map.palette.Palette;
 import net.pl3x.map.render.Renderer;
 import net.pl3x.map.render.RendererHolder;
@@ -25,7 +21,7 @@ import net.pl3x.map.util.Mathf;
 import net.pl3x.map.world.World;
 
 public class BlockInfoRenderer extends Renderer {
-    private static final Map<Path, ReadWriteLock> FILE_LOCKS = new ConcurrentHashMap<>();
+    public static final String EXTENSION = "pl3xmap.gz";
 
     private ByteBuffer byteBuffer;
 
@@ -36,15 +32,11 @@ public class BlockInfoRenderer extends Renderer {
     @Override
     public void allocateData() {
         this.byteBuffer = ByteBuffer.allocate(Image.SIZE * Image.SIZE * 4 + 12);
-        Path path = getScanTask().getWorld().getTilesDir()
-                .resolve(String.format(Image.DIR_PATH, 0, getKey()))
-                .resolve(String.format(Image.FILE_PATH,
-                        getRegion().getRegionX(),
-                        getRegion().getRegionZ(),
-                        "pl3xmap.gz"));
+        TileKey key = new TileKey(getKey(), 0, getRegion().getRegionX(), getRegion().getRegionZ());
         try {
-            if (Files.exists(path) && Files.size(path) > 0) {
-                FileUtil.readGzip(path, this.byteBuffer);
+            byte[] bytes = getScanTask().getWorld().getTileStore().read(key, EXTENSION);
+            if (bytes != null) {
+                FileUtil.gunzip(bytes, this.byteBuffer);
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -54,76 +46,62 @@ public class BlockInfoRenderer extends Renderer {
     @Override
     public void saveData() {
         World world = getScanTask().getWorld();
-        Path tilesDir = world.getTilesDir();
+        TileStore store = world.getTileStore();
         for (int zoom = 0; zoom <= world.getConfig().ZOOM_MAX_OUT; zoom++) {
-            Path dirPath = tilesDir.resolve(String.format(Image.DIR_PATH, zoom, getKey()));
-
-            // create directories if they don't exist
-            FileUtil.createDirs(dirPath);
-
             // calculate correct sizes for this zoom level
             int step = Mathf.pow2(zoom);
             int size = Image.SIZE / step;
 
-            Path filePath = dirPath.resolve(String.format(Image.FILE_PATH,
+            TileKey key = new TileKey(getKey(), zoom,
                     (int) Math.floor((double) getRegion().getRegionX() / step),
-                    (int) Math.floor((double) getRegion().getRegionZ() / step),
-                    "pl3xmap.gz"));
+                    (int) Math.floor((double) getRegion().getRegionZ() / step));
 
-            ReadWriteLock lock = FILE_LOCKS.computeIfAbsent(filePath, k -> new ReentrantReadWriteLock(true));
+            ReadWriteLock lock = Image.getLock(key);
             lock.writeLock().lock();
+            try {
+                if (zoom == 0) {
+                    // short circuit bottom zoom
+                    store.write(key, EXTENSION, FileUtil.gzip(this.byteBuffer.array()));
+                    world.getBlockInfoCache().invalidate(key.getX(), key.getZ());
+                    continue;
+                }
 
-            Throwable error = null;
-
-            if (zoom == 0) {
-                // short circuit bottom zoom
-                try {
-                    FileUtil.saveGzip(this.byteBuffer.array(), filePath);
-                } catch (IOException e) {
-                    error = e;
+                // read existing data from disk
+                ByteBuffer buffer = ByteBuffer.allocate(this.byteBuffer.capacity());
+                byte[] bytes = store.read(key, EXTENSION);
+                if (bytes != null) {
+                    FileUtil.gunzip(bytes, buffer);
                 }
-            } else {
-                try {
-                    // read existing data from disk
-                    ByteBuffer buffer = ByteBuffer.allocate(this.byteBuffer.capacity());
-                    if (Files.exists(filePath) && Files.size(filePath) > 0) {
-                        FileUtil.readGzip(filePath, buffer);
-                    }
 
-                    // copy header
-                    for (int i = 0; i < 12; i++) {
-                        buffer.put(i, this.byteBuffer.get(i));
-                    }
+                // copy header
+                for (int i = 0; i < 12; i++) {
+                    buffer.put(i, this.byteBuffer.get(i));
+                }
 
-                    // write new data
-                    int baseX = (getRegion().getRegionX() * size) & (Image.SIZE - 1);
-                    int baseZ = (getRegion().getRegionZ() * size) & (Image.SIZE - 1);
-                    for (int x = 0; x < Image.SIZE; x += step) {
-                        for (int z = 0; z < Image.SIZE; z += step) {
-                            int index = z * Image.SIZE + x;
-                            int packed = ByteUtil.getInt(this.byteBuffer, 12 + index * 4);
-                            int newIndex = (baseZ + (z / step)) * Image.SIZE + (baseX + (x / step));
-                            buffer.put(12 + newIndex * 4, ByteUtil.toBytes(packed));
-                        }
+                // write new data
+                int baseX = (getRegion().getRegionX() * size) & (Image.SIZE - 1);
+                int baseZ = (getRegion().getRegionZ() * size) & (Image.SIZE - 1);
+                for (int x = 0; x < Image.SIZE; x += step) {
+                    for (int z = 0; z < Image.SIZE; z += step) {
+                        int index = z * Image.SIZE + x;
+                        int packed = ByteUtil.getInt(this.byteBuffer, 12 + index * 4);
+                        int newIndex = (baseZ + (z / step)) * Image.SIZE + (baseX + (x / step));
+                        buffer.put(12 + newIndex * 4, ByteUtil.toBytes(packed));
                     }
-
-                    // finally, save data to disk
-                    FileUtil.saveGzip(buffer.array(), filePath);
-                } catch (IOException e) {
-                    error = e;
                 }
-            }
 
-            if (error != null) {
-                throw new RuntimeException(error);
+                // finally, save data to disk
+                store.write(key, EXTENSION, FileUtil.gzip(buffer.array()));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } finally {
+                lock.writeLock().unlock();
             }
-
-            lock.writeLock().unlock();
         }
     }
 
     @Override
-    public void scanData(RegionCoordinate region, ScanData.Data scanData) {
+    public void scanData(RegionCoordinate region, ScanData scanData) {
         int minY = getWorld().getLevel().getMinBuildHeight();
 
         this.byteBuffer.clear();
@@ -132,27 +110,33 @@ public class BlockInfoRenderer extends Renderer {
         this.byteBuffer.put(4, ByteUtil.toBytes(0x6D617001)); // map1
         this.byteBuffer.put(8, ByteUtil.toBytes(minY));
 
-        for (ScanData data : scanData.values()) {
-            boolean fluid = data.getFluidPos() != null;
+        forEachRow(pixelZ -> {
+            for (int pixelX = 0; pixelX < Image.SIZE; pixelX++) {
+                int index = ScanData.pixelToIndex(pixelX, pixelZ);
+                if (!scanData.shouldRender(index)) {
+                    continue;
+                }
 
-            Block block = (fluid ? data.getFluidState() : data.getBlockState()).getBlock();
-            Biome biome = fluid ? data.getFluidBiome() : data.getBlockBiome();
-            BlockPos pos = fluid ? data.getFluidPos() : data.getBlockPos();
+                boolean fluid = scanData.hasFluid(index);
 
-            Palette blockPalette = Pl3xMap.api().getBlockPaletteRegistry().get(block);
-            Palette biomePalette = getWorld().getBiomePaletteRegistry().get(biome);
+                Block block = (fluid ? scanData.getFluidState(index) : scanData.getBlockState(index)).getBlock();
+                Biome biome = fluid ? scanData.getFluidBiome(index) : scanData.getBlockBiome(index);
+                int y = fluid ? scanData.getFluidY(index) : scanData.getBlockY(index);
 
-            int blockIndex = blockPalette == null ? 0 : blockPalette.getIndex();
-            int biomeIndex = biomePalette == null ? 0 : biomePalette.getIndex();
-            int yPos = pos.getY() - minY; // ensure bottom starts at 0
+                Palette blockPalette = Pl3xMap.api().getBlockPaletteRegistry().get(block);
+                Palette biomePalette = getWorld().getBiomePaletteRegistry().get(biome);
 
-            // 11111111111111111111111111111111 - 32 bits - (4294967295)
-            // 1111111111                       - 10 bits - block (1023)
-            //           1111111111             - 10 bits - biome (1023)
-            //                     111111111111 - 12 bits - yPos  (4095)
-            int packed = ((blockIndex & 1023) << 22) | ((biomeIndex & 1023) << 12) | (yPos & 4095);
-            int index = (pos.getZ() & Image.SIZE - 1) * Image.SIZE + (pos.getX() & Image.SIZE - 1);
-            this.byteBuffer.put(12 + index * 4, ByteUtil.toBytes(packed));
-        }
+                int blockIndex = blockPalette == null ? 0 : blockPalette.getIndex();
+                int biomeIndex = biomePalette == null ? 0 : biomePalette.getIndex();
+                int yPos = y - minY; // ensure bottom starts at 0
+
+                // 11111111111111111111111111111111 - 32 bits - (4294967295)
+                // 1111111111                       - 10 bits - block (1023)
+                //           1111111111             - 10 bits - biome (1023)
+                //                     111111111111 - 12 bits - yPos  (4095)
+                int packed = ((blockIndex & 1023) << 22) | ((biomeIndex & 1023) << 12) | (yPos & 4095);
+                this.byteBuffer.put(12 + (pixelZ * Image.SIZE + pixelX) * 4, ByteUtil.toBytes(packed));
+            }
+        });
     }
 }
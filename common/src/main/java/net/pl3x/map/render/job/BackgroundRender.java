@@ -1,7 +1,8 @@
 package net.pl3x.map.render.job;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import java.util.concurrent.Executors;
+import java.util.BitSet;
+import java.util.Map;
+import net.minecraft.world.level.ChunkPos;
 import net.pl3x.map.Pl3xMap;
 import net.pl3x.map.coordinate.RegionCoordinate;
 import net.pl3x.map.render.Area;
@@ -10,9 +11,12 @@ import net.pl3x.map.world.World;
 
 public class BackgroundRender extends Render {
     public BackgroundRender(World world) {
-        super(world, Pl3xMap.api().getConsole(), 0, 0,
-                Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("Pl3xMap-Background").build()),
-                Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("Pl3xMap-IO").build()));
+        super(world, Pl3xMap.api().getConsole(), 0, 0);
+    }
+
+    @Override
+    public RenderScheduler.Priority getPriority() {
+        return RenderScheduler.Priority.BACKGROUND;
     }
 
     @Override
@@ -37,10 +41,25 @@ public class BackgroundRender extends Render {
         int count = 0;
         int max = getWorld().getConfig().RENDER_BACKGROUND_MAX_REGIONS_PER_INTERVAL;
         while (getWorld().hasModifiedRegions() && count < max) {
-            RegionCoordinate region = getWorld().getNextModifiedRegion();
+            Map.Entry<RegionCoordinate, BitSet> modified = getWorld().getNextModifiedRegion();
+            if (modified == null) {
+                break;
+            }
+            RegionCoordinate region = modified.getKey();
             if (scannableArea.containsRegion(region.getRegionX(), region.getRegionZ())) {
-                ScanTask scanTask = new ScanTask(this, region, scannableArea);
-                getRenderExecutor().submit(scanTask);
+                // only the dirty chunks get patched into the existing tiles. zoomed out
+                // tiles are built from whole zoom 0 tiles, so that stays exact at any zoom.
+                // built from the patched pixels alone it would only hold up to ZOOM_MAX_OUT 4,
+                // while a chunk's 16 pixels still make whole zoomed out pixels
+                BitSet dirtyChunks = modified.getValue().cardinality() == 1024 ? null : modified.getValue();
+                // previously decoded copies of these chunks are out of date now
+                modified.getValue().stream().forEach(i -> {
+                    long key = ChunkPos.asLong(region.getChunkX() + (i & 31), region.getChunkZ() + (i >> 5));
+                    getChunkCache().invalidate(key);
+                    getEdgeCache().invalidate(key);
+                });
+                ScanTask scanTask = new ScanTask(this, region, scannableArea, dirtyChunks);
+                getRenderExecutor().execute(scanTask);
                 count++;
             }
         }
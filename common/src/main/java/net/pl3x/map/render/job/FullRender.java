@@ -1,9 +1,12 @@
 package net.pl3x.map.render.job;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
 import net.pl3x.map.Pl3xMap;
@@ -18,13 +21,40 @@ import net.pl3x.map.render.Area;
 import net.pl3x.map.render.ScanTask;
 import net.pl3x.map.render.job.progress.Progress;
 import net.pl3x.map.util.FileUtil;
+import net.pl3x.map.world.RegionReader;
 import net.pl3x.map.world.World;
 
 public class FullRender extends Render {
+    // indices into a region's timestamp summary
+    private static final int ALL = 0;
+    private static final int WEST = 1;
+    private static final int EAST = 2;
+    private static final int NORTH = 3;
+    private static final int SOUTH = 4;
+    private static final int NORTH_WEST = 5;
+    private static final int NORTH_EAST = 6;
+    private static final int SOUTH_WEST = 7;
+    private static final int SOUTH_EAST = 8;
+
+    private final boolean incremental;
     private long timeStarted;
 
     public FullRender(World world, Sender starter) {
+        this(world, starter, false);
+    }
+
+    public FullRender(World world, Sender starter, boolean incremental) {
         super(world, starter);
+        this.incremental = incremental;
+    }
+
+    public boolean isIncremental() {
+        return this.incremental;
+    }
+
+    @Override
+    public RenderScheduler.Priority getPriority() {
+        return RenderScheduler.Priority.FULL;
     }
 
     @Override
@@ -56,6 +86,7 @@ public class FullRender extends Render {
 
             // scan region folder for existing region files
             List<RegionCoordinate> regionFiles = new ArrayList<>();
+            Map<RegionCoordinate, int[]> timestamps = new HashMap<>();
             List<Path> files = FileUtil.getRegionFiles(getWorld().getLevel());
             for (Path path : files) {
                 if (isCancelled()) {
@@ -90,12 +121,30 @@ public class FullRender extends Render {
                 }
 
                 // add known region
-                regionFiles.add(new RegionCoordinate(x, z));
+                RegionCoordinate region = new RegionCoordinate(x, z);
+                regionFiles.add(region);
+
+                // remember when its chunks were last saved
+                if (this.incremental) {
+                    try {
+                        timestamps.put(region, summarizeTimestamps(RegionReader.readTimestamps(path)));
+                    } catch (IOException e) {
+                        Logger.debug(String.format("Could not read region header %s", path.getFileName()));
+                    }
+                }
 
                 // update max radius for spiral iterator
                 maxRadius = Math.max(Math.max(maxRadius, Math.abs(x)), Math.abs(z));
             }
 
+            // drop regions that have not changed since they were last rendered
+            if (this.incremental) {
+                int total = regionFiles.size();
+                regionFiles.removeIf(region -> !hasChanged(region, timestamps));
+                getStarter().send(Lang.COMMAND_FULLRENDER_INCREMENTAL_SKIPPED,
+                        Placeholder.unparsed("skipped", Integer.toString(total - regionFiles.size())));
+            }
+
             // create spiral iterator to order region scanning
             RegionSpiralIterator spiral = new RegionSpiralIterator(
                     Coordinate.blockToRegion(getCenterX()),
@@ -139,13 +188,18 @@ public class FullRender extends Render {
 
         // add regions to executor tasks that will do the heavy lifting
         List<ScanTask> rendererTasks = new ArrayList<>();
+        List<RegionCoordinate> regionsLeft = new ArrayList<>();
         regionsToScan.forEach((region, done) -> {
             // only create a task for regions not already scanned
             if (!done) {
                 rendererTasks.add(new ScanTask(this, region, scannableArea));
+                regionsLeft.add(region);
             }
         });
 
+        // zoomed out tiles get built once all of their regions are saved
+        getWorld().getTileCompositor().expect(regionsLeft);
+
         // set our total progress values
         getProgress().setTotalRegions(rendererTasks.size());
         getProgress().setTotalChunks(getProgress().getTotalRegions() * 32L * 32L);
@@ -172,7 +226,51 @@ public class FullRender extends Render {
         getStarter().send(Lang.COMMAND_FULLRENDER_USE_STATUS_FOR_PROGRESS);
 
         // send the tasks to executor to run
-        rendererTasks.forEach(getRenderExecutor()::submit);
+        rendererTasks.forEach(getRenderExecutor()::execute);
+    }
+
+    private boolean hasChanged(RegionCoordinate region, Map<RegionCoordinate, int[]> timestamps) {
+        long rendered = getWorld().getRenderedRegion(region);
+        int[] self = timestamps.get(region);
+        // save times and render start times are whole seconds, a save in the same second as the render may not be in it
+        if (rendered == 0 || self == null || self[ALL] >= rendered) {
+            return true;
+        }
+        // edge chunks of neighboring regions bleed into this region's shading and blending
+        int x = region.getRegionX();
+        int z = region.getRegionZ();
+        return isNewer(timestamps.get(new RegionCoordinate(x - 1, z)), EAST, rendered) ||
+                isNewer(timestamps.get(new RegionCoordinate(x + 1, z)), WEST, rendered) ||
+                isNewer(timestamps.get(new RegionCoordinate(x, z - 1)), SOUTH, rendered) ||
+                isNewer(timestamps.get(new RegionCoordinate(x, z + 1)), NORTH, rendered) ||
+                isNewer(timestamps.get(new RegionCoordinate(x - 1, z - 1)), SOUTH_EAST, rendered) ||
+                isNewer(timestamps.get(new RegionCoordinate(x + 1, z - 1)), SOUTH_WEST, rendered) ||
+                isNewer(timestamps.get(new RegionCoordinate(x - 1, z + 1)), NORTH_EAST, rendered) ||
+                isNewer(timestamps.get(new RegionCoordinate(x + 1, z + 1)), NORTH_WEST, rendered);
+    }
+
+    private static boolean isNewer(int[] summary, int edge, long rendered) {
+        return summary != null && summary[edge] >= rendered;
+    }
+
+    // newest chunk save time for the whole region, each edge and each corner
+    private static int[] summarizeTimestamps(int[] timestamps) {
+        int[] summary = new int[9];
+        for (int z = 0; z < 32; z++) {
+            for (int x = 0; x < 32; x++) {
+                int time = timestamps[z * 32 + x];
+                summary[ALL] = Math.max(summary[ALL], time);
+                if (x == 0) summary[WEST] = Math.max(summary[WEST], time);
+                if (x == 31) summary[EAST] = Math.max(summary[EAST], time);
+                if (z == 0) summary[NORTH] = Math.max(summary[NORTH], time);
+                if (z == 31) summary[SOUTH] = Math.max(summary[SOUTH], time);
+            }
+        }
+        summary[NORTH_WEST] = timestamps[0];
+        summary[NORTH_EAST] = timestamps[31];
+        summary[SOUTH_WEST] = timestamps[31 * 32];
+        summary[SOUTH_EAST] = timestamps[31 * 32 + 31];
+        return summary;
     }
 
     @Override
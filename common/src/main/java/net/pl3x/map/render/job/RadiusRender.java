@@ -30,6 +30,11 @@ public class RadiusRender extends Render {
         this.radius = Coordinate.blockToChunk(radius);
     }
 
+    @Override
+    public RenderScheduler.Priority getPriority() {
+        return RenderScheduler.Priority.INTERACTIVE;
+    }
+
     @Override
     public void render() {
         this.timeStarted = System.currentTimeMillis();
@@ -115,6 +120,9 @@ public class RadiusRender extends Render {
         List<ScanTask> rendererTasks = new ArrayList<>();
         regions.forEach(region -> rendererTasks.add(new ScanTask(this, region, scannableArea)));
 
+        // zoomed out tiles get built once all of their regions are saved
+        getWorld().getTileCompositor().expect(regions);
+
         // set progress totals
         getProgress().setTotalRegions(regions.size());
         getProgress().setTotalChunks(totalChunks);
@@ -125,7 +133,7 @@ public class RadiusRender extends Render {
         getStarter().send(Lang.COMMAND_RADIUSRENDER_USE_STATUS_FOR_PROGRESS);
 
         // send the tasks to executor to run
-        rendererTasks.forEach(getRenderExecutor()::submit);
+        rendererTasks.forEach(getRenderExecutor()::execute);
     }
 
     @Override
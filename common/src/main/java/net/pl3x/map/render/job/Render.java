@@ -1,24 +1,23 @@
 package net.pl3x.map.render.job;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import net.pl3x.map.Pl3xMap;
 import net.pl3x.map.command.Sender;
 import net.pl3x.map.markers.Point;
+import net.pl3x.map.render.EdgeCache;
 import net.pl3x.map.render.job.progress.Progress;
 import net.pl3x.map.util.BiomeColors;
+import net.pl3x.map.world.ChunkCache;
 import net.pl3x.map.world.World;
 
 public abstract class Render implements Runnable {
     private final World world;
     private final Sender starter;
 
-    private final ExecutorService renderExecutor;
-    private final ExecutorService imageExecutor;
+    private final RenderScheduler scheduler;
+    private final Executor renderExecutor;
 
     private final Progress progress;
     private ScheduledFuture<?> scheduledProgress;
@@ -27,8 +26,10 @@ public abstract class Render implements Runnable {
     private final int centerZ;
 
     private final BiomeColors biomeColors;
+    private final ChunkCache chunkCache;
+    private final EdgeCache edgeCache = new EdgeCache();
 
-    private boolean cancelled;
+    private volatile boolean cancelled;
 
     public Render(World world, Sender starter) {
         this(world, starter, world.getSpawn());
@@ -39,32 +40,27 @@ public abstract class Render implements Runnable {
     }
 
     public Render(World world, Sender starter, int centerX, int centerZ) {
-        this(world, starter, centerX, centerZ,
-                Executors.newFixedThreadPool(getThreads(world.getConfig().RENDER_THREADS),
-                        new ThreadFactoryBuilder().setNameFormat("Pl3xMap-Render-%d").build()),
-                Executors.newFixedThreadPool(getThreads(world.getConfig().RENDER_THREADS),
-                        new ThreadFactoryBuilder().setNameFormat("Pl3xMap-IO-%d").build())
-        );
-    }
-
-    public Render(World world, Sender starter, int centerX, int centerZ, ExecutorService renderExecutor, ExecutorService imageExecutor) {
         this.world = world;
         this.starter = starter;
         this.progress = new Progress(this);
         this.centerX = centerX;
         this.centerZ = centerZ;
-        this.renderExecutor = renderExecutor;
-        this.imageExecutor = imageExecutor;
+        this.scheduler = Pl3xMap.api().getRenderScheduler();
+        this.renderExecutor = task -> this.scheduler.submit(this, task);
         this.biomeColors = new BiomeColors(world);
+        this.chunkCache = this.scheduler.createChunkCache();
     }
 
-    public ExecutorService getRenderExecutor() {
+    /**
+     * Get the executor that queues this render's tasks on the shared render scheduler.
+     *
+     * @return render executor
+     */
+    public Executor getRenderExecutor() {
         return this.renderExecutor;
     }
 
-    public ExecutorService getImageExecutor() {
-        return this.imageExecutor;
-    }
+    public abstract RenderScheduler.Priority getPriority();
 
     public ScheduledFuture<?> getScheduledProgress() {
         return this.scheduledProgress;
@@ -94,6 +90,14 @@ public abstract class Render implements Runnable {
         return this.biomeColors;
     }
 
+    public ChunkCache getChunkCache() {
+        return this.chunkCache;
+    }
+
+    public EdgeCache getEdgeCache() {
+        return this.edgeCache;
+    }
+
     @Override
     public void run() {
         try {
@@ -108,8 +112,7 @@ public abstract class Render implements Runnable {
             cancel(false);
         }
 
-        ThreadFactory thread = new ThreadFactoryBuilder().setNameFormat("Pl3xMap-Progress").build();
-        this.scheduledProgress = Executors.newScheduledThreadPool(1, thread)
+        this.scheduledProgress = this.scheduler.getProgressExecutor()
                 .scheduleAtFixedRate(getProgress(), 1L, 1L, TimeUnit.SECONDS);
     }
 
@@ -122,6 +125,10 @@ public abstract class Render implements Runnable {
     public abstract void onStart();
 
     public final void finish() {
+        this.scheduler.releaseChunkCache(this.chunkCache);
+        this.edgeCache.clear();
+        // saves still in flight get their zoomed out tiles from the idle flush
+        getWorld().getTileCompositor().clearExpected();
         onFinish();
     }
 
@@ -138,8 +145,11 @@ public abstract class Render implements Runnable {
             this.scheduledProgress.cancel(unloading);
         }
 
-        this.renderExecutor.shutdown();
-        this.imageExecutor.shutdown();
+        // queued saves still finish, the pools are shared with other renders
+        this.scheduler.cancel(this);
+        this.scheduler.releaseChunkCache(this.chunkCache);
+        this.edgeCache.clear();
+        getWorld().getTileCompositor().clearExpected();
 
         getProgress().getBossbar().hideAll();
 
@@ -148,13 +158,6 @@ public abstract class Render implements Runnable {
 
     public abstract void onCancel(boolean unloading);
 
-    public static int getThreads(int threads) {
-        if (threads < 1) {
-            threads = Runtime.getRuntime().availableProcessors() / 2;
-        }
-        return Math.max(1, threads);
-    }
-
     public void sleep(int ms) {
         try {
             Thread.sleep(ms);
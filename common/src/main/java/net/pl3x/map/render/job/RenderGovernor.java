@@ -0,0 +1,74 @@
+package net.pl3x.map.render.job;
+
+import net.pl3x.map.Pl3xMap;
+import net.pl3x.map.configuration.Config;
+
+/**
+ * Scales rendering to the time the server tick leaves over.
+ * <p>
+ * Samples the average tick time once a second. While the tick runs over
+ * budget the number of render workers is halved, and above a full tick
+ * scan tasks are held at their next chunk. With headroom the workers are
+ * added back one at a time, up to the render thread budget.
+ */
+public class RenderGovernor implements Runnable {
+    private static final double FULL_TICK = 50.0D;
+    // ramp back up only once comfortably below the target
+    private static final double HEADROOM = 0.8D;
+
+    private final int maxWorkers;
+    private volatile int workers;
+    private volatile boolean paused;
+    private volatile double mspt;
+
+    public RenderGovernor(int maxWorkers) {
+        this.maxWorkers = maxWorkers;
+        this.workers = maxWorkers;
+    }
+
+    public int getWorkers() {
+        return this.workers;
+    }
+
+    public int getMaxWorkers() {
+        return this.maxWorkers;
+    }
+
+    public boolean isPaused() {
+        return this.paused;
+    }
+
+    public double getMSPT() {
+        return this.mspt;
+    }
+
+    @Override
+    public void run() {
+        // surround in try/catch because executor eats exceptions
+        try {
+            update(Pl3xMap.api().getMSPT());
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+    }
+
+    private void update(double mspt) {
+        this.mspt = mspt;
+
+        if (!Config.RENDER_THROTTLE_ENABLED) {
+            this.workers = this.maxWorkers;
+            this.paused = false;
+            return;
+        }
+
+        double target = Math.min(Config.RENDER_THROTTLE_MAX_MSPT, FULL_TICK);
+        if (mspt > target) {
+            this.workers = Math.max(1, this.workers / 2);
+        } else if (mspt < target * HEADROOM) {
+            this.workers = Math.min(this.maxWorkers, this.workers + 1);
+        }
+
+        // the server is already losing ticks, stop taking cpu from it entirely
+        this.paused = mspt > FULL_TICK;
+    }
+}
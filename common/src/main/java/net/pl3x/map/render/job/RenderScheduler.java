@@ -0,0 +1,389 @@
+package net.pl3x.map.render.job;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.pl3x.map.configuration.Config;
+import net.pl3x.map.world.ChunkCache;
+import net.pl3x.map.world.World;
+
+/**
+ * Plugin wide scheduler for render tasks.
+ * <p>
+ * All worlds share one render pool and one IO pool for the life of the
+ * plugin. Queued tasks are started highest priority first, taking turns
+ * between worlds within a priority, and never more at once than the
+ * {@link RenderGovernor} currently allows.
+ */
+public class RenderScheduler {
+    private final int threads;
+    private final ForkJoinPool renderPool;
+    private final ThreadPoolExecutor imageExecutor;
+    private final ScheduledExecutorService progressExecutor;
+    private final RenderGovernor governor;
+
+    // region images waiting to be encoded and written, each one pins a few MB of pixels
+    private final Semaphore saveSlots;
+    private final int saveQueueSize;
+    private volatile double saveWait;
+
+    // chunk caches of live renders, splitting the plugin wide budget between them
+    private final Set<ChunkCache> chunkCaches = ConcurrentHashMap.newKeySet();
+
+    // queued tasks per priority, per world in round-robin order (guarded by this)
+    private final Map<Priority, LinkedHashMap<World, ArrayDeque<Job>>> queues = new EnumMap<>(Priority.class);
+    private final Map<World, Integer> running = new HashMap<>();
+    private int active;
+    private boolean shutdown;
+
+    public RenderScheduler() {
+        this.threads = getThreads(Config.RENDER_THREADS);
+        // never add spare threads for blocked ones, scan tasks wait on the save queue on purpose
+        this.renderPool = new ForkJoinPool(this.threads, pool -> {
+            // keep the plugin's context class loader, the default factory swaps in the system one
+            ForkJoinWorkerThread thread = new ForkJoinWorkerThread(pool) {
+            };
+            thread.setName("Pl3xMap-Render-" + thread.getPoolIndex());
+            return thread;
+        }, null, false, this.threads, this.threads, 1, pool -> true, 60L, TimeUnit.SECONDS);
+        this.imageExecutor = (ThreadPoolExecutor) Executors.newFixedThreadPool(this.threads,
+                new ThreadFactoryBuilder().setNameFormat("Pl3xMap-IO-%d").build());
+        this.progressExecutor = Executors.newScheduledThreadPool(1,
+                new ThreadFactoryBuilder().setNameFormat("Pl3xMap-Progress").build());
+        for (Priority priority : Priority.values()) {
+            this.queues.put(priority, new LinkedHashMap<>());
+        }
+
+        this.saveQueueSize = Config.RENDER_SAVE_QUEUE_SIZE > 0 ? Config.RENDER_SAVE_QUEUE_SIZE : this.threads * 2;
+        this.saveSlots = new Semaphore(this.saveQueueSize);
+
+        this.governor = new RenderGovernor(this.threads);
+        this.progressExecutor.scheduleAtFixedRate(() -> {
+            this.governor.run();
+            resizeImagePool(this.governor.getWorkers());
+            dispatch();
+        }, 1L, 1L, TimeUnit.SECONDS);
+    }
+
+    public RenderGovernor getGovernor() {
+        return this.governor;
+    }
+
+    /**
+     * Queue a render's images to be saved, waiting for room in the save queue first.
+     * <p>
+     * This is where scanning gets held back when encoding can't keep up,
+     * instead of letting finished region images pile up in memory. The
+     * calling scan task waits here at the end of its region, keeping its
+     * images and its render slot, so the slot starts no new region until
+     * there is room.
+     *
+     * @param render render the images belong to
+     * @param task   task that saves the images
+     * @return false if the render was cancelled while waiting
+     */
+    public boolean submitSave(Render render, Runnable task) {
+        // the render's progress doesn't count this as stalled until the save is done
+        AtomicInteger pendingSaves = render.getProgress().getPendingSaves();
+        pendingSaves.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            while (!this.saveSlots.tryAcquire(100L, TimeUnit.MILLISECONDS)) {
+                if (render.isCancelled()) {
+                    pendingSaves.decrementAndGet();
+                    return false;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pendingSaves.decrementAndGet();
+            return false;
+        }
+        recordSaveWait(System.nanoTime() - start);
+
+        try {
+            this.imageExecutor.execute(() -> {
+                // surround in try/catch because executor eats exceptions
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    t.printStackTrace();
+                } finally {
+                    this.saveSlots.release();
+                    pendingSaves.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.saveSlots.release();
+            pendingSaves.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Run a task on the IO pool, such as reading ahead for a render or building zoomed out tiles.
+     * <p>
+     * Unlike saves these don't take a save slot. Tasks given after shutdown are dropped.
+     *
+     * @param task task to run
+     * @return false if the task was dropped
+     */
+    public boolean submitIO(Runnable task) {
+        try {
+            this.imageExecutor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Create a chunk cache for a render, taking its share of the plugin wide chunk cache budget.
+     * <p>
+     * Release it with {@link #releaseChunkCache(ChunkCache)} when the render is done with it.
+     *
+     * @return new chunk cache
+     */
+    public ChunkCache createChunkCache() {
+        ChunkCache cache = new ChunkCache(this::getChunkCacheBudget, this::submitIO);
+        this.chunkCaches.add(cache);
+        return cache;
+    }
+
+    /**
+     * Shut down a render's chunk cache and hand its share of the budget back to the others.
+     *
+     * @param cache chunk cache to release
+     */
+    public void releaseChunkCache(ChunkCache cache) {
+        cache.shutdown();
+        this.chunkCaches.remove(cache);
+    }
+
+    /**
+     * Get the byte budget each live chunk cache currently gets.
+     *
+     * @return bytes per chunk cache
+     */
+    public long getChunkCacheBudget() {
+        return Config.RENDER_CHUNK_CACHE_SIZE * 1024L * 1024L / Math.max(this.chunkCaches.size(), 1);
+    }
+
+    public int getSaveQueueSize() {
+        return this.saveQueueSize;
+    }
+
+    public int getSaveQueueDepth() {
+        return this.saveQueueSize - this.saveSlots.availablePermits();
+    }
+
+    /**
+     * Get how long scan tasks recently waited for room in the save queue.
+     *
+     * @return moving average of the wait in milliseconds
+     */
+    public double getSaveWait() {
+        return this.saveWait;
+    }
+
+    private synchronized void recordSaveWait(long nanos) {
+        this.saveWait += (nanos / 1_000_000D - this.saveWait) * 0.1D;
+    }
+
+    public ScheduledExecutorService getProgressExecutor() {
+        return this.progressExecutor;
+    }
+
+    /**
+     * Queue a task for a render.
+     *
+     * @param render render the task belongs to
+     * @param task   task to run on the render pool
+     */
+    public void submit(Render render, Runnable task) {
+        synchronized (this) {
+            if (this.shutdown) {
+                return;
+            }
+            this.queues.get(render.getPriority())
+                    .computeIfAbsent(render.getWorld(), k -> new ArrayDeque<>())
+                    .add(new Job(render, task));
+        }
+        dispatch();
+    }
+
+    /**
+     * Drop every queued task of a render.
+     * <p>
+     * Tasks already running notice the render was cancelled on their own.
+     *
+     * @param render render to drop tasks for
+     */
+    public synchronized void cancel(Render render) {
+        LinkedHashMap<World, ArrayDeque<Job>> queue = this.queues.get(render.getPriority());
+        ArrayDeque<Job> jobs = queue.get(render.getWorld());
+        if (jobs != null) {
+            jobs.removeIf(job -> job.render == render);
+            if (jobs.isEmpty()) {
+                queue.remove(render.getWorld());
+            }
+        }
+    }
+
+    public synchronized int getQueued() {
+        int queued = 0;
+        for (LinkedHashMap<World, ArrayDeque<Job>> queue : this.queues.values()) {
+            for (ArrayDeque<Job> jobs : queue.values()) {
+                queued += jobs.size();
+            }
+        }
+        return queued;
+    }
+
+    public synchronized int getActive() {
+        return this.active;
+    }
+
+    public void shutdown() {
+        synchronized (this) {
+            this.shutdown = true;
+            this.queues.values().forEach(Map::clear);
+        }
+        this.renderPool.shutdown();
+        // let queued image saves finish
+        this.imageExecutor.shutdown();
+        this.progressExecutor.shutdownNow();
+    }
+
+    /**
+     * Wait for the IO pool to finish its queued saves and world unloads after {@link #shutdown()}.
+     *
+     * @param timeout longest time to wait
+     * @param unit    unit of the timeout
+     * @return false if they did not finish in time
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+        try {
+            return this.imageExecutor.awaitTermination(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void dispatch() {
+        synchronized (this) {
+            while (!this.shutdown && this.active < this.governor.getWorkers()) {
+                Job job = next();
+                if (job == null) {
+                    return;
+                }
+                this.active++;
+                this.running.merge(job.render.getWorld(), 1, Integer::sum);
+                this.renderPool.execute(() -> run(job));
+            }
+        }
+    }
+
+    private void run(Job job) {
+        // surround in try/catch because executor eats exceptions
+        try {
+            if (!job.render.isCancelled()) {
+                job.task.run();
+            }
+        } catch (Throwable t) {
+            t.printStackTrace();
+        } finally {
+            synchronized (this) {
+                this.active--;
+                this.running.computeIfPresent(job.render.getWorld(), (world, count) -> count > 1 ? count - 1 : null);
+            }
+            dispatch();
+        }
+    }
+
+    private void resizeImagePool(int size) {
+        // idle threads above the new size wind down on their own
+        if (size > this.imageExecutor.getMaximumPoolSize()) {
+            this.imageExecutor.setMaximumPoolSize(size);
+            this.imageExecutor.setCorePoolSize(size);
+        } else if (size < this.imageExecutor.getCorePoolSize()) {
+            this.imageExecutor.setCorePoolSize(size);
+            this.imageExecutor.setMaximumPoolSize(size);
+        }
+    }
+
+    // caller holds the lock
+    private Job next() {
+        for (Priority priority : Priority.values()) {
+            LinkedHashMap<World, ArrayDeque<Job>> queue = this.queues.get(priority);
+            World world = null;
+            for (World candidate : queue.keySet()) {
+                int limit = candidate.getConfig().RENDER_THREADS;
+                if (limit < 1 || this.running.getOrDefault(candidate, 0) < limit) {
+                    world = candidate;
+                    break;
+                }
+                // world is at its own limit, give others a turn
+            }
+            if (world == null) {
+                continue;
+            }
+            ArrayDeque<Job> jobs = queue.remove(world);
+            Job job = jobs.poll();
+            if (!jobs.isEmpty()) {
+                // back of the line for this world
+                queue.put(world, jobs);
+            }
+            return job;
+        }
+        return null;
+    }
+
+    public static int getThreads(int threads) {
+        if (threads < 1) {
+            threads = Runtime.getRuntime().availableProcessors() / 2;
+        }
+        return Math.max(1, threads);
+    }
+
+    public enum Priority {
+        /**
+         * Renders someone asked for and is waiting on, such as radius renders.
+         */
+        INTERACTIVE,
+        /**
+         * Full world renders.
+         */
+        FULL,
+        /**
+         * Background updates of modified chunks.
+         */
+        BACKGROUND
+    }
+
+    private static class Job {
+        private final Render render;
+        private final Runnable task;
+
+        private Job(Render render, Runnable task) {
+            this.render = render;
+            this.task = task;
+        }
+    }
+}
@@ -3,9 +3,11 @@ package net.pl3x.map.render.job.progress;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
+import net.pl3x.map.Pl3xMap;
 import net.pl3x.map.command.Sender;
 import net.pl3x.map.configuration.Lang;
 import net.pl3x.map.render.job.Render;
@@ -16,6 +18,8 @@ public class Progress implements Runnable {
 
     private final AtomicLong processedChunks = new AtomicLong(0);
     private final AtomicLong processedRegions = new AtomicLong(0);
+    // region saves waiting for room in the save queue or still being written
+    private final AtomicInteger pendingSaves = new AtomicInteger(0);
 
     private long prevProcessedChunks = 0;
     private long totalChunks;
@@ -94,6 +98,10 @@ public class Progress implements Runnable {
         getProcessedRegions().set(processedRegions);
     }
 
+    public AtomicInteger getPendingSaves() {
+        return this.pendingSaves;
+    }
+
     public void finish() {
         getRender().getScheduledProgress().cancel(false);
         if (this.render.getWorld().hasActiveRender()) {
@@ -114,7 +122,8 @@ public class Progress implements Runnable {
     }
 
     private void runProgress() {
-        if (this.render.getWorld().isPaused()) {
+        if (this.render.getWorld().isPaused() || Pl3xMap.api().getRenderScheduler().getGovernor().isPaused()) {
+            // don't count paused time as stalled
             return;
         }
 
@@ -129,7 +138,10 @@ public class Progress implements Runnable {
             this.stallCounter = 0;
         } else {
             this.eta = Lang.PROGRESS_ETA_UNKNOWN;
-            this.stallCounter++;
+            if (this.pendingSaves.get() == 0) {
+                // held back by the save queue isn't stalled, scanning picks up once the saves are done
+                this.stallCounter++;
+            }
         }
 
         // check for stalled tasks
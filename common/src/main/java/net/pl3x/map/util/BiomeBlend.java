@@ -0,0 +1,97 @@
+package net.pl3x.map.util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import net.pl3x.map.render.ScanData;
+
+/**
+ * Box blends biome colors over a region using summed-area tables.
+ * <p>
+ * Each color type gets its own table of red, green and blue sums, built
+ * once per region on first use. Every box average after that costs four
+ * table reads regardless of the blend radius.
+ */
+public class BiomeBlend {
+    private static final int MISSING = 0xFF0000;
+
+    private final ScanData scanData;
+    private final int width;
+    private final AtomicReferenceArray<int[]> tables = new AtomicReferenceArray<>(Type.values().length);
+
+    public BiomeBlend(ScanData scanData) {
+        this.scanData = scanData;
+        this.width = ScanData.size() + 1;
+    }
+
+    public int average(Type type, int index, int radius, ColorSampler sampler) {
+        int[] table = this.tables.get(type.ordinal());
+        if (table == null) {
+            table = getTable(type, sampler);
+        }
+
+        int x = index % ScanData.size();
+        int z = index / ScanData.size();
+
+        // clamp the box to the scanned window
+        int x0 = Math.max(0, x - radius);
+        int z0 = Math.max(0, z - radius);
+        int x1 = Math.min(ScanData.size(), x + radius);
+        int z1 = Math.min(ScanData.size(), z + radius);
+
+        int i00 = (z0 * this.width + x0) * 3;
+        int i01 = (z0 * this.width + x1) * 3;
+        int i10 = (z1 * this.width + x0) * 3;
+        int i11 = (z1 * this.width + x1) * 3;
+
+        // samples outside the window count as missing data
+        int count = 4 * radius * radius;
+        int outside = count - (x1 - x0) * (z1 - z0);
+
+        int r = table[i11] - table[i01] - table[i10] + table[i00] + outside * Colors.red(MISSING);
+        int g = table[i11 + 1] - table[i01 + 1] - table[i10 + 1] + table[i00 + 1] + outside * Colors.green(MISSING);
+        int b = table[i11 + 2] - table[i01 + 2] - table[i10 + 2] + table[i00 + 2] + outside * Colors.blue(MISSING);
+
+        return Colors.rgb(r / count, g / count, b / count);
+    }
+
+    // renderers blend from several threads, only one of them builds each table
+    private synchronized int[] getTable(Type type, ColorSampler sampler) {
+        int[] table = this.tables.get(type.ordinal());
+        if (table == null) {
+            table = build(sampler);
+            this.tables.set(type.ordinal(), table);
+        }
+        return table;
+    }
+
+    private int[] build(ColorSampler sampler) {
+        int size = ScanData.size();
+        int[] table = new int[this.width * this.width * 3];
+        for (int z = 0; z < size; z++) {
+            int r = 0, g = 0, b = 0;
+            for (int x = 0; x < size; x++) {
+                int index = z * size + x;
+                int rgb = this.scanData.has(index) ? sampler.sample(this.scanData, index) : MISSING;
+                r += Colors.red(rgb);
+                g += Colors.green(rgb);
+                b += Colors.blue(rgb);
+                int above = (z * this.width + x + 1) * 3;
+                int here = above + this.width * 3;
+                table[here] = table[above] + r;
+                table[here + 1] = table[above + 1] + g;
+                table[here + 2] = table[above + 2] + b;
+            }
+        }
+        return table;
+    }
+
+    public enum Type {
+        GRASS,
+        FOLIAGE,
+        WATER
+    }
+
+    @FunctionalInterface
+    public interface ColorSampler {
+        int sample(ScanData scanData, int index);
+    }
+}
@@ -1,56 +1,18 @@
 package net.pl3x.map.util;
 
-import com.google.common.collect.ImmutableSet;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.function.Function;
 import javax.imageio.ImageIO;
+import net.minecraft.core.Registry;
+import net.minecraft.resources.ResourceKey;
 import net.minecraft.world.level.biome.Biome;
-import net.minecraft.world.level.block.Block;
-import net.minecraft.world.level.block.Blocks;
-import net.minecraft.world.level.block.state.BlockState;
-import net.minecraft.world.level.material.Material;
 import net.pl3x.map.configuration.AdvancedConfig;
-import net.pl3x.map.coordinate.BlockCoordinate;
 import net.pl3x.map.render.ScanData;
 import net.pl3x.map.world.World;
 
 public class BiomeColors {
-    private static final Set<Block> grassColorBlocks = ImmutableSet.of(
-            Blocks.GRASS_BLOCK,
-            Blocks.GRASS,
-            Blocks.TALL_GRASS,
-            Blocks.FERN,
-            Blocks.LARGE_FERN,
-            Blocks.POTTED_FERN,
-            Blocks.SUGAR_CANE
-    );
-
-    private static final Set<Block> foliageColorBlocks = ImmutableSet.of(
-            Blocks.VINE,
-            Blocks.OAK_LEAVES,
-            Blocks.JUNGLE_LEAVES,
-            Blocks.ACACIA_LEAVES,
-            Blocks.DARK_OAK_LEAVES
-    );
-
-    private static final Set<Block> waterColorBlocks = ImmutableSet.of(
-            Blocks.WATER,
-            Blocks.BUBBLE_COLUMN,
-            Blocks.WATER_CAULDRON
-    );
-
-    private static final Set<Material> waterColorMaterials = ImmutableSet.of(
-            Material.WATER_PLANT,
-            Material.REPLACEABLE_WATER_PLANT
-    );
-
     private static final int[] mapGrass;
     private static final int[] mapFoliage;
 
@@ -69,35 +31,43 @@ public class BiomeColors {
         mapFoliage = getColorsFromImage(imgFoliage);
     }
 
-    private final Map<Biome, Integer> grassColors = new HashMap<>();
-    private final Map<Biome, Integer> foliageColors = new HashMap<>();
-    private final Map<Biome, Integer> waterColors = new HashMap<>();
+    // colors indexed by biome registry id
+    private final int[] grassColors;
+    private final int[] foliageColors;
+    private final int[] waterColors;
 
     private final World world;
 
     public BiomeColors(World world) {
         this.world = world;
-        for (Biome biome : world.getBiomeRegistry()) {
+
+        Registry<Biome> registry = world.getBiomeRegistry();
+        this.grassColors = new int[registry.size()];
+        this.foliageColors = new int[registry.size()];
+        this.waterColors = new int[registry.size()];
+
+        for (Biome biome : registry) {
+            int id = registry.getId(biome);
             float temperature = Mathf.clamp(0.0F, 1.0F, biome.getBaseTemperature());
             float humidity = Mathf.clamp(0.0F, 1.0F, biome.getDownfall());
-            grassColors.put(biome, biome.getSpecialEffects().getGrassColorOverride()
-                    .orElse(getDefaultGrassColor(temperature, humidity)));
-            foliageColors.put(biome, biome.getSpecialEffects().getFoliageColorOverride()
-                    .orElse(getDefaultFoliageColor(temperature, humidity)));
-            waterColors.put(biome, biome.getSpecialEffects().getWaterColor());
+            this.grassColors[id] = biome.getSpecialEffects().getGrassColorOverride()
+                    .orElse(getDefaultGrassColor(temperature, humidity));
+            this.foliageColors[id] = biome.getSpecialEffects().getFoliageColorOverride()
+                    .orElse(getDefaultFoliageColor(temperature, humidity));
+            this.waterColors[id] = biome.getSpecialEffects().getWaterColor();
         }
 
-        AdvancedConfig.COLOR_OVERRIDES_BIOME_GRASS.forEach((resourceKey, rgb) -> {
-            Biome biome = world.getBiomeRegistry().get(resourceKey);
-            grassColors.put(biome, rgb);
-        });
-        AdvancedConfig.COLOR_OVERRIDES_BIOME_FOLIAGE.forEach((resourceKey, rgb) -> {
-            Biome biome = world.getBiomeRegistry().get(resourceKey);
-            foliageColors.put(biome, rgb);
-        });
-        AdvancedConfig.COLOR_OVERRIDES_BIOME_WATER.forEach((resourceKey, rgb) -> {
-            Biome biome = world.getBiomeRegistry().get(resourceKey);
-            waterColors.put(biome, rgb);
+        override(registry, AdvancedConfig.COLOR_OVERRIDES_BIOME_GRASS, this.grassColors);
+        override(registry, AdvancedConfig.COLOR_OVERRIDES_BIOME_FOLIAGE, this.foliageColors);
+        override(registry, AdvancedConfig.COLOR_OVERRIDES_BIOME_WATER, this.waterColors);
+    }
+
+    private static void override(Registry<Biome> registry, Map<ResourceKey<Biome>, Integer> overrides, int[] colors) {
+        overrides.forEach((resourceKey, rgb) -> {
+            Biome biome = registry.get(resourceKey);
+            if (biome != null) {
+                colors[registry.getId(biome)] = rgb;
+            }
         });
     }
 
@@ -115,18 +85,6 @@ public class BiomeColors {
         return map;
     }
 
-    public boolean isGrassBlock(BlockState state) {
-        return grassColorBlocks.contains(state.getBlock());
-    }
-
-    public boolean isFoliageBlock(BlockState state) {
-        return foliageColorBlocks.contains(state.getBlock());
-    }
-
-    public boolean isWaterBlock(BlockState state) {
-        return waterColorBlocks.contains(state.getBlock()) || waterColorMaterials.contains(state.getMaterial());
-    }
-
     private int getDefaultGrassColor(double temperature, double humidity) {
         int j = (int) ((1.0 - (humidity * temperature)) * 255.0);
         int i = (int) ((1.0 - temperature) * 255.0);
@@ -143,44 +101,37 @@ public class BiomeColors {
         return mapFoliage[(j << 8 | i)];
     }
 
-    private int grassColorSampler(ScanData data) {
-        return data.getBlockBiome().getSpecialEffects().getGrassColorModifier().modifyColor(data.getCoordinate().getBlockX(), data.getCoordinate().getBlockZ(), this.grassColors.get(data.getBlockBiome()));
+    private int grassColorSampler(ScanData scanData, int index) {
+        int color = this.grassColors[scanData.getBlockBiomeId(index)];
+        return scanData.getBlockBiome(index).getSpecialEffects().getGrassColorModifier().modifyColor(scanData.getBlockX(index), scanData.getBlockZ(index), color);
     }
 
-    public int getGrassColor(ScanData data, ScanData.Data scanData) {
-        if (this.world.getConfig().RENDER_BIOME_BLEND > 0) {
-            return sampleNeighbors(scanData, data.getCoordinate(), this.world.getConfig().RENDER_BIOME_BLEND, this::grassColorSampler);
-        }
-        return grassColorSampler(data);
+    private int foliageColorSampler(ScanData scanData, int index) {
+        return this.foliageColors[scanData.getBlockBiomeId(index)];
+    }
+
+    private int waterColorSampler(ScanData scanData, int index) {
+        return this.waterColors[scanData.getFluidBiomeId(index)];
     }
 
-    public int getFoliageColor(ScanData data, ScanData.Data scanData) {
+    public int getGrassColor(ScanData scanData, int index) {
         if (this.world.getConfig().RENDER_BIOME_BLEND > 0) {
-            return sampleNeighbors(scanData, data.getCoordinate(), this.world.getConfig().RENDER_BIOME_BLEND, (data1) -> this.foliageColors.get(data1.getBlockBiome()));
+            return scanData.getBiomeBlend().average(BiomeBlend.Type.GRASS, index, this.world.getConfig().RENDER_BIOME_BLEND, this::grassColorSampler);
         }
-        return this.foliageColors.get(data.getBlockBiome());
+        return grassColorSampler(scanData, index);
     }
 
-    public int getWaterColor(ScanData data, ScanData.Data scanData) {
+    public int getFoliageColor(ScanData scanData, int index) {
         if (this.world.getConfig().RENDER_BIOME_BLEND > 0) {
-            return this.sampleNeighbors(scanData, data.getCoordinate(), this.world.getConfig().RENDER_BIOME_BLEND, (data1) -> this.waterColors.get(data1.getFluidBiome() == null ? data1.getBlockBiome() : data1.getFluidBiome()));
+            return scanData.getBiomeBlend().average(BiomeBlend.Type.FOLIAGE, index, this.world.getConfig().RENDER_BIOME_BLEND, this::foliageColorSampler);
         }
-        return this.waterColors.get(data.getFluidBiome());
+        return foliageColorSampler(scanData, index);
     }
 
-    private int sampleNeighbors(ScanData.Data scanData, BlockCoordinate coordinate, int radius, Function<ScanData, Integer> colorSampler) {
-        List<Integer> colors = new ArrayList<>();
-        for (int x = coordinate.getBlockX() - radius; x < coordinate.getBlockX() + radius; x++) {
-            for (int z = coordinate.getBlockZ() - radius; z < coordinate.getBlockZ() + radius; z++) {
-                ScanData data = scanData.get(new BlockCoordinate(x, z));
-                if (data != null) {
-                    colors.add(colorSampler.apply(data));
-                } else {
-                    // missing data?!
-                    colors.add(0xFF0000);
-                }
-            }
+    public int getWaterColor(ScanData scanData, int index) {
+        if (this.world.getConfig().RENDER_BIOME_BLEND > 0) {
+            return scanData.getBiomeBlend().average(BiomeBlend.Type.WATER, index, this.world.getConfig().RENDER_BIOME_BLEND, this::waterColorSampler);
         }
-        return Colors.stack(colors);
+        return waterColorSampler(scanData, index);
     }
 }
@@ -0,0 +1,140 @@
+package net.pl3x.map.util;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.StainedGlassBlock;
+import net.minecraft.world.level.block.StainedGlassPaneBlock;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.material.Material;
+import net.pl3x.map.configuration.AdvancedConfig;
+
+/**
+ * Raw colors and render flags for every block state, indexed by block state registry id.
+ * <p>
+ * Rebuilt each time the advanced config reloads.
+ */
+public final class BlockStateTable {
+    public static final int RENDERABLE = 1;
+    public static final int GLASS = 1 << 1;
+    public static final int FLUID = 1 << 2;
+    public static final int GRASS = 1 << 3;
+    public static final int FOLIAGE = 1 << 4;
+    public static final int WATER = 1 << 5;
+    public static final int SPECIAL = 1 << 6;
+
+    public static final int TINTED = GRASS | FOLIAGE | WATER;
+
+    private static final Set<Block> grassColorBlocks = ImmutableSet.of(
+            Blocks.GRASS_BLOCK,
+            Blocks.GRASS,
+            Blocks.TALL_GRASS,
+            Blocks.FERN,
+            Blocks.LARGE_FERN,
+            Blocks.POTTED_FERN,
+            Blocks.SUGAR_CANE
+    );
+
+    private static final Set<Block> foliageColorBlocks = ImmutableSet.of(
+            Blocks.VINE,
+            Blocks.OAK_LEAVES,
+            Blocks.JUNGLE_LEAVES,
+            Blocks.ACACIA_LEAVES,
+            Blocks.DARK_OAK_LEAVES
+    );
+
+    private static final Set<Block> waterColorBlocks = ImmutableSet.of(
+            Blocks.WATER,
+            Blocks.BUBBLE_COLUMN,
+            Blocks.WATER_CAULDRON
+    );
+
+    private static final Set<Material> waterColorMaterials = ImmutableSet.of(
+            Material.WATER_PLANT,
+            Material.REPLACEABLE_WATER_PLANT
+    );
+
+    private static final Set<Block> specialColorBlocks = ImmutableSet.of(
+            Blocks.MELON_STEM,
+            Blocks.PUMPKIN_STEM,
+            Blocks.WHEAT,
+            Blocks.REDSTONE_WIRE,
+            Blocks.COCOA,
+            Blocks.FARMLAND
+    );
+
+    // swapped as a whole on reload, render threads see either the old or the new table
+    private static volatile Table table = new Table(new int[0], new int[0]);
+
+    private BlockStateTable() {
+    }
+
+    public static void reload() {
+        int size = Block.BLOCK_STATE_REGISTRY.size();
+        int[] colors = new int[size];
+        int[] flags = new int[size];
+
+        for (BlockState state : Block.BLOCK_STATE_REGISTRY) {
+            int id = Block.getId(state);
+            int color = AdvancedConfig.BLOCK_COLORS.getOrDefault(state.getBlock(), -1);
+            if (color < 0) {
+                //noinspection ConstantConditions
+                color = state.getMapColor(null, null).col;
+            }
+            colors[id] = color;
+            flags[id] = computeFlags(state, color);
+        }
+
+        table = new Table(colors, flags);
+    }
+
+    private static int computeFlags(BlockState state, int color) {
+        Block block = state.getBlock();
+        int flags = 0;
+        // we ignore blocks with black color
+        if (color > 0) {
+            flags |= RENDERABLE;
+        }
+        if (block == Blocks.GLASS || block == Blocks.GLASS_PANE ||
+                block instanceof StainedGlassBlock ||
+                block instanceof StainedGlassPaneBlock) {
+            flags |= GLASS;
+        }
+        if (!state.getFluidState().isEmpty()) {
+            flags |= FLUID;
+        }
+        if (grassColorBlocks.contains(block)) {
+            flags |= GRASS;
+        } else if (foliageColorBlocks.contains(block)) {
+            flags |= FOLIAGE;
+        } else if (waterColorBlocks.contains(block) || waterColorMaterials.contains(state.getMaterial())) {
+            flags |= WATER;
+        } else if (specialColorBlocks.contains(block)) {
+            flags |= SPECIAL;
+        }
+        return flags;
+    }
+
+    public static int getColor(int id) {
+        return table.colors[id];
+    }
+
+    public static int getFlags(int id) {
+        return table.flags[id];
+    }
+
+    public static boolean is(int id, int flag) {
+        return (table.flags[id] & flag) != 0;
+    }
+
+    private static class Table {
+        private final int[] colors;
+        private final int[] flags;
+
+        private Table(int[] colors, int[] flags) {
+            this.colors = colors;
+            this.flags = flags;
+        }
+    }
+}
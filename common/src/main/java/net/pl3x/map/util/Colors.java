@@ -2,6 +2,7 @@ package net.pl3x.map.util;
 
 import java.awt.Color;
 import java.util.List;
+import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.CocoaBlock;
 import net.minecraft.world.level.block.CropBlock;
@@ -10,7 +11,6 @@ import net.minecraft.world.level.block.RedStoneWireBlock;
 import net.minecraft.world.level.block.StemBlock;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.material.MaterialColor;
-import net.pl3x.map.configuration.AdvancedConfig;
 import net.pl3x.map.render.ScanData;
 
 public class Colors {
@@ -179,25 +179,24 @@ public class Colors {
     }
 
     public static int getRawBlockColor(BlockState state) {
-        int color = AdvancedConfig.BLOCK_COLORS.getOrDefault(state.getBlock(), -1);
-        if (color < 0) {
-            //noinspection ConstantConditions
-            return state.getMapColor(null, null).col;
-        }
-        return color;
+        return BlockStateTable.getColor(Block.getId(state));
     }
 
-    public static int fixBlockColor(BiomeColors biomeColors, ScanData data, ScanData.Data scanData, int color) {
-        final BlockState state = data.getBlockState();
-        if (biomeColors.isGrassBlock(state)) {
-            return biomeColors.getGrassColor(data, scanData);
+    public static int fixBlockColor(BiomeColors biomeColors, ScanData scanData, int index, int color) {
+        final int flags = BlockStateTable.getFlags(scanData.getBlockStateId(index));
+        if ((flags & (BlockStateTable.TINTED | BlockStateTable.SPECIAL)) == 0) {
+            return color;
+        }
+        if ((flags & BlockStateTable.GRASS) != 0) {
+            return biomeColors.getGrassColor(scanData, index);
         }
-        if (biomeColors.isFoliageBlock(state)) {
-            return biomeColors.getFoliageColor(data, scanData);
+        if ((flags & BlockStateTable.FOLIAGE) != 0) {
+            return biomeColors.getFoliageColor(scanData, index);
         }
-        if (biomeColors.isWaterBlock(state)) {
-            return biomeColors.getWaterColor(data, scanData);
+        if ((flags & BlockStateTable.WATER) != 0) {
+            return biomeColors.getWaterColor(scanData, index);
         }
+        final BlockState state = scanData.getBlockState(index);
         if (state.is(Blocks.MELON_STEM) || state.is(Blocks.PUMPKIN_STEM)) {
             int age = state.getValue(StemBlock.AGE);
             return Colors.rgb(age * 32, 0xFF - age * 8, age * 4);
@@ -1,6 +1,8 @@
 package net.pl3x.map.util;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -112,8 +114,12 @@ public class FileUtil {
         }
     }
 
+    public static Path getRegionDir(ServerLevel level) {
+        return level.convertable.getDimensionPath(level.dimension()).resolve("region");
+    }
+
     public static List<Path> getRegionFiles(ServerLevel level) {
-        Path regionDir = level.convertable.getDimensionPath(level.dimension()).resolve("region");
+        Path regionDir = getRegionDir(level);
         try (Stream<Path> stream = Files.list(regionDir)) {
             return stream.filter(MCA_MATCHER::matches).toList();
         } catch (IOException e) {
@@ -184,6 +190,20 @@ public class FileUtil {
         }
     }
 
+    public static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    public static void gunzip(byte[] bytes, ByteBuffer buffer) throws IOException {
+        try (GZIPInputStream gzipIn = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            buffer.put(gzipIn.readAllBytes());
+        }
+    }
+
     public static Path mkDirs(Path path) throws IOException {
         if (!Files.exists(path)) {
             Files.createDirectories(path.getParent());
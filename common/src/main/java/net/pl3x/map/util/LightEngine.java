@@ -34,10 +34,14 @@ public class LightEngine {
     }
 
     public static int getBlockLightValue(ChunkAccess chunk, BlockPos pos) {
+        return getBlockLightValue(chunk, pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    public static int getBlockLightValue(ChunkAccess chunk, int x, int y, int z) {
         final SWMRNibbleArray[] nibbles = chunk.getBlockNibbles();
-        final int index = Mathf.clamp(0, nibbles.length - 1, Coordinate.blockToChunk(pos.getY()) - getMinLightSection());
+        final int index = Mathf.clamp(0, nibbles.length - 1, Coordinate.blockToChunk(y) - getMinLightSection());
         final SWMRNibbleArray nibble = nibbles[index];
-        return nibble == null ? 15 : nibble.getVisible(pos.getX(), pos.getY(), pos.getZ());
+        return nibble == null ? 15 : nibble.getVisible(x, y, z);
     }
 
     private static int getMinLightSection() {
@@ -0,0 +1,220 @@
+package net.pl3x.map.world;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+
+/**
+ * Decoded chunks shared by every scan task of a render.
+ * <p>
+ * Neighboring regions scan each other's edge chunks, so keeping decoded
+ * chunks around for the whole render saves decoding the same border twice.
+ * Memory is bounded by an estimated byte budget, and the least recently used
+ * chunks are evicted first. The budget is read again on every load, so a
+ * cache shrinks when other renders start sharing the plugin's budget. Prefetches run on the executor it is given,
+ * so they share threads with the rest of the plugin. Keys are {@link net.minecraft.world.level.ChunkPos#asLong(int, int)}.
+ */
+public class ChunkCache {
+    private static final int SEGMENTS = 16;
+
+    // rough heap cost of a decoded chunk, palettes and light nibbles make up most of it
+    private static final long CHUNK_SIZE = 4096;
+    private static final long SECTION_SIZE = 8192;
+    private static final long EMPTY_SECTION_SIZE = 512;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private final LongSupplier budget;
+    private final Executor prefetchExecutor;
+    private volatile boolean shutdown;
+
+    public ChunkCache(long budget, Executor prefetchExecutor) {
+        this(() -> budget, prefetchExecutor);
+    }
+
+    public ChunkCache(LongSupplier budget, Executor prefetchExecutor) {
+        this.budget = budget;
+        this.prefetchExecutor = prefetchExecutor;
+        for (int i = 0; i < SEGMENTS; i++) {
+            this.segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Get a chunk, decoding it with the loader if it is not cached.
+     * <p>
+     * Concurrent requests for the same chunk wait on a single decode.
+     *
+     * @param key    packed chunk position
+     * @param loader chunk decoder
+     * @return decoded chunk, or null if the chunk does not exist
+     */
+    public ChunkAccess get(long key, LongFunction<ChunkAccess> loader) {
+        Segment segment = segment(key);
+        CompletableFuture<ChunkAccess> future;
+        boolean load = false;
+        synchronized (segment) {
+            Entry entry = segment.entries.getAndMoveToLast(key);
+            if (entry == null) {
+                entry = new Entry();
+                segment.entries.putAndMoveToLast(key, entry);
+                load = true;
+            }
+            future = entry.future;
+        }
+        if (!load) {
+            this.hits.getAndIncrement();
+            return future.join();
+        }
+        this.misses.getAndIncrement();
+        return load(segment, key, future, loader);
+    }
+
+    /**
+     * Decode a chunk in the background so a later {@link #get(long, LongFunction)} finds it ready.
+     * <p>
+     * Does nothing if the chunk is already cached or being decoded by the time the prefetch runs,
+     * or if the cache was shut down.
+     *
+     * @param key    packed chunk position
+     * @param loader chunk decoder, must be safe to call from another thread
+     */
+    public void prefetch(long key, LongFunction<ChunkAccess> loader) {
+        if (this.shutdown) {
+            return;
+        }
+        this.prefetchExecutor.execute(() -> {
+            // surround in try/catch because executor eats exceptions
+            try {
+                if (this.shutdown) {
+                    return;
+                }
+                Segment segment = segment(key);
+                CompletableFuture<ChunkAccess> future;
+                synchronized (segment) {
+                    if (segment.entries.containsKey(key)) {
+                        return;
+                    }
+                    Entry entry = new Entry();
+                    segment.entries.putAndMoveToLast(key, entry);
+                    future = entry.future;
+                }
+                load(segment, key, future, loader);
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+        });
+    }
+
+    private ChunkAccess load(Segment segment, long key, CompletableFuture<ChunkAccess> future, LongFunction<ChunkAccess> loader) {
+        ChunkAccess chunk;
+        try {
+            chunk = loader.apply(key);
+        } catch (Throwable t) {
+            synchronized (segment) {
+                Entry entry = segment.entries.get(key);
+                if (entry != null && entry.future == future) {
+                    segment.entries.remove(key);
+                }
+            }
+            future.completeExceptionally(t);
+            throw t;
+        }
+        future.complete(chunk);
+        long budget = Math.max(this.budget.getAsLong() / SEGMENTS, 0);
+        synchronized (segment) {
+            Entry entry = segment.entries.get(key);
+            if (entry != null && entry.future == future) {
+                entry.size = estimateSize(chunk);
+                segment.size += entry.size;
+                segment.evict(budget);
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Drop a chunk from the cache, forcing it to be decoded again on next use.
+     *
+     * @param key packed chunk position
+     */
+    public void invalidate(long key) {
+        Segment segment = segment(key);
+        synchronized (segment) {
+            Entry entry = segment.entries.remove(key);
+            if (entry != null) {
+                segment.size -= entry.size;
+            }
+        }
+    }
+
+    public void clear() {
+        for (Segment segment : this.segments) {
+            synchronized (segment) {
+                segment.entries.clear();
+                segment.size = 0;
+            }
+        }
+    }
+
+    public void shutdown() {
+        this.shutdown = true;
+        clear();
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    public float getHitRatio() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (float) hits / total * 100.0F;
+    }
+
+    private Segment segment(long key) {
+        // spread neighboring chunks over different segments
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return this.segments[(int) (hash >>> 60)];
+    }
+
+    private static long estimateSize(ChunkAccess chunk) {
+        if (chunk == null) {
+            return 0;
+        }
+        long size = CHUNK_SIZE;
+        for (LevelChunkSection section : chunk.getSections()) {
+            size += section == null || section.hasOnlyAir() ? EMPTY_SECTION_SIZE : SECTION_SIZE;
+        }
+        return size;
+    }
+
+    private static class Entry {
+        private final CompletableFuture<ChunkAccess> future = new CompletableFuture<>();
+        private long size;
+    }
+
+    private static class Segment {
+        private final Long2ObjectLinkedOpenHashMap<Entry> entries = new Long2ObjectLinkedOpenHashMap<>();
+        private long size;
+
+        // caller holds the segment lock
+        private void evict(long budget) {
+            while (this.size > budget && this.entries.size() > 1) {
+                Entry entry = this.entries.removeFirst();
+                this.size -= entry.size;
+            }
+        }
+    }
+}
@@ -3,10 +3,14 @@ package net.pl3x.map.world;
 import ca.spottedleaf.starlight.common.light.SWMRNibbleArray;
 import com.mojang.datafixers.util.Either;
 import io.papermc.paper.util.WorldUtil;
+import java.io.DataInputStream;
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Holder;
 import net.minecraft.core.QuartPos;
@@ -27,16 +31,20 @@ import net.minecraft.world.level.chunk.LevelChunkSection;
 import net.minecraft.world.level.chunk.UpgradeData;
 import net.minecraft.world.level.chunk.storage.ChunkSerializer;
 import net.minecraft.world.level.chunk.storage.RegionFile;
+import net.minecraft.world.level.chunk.storage.RegionFileStorage;
 import net.minecraft.world.level.levelgen.Heightmap;
 import net.minecraft.world.ticks.LevelChunkTicks;
-import net.pl3x.map.image.Image;
+import net.pl3x.map.coordinate.Coordinate;
+import net.pl3x.map.logger.Logger;
 import net.pl3x.map.render.job.Render;
+import net.pl3x.map.util.FileUtil;
 import net.pl3x.map.util.ReflectionHelper;
 
 public class ChunkHelper {
-    private static final int CHUNK_CACHE_SIZE = (int) Math.ceil((Image.SIZE + 2) * (Image.SIZE + 2) * (4F / 3));
-
-    private final Map<Long, ChunkAccess> chunkCache;
+    // empty when there is no region file
+    private final Map<Long, Optional<RegionReader>> regionCache = new ConcurrentHashMap<>();
+    // region files that exist but could not be opened, read through the server instead
+    private final Set<Long> unopenedRegions = ConcurrentHashMap.newKeySet();
     private final Render render;
     private final Registry<Biome> biomeRegistry;
 
@@ -49,15 +57,24 @@ public class ChunkHelper {
         this.biomeRegistry = level.registryAccess().registryOrThrow(Registries.BIOME);
         this.minSection = WorldUtil.getMinLightSection(level);
         this.totalLightSections = WorldUtil.getMaxLightSection(level) - this.minSection + 1;
-        this.chunkCache = new HashMap<>(CHUNK_CACHE_SIZE);
     }
 
     public void clear() {
-        this.chunkCache.clear();
+        this.regionCache.clear();
+        this.unopenedRegions.clear();
     }
 
     public ChunkAccess getChunk(ServerLevel level, int chunkX, int chunkZ) {
-        return this.chunkCache.computeIfAbsent(ChunkPos.asLong(chunkX, chunkZ), k -> getChunkFast(level, chunkX, chunkZ));
+        // loaded chunks are always current, only decoded chunks go through the shared cache
+        ChunkAccess chunk = level.getChunkIfLoadedImmediately(chunkX, chunkZ);
+        if (chunk != null) {
+            return chunk;
+        }
+        return this.render.getChunkCache().get(ChunkPos.asLong(chunkX, chunkZ), key -> getChunkFast(level, chunkX, chunkZ));
+    }
+
+    public void prefetchChunk(ServerLevel level, int chunkX, int chunkZ) {
+        this.render.getChunkCache().prefetch(ChunkPos.asLong(chunkX, chunkZ), key -> getChunkFast(level, chunkX, chunkZ));
     }
 
     @SuppressWarnings("unused")
@@ -82,16 +99,35 @@ public class ChunkHelper {
 
         ChunkPos chunkPos = new ChunkPos(chunkX, chunkZ);
 
-        // load chunk NBT from region file
+        // load chunk NBT from our own reader of the region file
+        int regionX = Coordinate.chunkToRegion(chunkX);
+        int regionZ = Coordinate.chunkToRegion(chunkZ);
+        RegionReader regionReader = getRegionReader(level, regionX, regionZ);
         CompoundTag nbt = null;
-        try {
-            RegionFile regionFile = level.chunkSource.chunkMap.regionFileCache.getRegionFile(chunkPos, true, true);
-            //noinspection ConstantConditions
-            if (regionFile != null) {
-                nbt = level.chunkSource.chunkMap.regionFileCache.read(chunkPos, regionFile);
+        if (regionReader != null) {
+            try {
+                if (!regionReader.hasChunk(chunkX, chunkZ)) {
+                    return null;
+                }
+                try (DataInputStream in = regionReader.getChunkDataInputStream(chunkX, chunkZ)) {
+                    nbt = in == null ? null : ChunkTagReader.read(in, needsBlockLight());
+                }
+            } catch (IOException | RuntimeException e) {
+                // torn or cut short while the server was writing, let paper deal with it
+                nbt = null;
             }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            if (nbt != null && (nbt.getInt("xPos") != chunkX || nbt.getInt("zPos") != chunkZ)) {
+                // the server moved chunks around since the header was read, this is someone else's data
+                nbt = null;
+            }
+        } else if (!this.unopenedRegions.contains(ChunkPos.asLong(regionX, regionZ))) {
+            // no region file, no chunk
+            return null;
+        }
+
+        // fall back to the server's region file cache
+        if (nbt == null) {
+            nbt = readChunkTagShared(level, chunkPos);
         }
 
         //noinspection ConstantConditions
@@ -127,6 +163,61 @@ public class ChunkHelper {
         return chunk;
     }
 
+    private RegionReader getRegionReader(ServerLevel level, int regionX, int regionZ) {
+        return this.regionCache.computeIfAbsent(ChunkPos.asLong(regionX, regionZ), key -> {
+            Path file = FileUtil.getRegionDir(level).resolve("r." + regionX + "." + regionZ + ".mca");
+            try {
+                return Optional.ofNullable(RegionReader.open(file));
+            } catch (IOException e) {
+                Logger.warn("Could not open region file " + file + ", reading it through the server instead");
+                e.printStackTrace();
+                this.unopenedRegions.add(key);
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+
+    private CompoundTag readChunkTagShared(ServerLevel level, ChunkPos chunkPos) {
+        try {
+            RegionFileStorage storage = level.chunkSource.chunkMap.regionFileCache;
+            RegionFile regionFile = storage.getRegionFile(chunkPos, true, true);
+            //noinspection ConstantConditions
+            if (regionFile == null) {
+                return null;
+            }
+            return readChunkTag(storage, regionFile, chunkPos, needsBlockLight());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Read a chunk's tag from a region file the caller locked, unlocking it.
+     *
+     * @param storage    region file cache the region file came from
+     * @param regionFile region file, its file lock held by the caller
+     * @param chunkPos   chunk position
+     * @param blockLight whether to keep block light
+     * @return chunk tag, or null if the chunk does not exist
+     * @throws IOException if the chunk could not be read
+     */
+    static CompoundTag readChunkTag(RegionFileStorage storage, RegionFile regionFile, ChunkPos chunkPos, boolean blockLight) throws IOException {
+        if (regionFile.isOversized(chunkPos.x, chunkPos.z)) {
+            // oversized chunks are stitched together by paper, which unlocks the file when done
+            return storage.read(chunkPos, regionFile);
+        }
+        try (DataInputStream in = regionFile.getChunkDataInputStream(chunkPos)) {
+            return in == null ? null : ChunkTagReader.read(in, blockLight);
+        } finally {
+            regionFile.fileLock.unlock();
+        }
+    }
+
+    private boolean needsBlockLight() {
+        // block light is only needed when rendering darkness
+        return this.render.getWorld().getConfig().RENDER_SKYLIGHT < 15;
+    }
+
     private void populatePalettesAndLight(ServerLevel level, ListTag sectionsNBT, LevelChunkSection[] levelChunkSections, int j, SWMRNibbleArray[] blockNibbles, SWMRNibbleArray[] skyNibbles, int minSection) {
         CompoundTag chunkSectionNBT = sectionsNBT.getCompound(j);
         byte chunkYPos = chunkSectionNBT.getByte("Y");
@@ -0,0 +1,101 @@
+package net.pl3x.map.world;
+
+import java.io.DataInput;
+import java.io.IOException;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtAccounter;
+import net.minecraft.nbt.Tag;
+import net.minecraft.nbt.TagTypes;
+import net.minecraft.world.level.levelgen.Heightmap;
+
+/**
+ * Reads chunk NBT straight from the region stream, keeping only what the map renders.
+ * <p>
+ * Block entities, entities, structures, ticks and everything else are skipped
+ * in the stream without ever being turned into tags.
+ */
+final class ChunkTagReader {
+    private static final String WORLD_SURFACE = Heightmap.Types.WORLD_SURFACE.getSerializationKey();
+
+    private ChunkTagReader() {
+    }
+
+    static CompoundTag read(DataInput in, boolean blockLight) throws IOException {
+        if (in.readByte() != Tag.TAG_COMPOUND) {
+            return null;
+        }
+        in.readUTF(); // root name
+
+        CompoundTag nbt = new CompoundTag();
+        byte type;
+        while ((type = in.readByte()) != Tag.TAG_END) {
+            String key = in.readUTF();
+            switch (key) {
+                case "Status", "InhabitedTime", "xPos", "zPos" -> nbt.put(key, load(in, type));
+                case "Heightmaps" -> readHeightmaps(in, type, nbt);
+                case "sections" -> readSections(in, type, blockLight, nbt);
+                default -> skip(in, type);
+            }
+        }
+        return nbt;
+    }
+
+    private static void readHeightmaps(DataInput in, byte type, CompoundTag nbt) throws IOException {
+        if (type != Tag.TAG_COMPOUND) {
+            skip(in, type);
+            return;
+        }
+        CompoundTag heightmaps = new CompoundTag();
+        while ((type = in.readByte()) != Tag.TAG_END) {
+            String key = in.readUTF();
+            if (key.equals(WORLD_SURFACE)) {
+                heightmaps.put(key, load(in, type));
+            } else {
+                skip(in, type);
+            }
+        }
+        nbt.put("Heightmaps", heightmaps);
+    }
+
+    private static void readSections(DataInput in, byte type, boolean blockLight, CompoundTag nbt) throws IOException {
+        if (type != Tag.TAG_LIST) {
+            skip(in, type);
+            return;
+        }
+        byte elementType = in.readByte();
+        int count = in.readInt();
+        if (elementType != Tag.TAG_COMPOUND) {
+            TagTypes.getType(elementType).skip(in, count);
+            return;
+        }
+        ListTag sections = new ListTag();
+        for (int i = 0; i < count; i++) {
+            CompoundTag section = new CompoundTag();
+            while ((type = in.readByte()) != Tag.TAG_END) {
+                String key = in.readUTF();
+                switch (key) {
+                    case "Y", "block_states", "biomes", "starlight.blocklight_state", "starlight.skylight_state" -> section.put(key, load(in, type));
+                    case "BlockLight" -> {
+                        if (blockLight) {
+                            section.put(key, load(in, type));
+                        } else {
+                            skip(in, type);
+                        }
+                    }
+                    default -> skip(in, type);
+                }
+            }
+            sections.add(section);
+        }
+        nbt.put("sections", sections);
+    }
+
+    private static Tag load(DataInput in, byte type) throws IOException {
+        return TagTypes.getType(type).load(in, 1, NbtAccounter.UNLIMITED);
+    }
+
+    private static void skip(DataInput in, byte type) throws IOException {
+        TagTypes.getType(type).skip(in);
+    }
+}
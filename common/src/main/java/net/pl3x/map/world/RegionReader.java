@@ -0,0 +1,213 @@
+package net.pl3x.map.world;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Read-only view of a single .mca region file.
+ * <p>
+ * This never touches the server's region file cache, so render threads
+ * do not contend with the main thread's chunk IO or with each other.
+ * <p>
+ * Reads are positional reads of the file as it is right now. The file is
+ * not mapped: the server shrinks region files while saving, and touching a
+ * mapped page that is gone faults the reading thread at some later point
+ * where it can't be handled. A file that shrank just reads short here.
+ */
+public class RegionReader {
+    private static final int SECTOR_SIZE = 4096;
+
+    private static final int VERSION_GZIP = 1;
+    private static final int VERSION_DEFLATE = 2;
+    private static final int VERSION_NONE = 3;
+    private static final int EXTERNAL_FLAG = 0x80;
+
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    private final Path file;
+
+    private RegionReader(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Open a region file.
+     *
+     * @param file region file
+     * @return region reader, or null if the file does not exist
+     * @throws IOException if the file could not be opened
+     */
+    public static RegionReader open(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        // fail here rather than on every chunk if the file can't be read at all
+        FileChannel.open(file, StandardOpenOption.READ).close();
+        return new RegionReader(file);
+    }
+
+    /**
+     * Read only the chunk timestamp table from a region file header.
+     *
+     * @param file region file
+     * @return epoch seconds of last save for each chunk, indexed by {@code (z & 31) * 32 + (x & 31)}, or all {@link Integer#MAX_VALUE} if the header is truncated
+     * @throws IOException if the header could not be read
+     */
+    public static int[] readTimestamps(Path file) throws IOException {
+        int[] timestamps = new int[1024];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(SECTOR_SIZE);
+            if (!read(channel, header, SECTOR_SIZE)) {
+                // truncated header, treat every chunk as changed
+                Arrays.fill(timestamps, Integer.MAX_VALUE);
+                return timestamps;
+            }
+            header.flip().asIntBuffer().get(timestamps);
+        }
+        return timestamps;
+    }
+
+    public boolean hasChunk(int chunkX, int chunkZ) throws IOException {
+        try (FileChannel channel = open()) {
+            return getInt(channel, index(chunkX, chunkZ) * 4L) != 0;
+        }
+    }
+
+    /**
+     * Get the last time a chunk was saved, as stored in the region header.
+     *
+     * @param chunkX chunk x coordinate
+     * @param chunkZ chunk z coordinate
+     * @return epoch seconds of last save, or 0 if chunk does not exist
+     * @throws IOException if the header could not be read
+     */
+    public int getTimestamp(int chunkX, int chunkZ) throws IOException {
+        try (FileChannel channel = open()) {
+            return getInt(channel, SECTOR_SIZE + index(chunkX, chunkZ) * 4L);
+        }
+    }
+
+    /**
+     * Open a decompressing stream over a chunk's payload.
+     * <p>
+     * Returns null when the chunk cannot be served from the file, such as
+     * for external (oversized) chunks or unknown compression.
+     * <p>
+     * The server may be rewriting the file while it is read, so the data
+     * can belong to another chunk or be torn. Callers have to check the
+     * chunk position in the data.
+     *
+     * @param chunkX chunk x coordinate
+     * @param chunkZ chunk z coordinate
+     * @return chunk NBT stream, or null
+     * @throws IOException if the chunk could not be read, or lies past the end of the file
+     */
+    public DataInputStream getChunkDataInputStream(int chunkX, int chunkZ) throws IOException {
+        byte[] payload;
+        int version;
+        try (FileChannel channel = open()) {
+            // read the header every time, the server moves chunks to other sectors while we read
+            int offset = getInt(channel, index(chunkX, chunkZ) * 4L);
+            if (offset == 0) {
+                return null;
+            }
+            long start = (long) (offset >>> 8) * SECTOR_SIZE;
+            ByteBuffer header = ByteBuffer.allocate(5);
+            if (!read(channel, header, start)) {
+                throw new IOException("Chunk lies past the end of the region file");
+            }
+            int length = header.getInt(0) - 1;
+            version = header.get(4);
+            if (length <= 0 || (version & EXTERNAL_FLAG) != 0) {
+                return null;
+            }
+            payload = new byte[length];
+            if (!read(channel, ByteBuffer.wrap(payload), start + 5)) {
+                throw new IOException("Chunk lies past the end of the region file");
+            }
+        }
+
+        InputStream in = switch (version) {
+            case VERSION_DEFLATE -> new InflaterStream(INFLATER.get(), payload);
+            case VERSION_GZIP -> new GZIPInputStream(new ByteArrayInputStream(payload));
+            case VERSION_NONE -> new ByteArrayInputStream(payload);
+            default -> null;
+        };
+        return in == null ? null : new DataInputStream(new BufferedInputStream(in));
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(this.file, StandardOpenOption.READ);
+    }
+
+    // a header cut short reads as no chunk
+    private static int getInt(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        return read(channel, buffer, position) ? buffer.getInt(0) : 0;
+    }
+
+    // fills the buffer, or returns false if the file ends first
+    private static boolean read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) <= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int index(int chunkX, int chunkZ) {
+        return (chunkX & 31) + (chunkZ & 31) * 32;
+    }
+
+    // inflates with the thread's inflater instead of a new one per chunk
+    private static class InflaterStream extends InputStream {
+        private final Inflater inflater;
+        private final byte[] single = new byte[1];
+
+        private InflaterStream(Inflater inflater, byte[] input) {
+            this.inflater = inflater;
+            this.inflater.reset();
+            this.inflater.setInput(input);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(this.single, 0, 1) == -1 ? -1 : this.single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            try {
+                int count;
+                while ((count = this.inflater.inflate(bytes, off, len)) == 0) {
+                    if (this.inflater.finished() || this.inflater.needsInput()) {
+                        return -1;
+                    }
+                    if (this.inflater.needsDictionary()) {
+                        throw new ZipException("Chunk data requires a preset dictionary");
+                    }
+                }
+                return count;
+            } catch (DataFormatException e) {
+                throw new ZipException(e.getMessage());
+            }
+        }
+    }
+}
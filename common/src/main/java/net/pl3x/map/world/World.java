@@ -10,35 +10,56 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import javax.imageio.ImageIO;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.core.BlockPos;
 import net.minecraft.core.Registry;
 import net.minecraft.core.registries.Registries;
 import net.minecraft.resources.ResourceKey;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.biome.Biome;
 import net.minecraft.world.level.biome.BiomeManager;
+import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraft.world.level.levelgen.Heightmap;
 import net.pl3x.map.Key;
 import net.pl3x.map.Keyed;
 import net.pl3x.map.Pl3xMap;
 import net.pl3x.map.configuration.Config;
 import net.pl3x.map.configuration.PlayerTracker;
 import net.pl3x.map.configuration.WorldConfig;
+import net.pl3x.map.coordinate.Coordinate;
 import net.pl3x.map.coordinate.RegionCoordinate;
 import net.pl3x.map.event.world.WorldLoadedEvent;
+import net.pl3x.map.image.BlockInfoCache;
 import net.pl3x.map.image.IconImage;
+import net.pl3x.map.image.TileCache;
+import net.pl3x.map.image.TileCompositor;
+import net.pl3x.map.image.TileFeed;
+import net.pl3x.map.image.TileManifest;
+import net.pl3x.map.image.store.TileStore;
 import net.pl3x.map.logger.Logger;
 import net.pl3x.map.markers.Point;
 import net.pl3x.map.markers.layer.Layer;
@@ -67,7 +88,9 @@ public abstract class World extends Keyed {
     public static final Path TILES_DIR = WEB_DIR.resolve("tiles");
 
     private static final String DIRTY_REGIONS = "dirty_regions.json";
+    private static final String DIRTY_CHUNKS = "dirty_chunks.json";
     private static final String SCANNED_REGIONS = "resume_render.json";
+    private static final String RENDERED_REGIONS = "rendered_regions.json";
 
     private static final Gson GSON = new GsonBuilder()
             .enableComplexMapKeySerialization()
@@ -94,14 +117,28 @@ public abstract class World extends Keyed {
     private final ScheduledExecutorService markersExecutor = Executors.newScheduledThreadPool(1, new ThreadFactoryBuilder().setNameFormat("Pl3xMap-Markers").build());
 
     private ScheduledFuture<?> backgroundRender;
+    private BackgroundRender backgroundRenderJob;
     private ScheduledFuture<?> markersUpdater;
+    private ScheduledFuture<?> tileFlusher;
+    private ScheduledFuture<?> tileCacheFlusher;
+    private ScheduledFuture<?> tileWriter;
+    private final AtomicBoolean composing = new AtomicBoolean();
+
+    private final TileCompositor tileCompositor = new TileCompositor(this);
+    private TileCache tileCache;
+    private TileStore tileStore;
+    private final TileFeed tileFeed = new TileFeed(this);
+    private final TileManifest tileManifest = new TileManifest(this);
+    private final BlockInfoCache blockInfoCache = new BlockInfoCache(this);
 
     private final Map<Key, RendererHolder> rendererHolders = new LinkedHashMap<>();
 
     private Render activeRender = null;
 
-    private final ConcurrentLinkedQueue<RegionCoordinate> modifiedRegions = new ConcurrentLinkedQueue<>();
+    // dirty chunk bits keyed by packed region coordinates, in the order regions were first marked, guarded by itself
+    private final Long2ObjectLinkedOpenHashMap<long[]> modifiedRegions = new Long2ObjectLinkedOpenHashMap<>();
     private final LinkedHashMap<RegionCoordinate, Boolean> scannedRegions = new LinkedHashMap<>();
+    private final Map<RegionCoordinate, Long> renderedRegions = new ConcurrentHashMap<>();
 
     private boolean alreadyInitialized;
     private boolean paused;
@@ -194,6 +231,16 @@ public abstract class World extends Keyed {
 
         rebuildBiomesPaletteRegistry();
 
+        this.tileStore = TileStore.create(Config.WEB_TILE_STORE, this);
+        this.tileCache = new TileCache(this.tileStore, getConfig().RENDER_TILE_CACHE_SIZE * 1024L * 1024L, (key, version) -> {
+            this.tileManifest.update(key, version);
+            this.tileFeed.add(key, version);
+        }, task -> {
+            if (!Pl3xMap.api().getRenderScheduler().submitIO(task)) {
+                throw new RejectedExecutionException();
+            }
+        });
+
         if (getConfig().MARKERS_WORLDBORDER_ENABLED) {
             getLayerRegistry().register(new WorldBorderLayer(this));
         }
@@ -209,8 +256,34 @@ public abstract class World extends Keyed {
         startMarkersTask();
         startBackgroundRender();
 
+        this.tileFlusher = this.backgroundExecutor.scheduleAtFixedRate(() -> {
+            // composing can take a while, do it on the io pool instead of holding up this executor
+            if (this.composing.compareAndSet(false, true) && !Pl3xMap.api().getRenderScheduler().submitIO(this::flushIdleTiles)) {
+                this.composing.set(false);
+            }
+        }, 5L, 5L, TimeUnit.SECONDS);
+
+        // settled tiles are saved on the io pool too
+        this.tileCacheFlusher = this.backgroundExecutor.scheduleWithFixedDelay(this.tileCache::flushIdle, 500L, 500L, TimeUnit.MILLISECONDS);
+
+        this.tileWriter = this.backgroundExecutor.scheduleAtFixedRate(() -> {
+            // surround in try/catch because executor eats exceptions
+            try {
+                // saves write the tile and update the manifest before adding to the feed, so every
+                // change up to this sequence is in the manifests written next. later ones wait for the next write
+                long sequence = this.tileFeed.getSequence();
+                // tiles the manifests name have to be on disk first
+                this.tileStore.sync();
+                this.tileManifest.write();
+                this.tileFeed.write(sequence);
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+        }, 1L, 1L, TimeUnit.SECONDS);
+
         deserializeDirtyRegions();
         deserializeScannedRegions();
+        deserializeRenderedRegions();
 
         if (!getScannedRegions().isEmpty()) {
             startRender(new FullRender(this, Pl3xMap.api().getConsole()));
@@ -409,16 +482,32 @@ public abstract class World extends Keyed {
     }
 
     /**
-     * Load stored dirty regions data from disk.
+     * Load stored dirty chunks data from disk.
      */
     private void deserializeDirtyRegions() {
         try {
-            final Path file = this.dataPath.resolve(DIRTY_REGIONS);
+            final Path file = this.dataPath.resolve(DIRTY_CHUNKS);
             if (Files.exists(file)) {
-                this.modifiedRegions.addAll(GSON.fromJson(
+                Map<RegionCoordinate, long[]> dirtyChunks = GSON.fromJson(
                         new FileReader(file.toFile()),
+                        TypeToken.getParameterized(Map.class, RegionCoordinate.class, long[].class).getType()
+                );
+                // stored with their neighbours already, don't grow them again
+                dirtyChunks.forEach((region, bits) -> BitSet.valueOf(bits).stream().forEach(i -> markChunk(
+                        Coordinate.regionToChunk(region.getRegionX()) + (i & 31),
+                        Coordinate.regionToChunk(region.getRegionZ()) + (i >> 5)
+                )));
+            }
+
+            // regions stored before chunk tracking are re-rendered whole
+            final Path legacy = this.dataPath.resolve(DIRTY_REGIONS);
+            if (Files.exists(legacy)) {
+                List<RegionCoordinate> regions = GSON.fromJson(
+                        new FileReader(legacy.toFile()),
                         TypeToken.getParameterized(List.class, RegionCoordinate.class).getType()
-                ));
+                );
+                regions.forEach(this::addModifiedRegion);
+                Files.delete(legacy);
             }
         } catch (JsonIOException | JsonSyntaxException | IOException e) {
             Logger.warn(String.format("Failed to deserialize dirty chunks for world '%s'", getName()));
@@ -427,25 +516,168 @@ public abstract class World extends Keyed {
     }
 
     /**
-     * Store dirty regions data to disk.
+     * Store dirty chunks data to disk.
      */
     private void serializeDirtyRegions() {
+        Map<RegionCoordinate, long[]> dirtyChunks = new LinkedHashMap<>();
+        synchronized (this.modifiedRegions) {
+            for (Long2ObjectMap.Entry<long[]> entry : this.modifiedRegions.long2ObjectEntrySet()) {
+                long key = entry.getLongKey();
+                dirtyChunks.put(new RegionCoordinate(ChunkPos.getX(key), ChunkPos.getZ(key)), entry.getValue().clone());
+            }
+        }
         try {
-            Files.writeString(this.dataPath.resolve(DIRTY_REGIONS), GSON.toJson(this.modifiedRegions));
+            Files.writeString(this.dataPath.resolve(DIRTY_CHUNKS), GSON.toJson(dirtyChunks));
         } catch (IOException e) {
             Logger.warn(String.format("Failed to serialize dirty chunks for world '%s'", getName()));
             e.printStackTrace();
         }
     }
 
+    /**
+     * Load stored rendered region times from disk.
+     */
+    private void deserializeRenderedRegions() {
+        try {
+            final Path file = this.dataPath.resolve(RENDERED_REGIONS);
+            if (Files.exists(file)) {
+                this.renderedRegions.putAll(GSON.fromJson(
+                        new FileReader(file.toFile()),
+                        TypeToken.getParameterized(Map.class, RegionCoordinate.class, Long.class).getType()
+                ));
+            }
+        } catch (JsonIOException | JsonSyntaxException | IOException e) {
+            Logger.warn(String.format("Failed to deserialize rendered regions for world '%s'", getName()));
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Store rendered region times to disk.
+     */
+    private void serializeRenderedRegions() {
+        try {
+            Files.writeString(this.dataPath.resolve(RENDERED_REGIONS), GSON.toJson(this.renderedRegions));
+        } catch (IOException e) {
+            Logger.warn(String.format("Failed to serialize rendered regions for world '%s'", getName()));
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Get the time a region was last fully rendered.
+     * <p>
+     * This is compared against the chunk timestamps in the region file
+     * headers to find regions that have not changed since.
+     *
+     * @param region region
+     * @return epoch seconds the last full render of the region started, or 0 if never
+     */
+    public long getRenderedRegion(@NotNull RegionCoordinate region) {
+        return this.renderedRegions.getOrDefault(region, 0L);
+    }
+
+    /**
+     * Set the time a region was last fully rendered.
+     *
+     * @param region region
+     * @param time   epoch seconds the render of the region started
+     */
+    public void setRenderedRegion(@NotNull RegionCoordinate region, long time) {
+        this.renderedRegions.merge(region, time, Math::max);
+    }
+
+    /**
+     * Forget all rendered region times, forcing the next incremental render to render everything.
+     */
+    public void clearRenderedRegions() {
+        this.renderedRegions.clear();
+    }
+
+    /**
+     * Add a modified/dirty chunk.
+     * <p>
+     * This is safe to call from any thread and costs the same no matter
+     * how many regions are already queued.
+     *
+     * @param chunkX chunk x coordinate
+     * @param chunkZ chunk z coordinate
+     */
+    public void addModifiedChunk(int chunkX, int chunkZ) {
+        // heightmap shading looks at the neighbouring blocks, so the chunks
+        // around a changed one are redrawn with it, across region edges too
+        for (int z = chunkZ - 1; z <= chunkZ + 1; z++) {
+            for (int x = chunkX - 1; x <= chunkX + 1; x++) {
+                markChunk(x, z);
+            }
+        }
+    }
+
+    private void markChunk(int chunkX, int chunkZ) {
+        int bit = (chunkZ & 31) * 32 + (chunkX & 31);
+        markModified(ChunkPos.asLong(Coordinate.chunkToRegion(chunkX), Coordinate.chunkToRegion(chunkZ)),
+                bits -> bits[bit >> 6] |= 1L << bit);
+    }
+
+    /**
+     * Add modified/dirty blocks.
+     * <p>
+     * Only blocks near the surface are visible on the map. That is checked
+     * on the background thread against the loaded chunk's heightmap, so
+     * callers on the server thread only pay for handing over the list.
+     *
+     * @param positions block positions packed with {@link BlockPos#asLong(int, int, int)}
+     */
+    public void addModifiedBlocks(@NotNull LongList positions) {
+        this.backgroundExecutor.submit(() -> {
+            // surround in try/catch because executor eats exceptions
+            try {
+                LongSet marked = new LongOpenHashSet();
+                positions.forEach((long pos) -> {
+                    int x = BlockPos.getX(pos);
+                    int z = BlockPos.getZ(pos);
+                    long chunk = ChunkPos.asLong(Coordinate.blockToChunk(x), Coordinate.blockToChunk(z));
+                    if (!marked.contains(chunk) && isBlockVisible(x, BlockPos.getY(pos), z)) {
+                        marked.add(chunk);
+                        addModifiedChunk(ChunkPos.getX(chunk), ChunkPos.getZ(chunk));
+                    }
+                });
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+        });
+    }
+
+    private boolean isBlockVisible(int x, int y, int z) {
+        if (this.level.dimensionType().hasCeiling()) {
+            return true;
+        }
+        // heightmaps of loaded chunks are plain arrays, reading a stale value here is harmless
+        ChunkAccess chunk = this.level.getChunkIfLoadedImmediately(Coordinate.blockToChunk(x), Coordinate.blockToChunk(z));
+        return chunk == null || y >= chunk.getHeight(Heightmap.Types.WORLD_SURFACE, x, z) - 10;
+    }
+
     /**
      * Add a modified/dirty region.
+     * <p>
+     * Every chunk in the region will be rendered again.
      *
      * @param region modified/dirty region
      */
     public void addModifiedRegion(@NotNull RegionCoordinate region) {
-        if (!this.modifiedRegions.contains(region)) {
-            this.modifiedRegions.add(region);
+        markModified(ChunkPos.asLong(region.getRegionX(), region.getRegionZ()),
+                bits -> Arrays.fill(bits, -1L));
+    }
+
+    private void markModified(long key, Consumer<long[]> marker) {
+        // a region polled at the same time either sees this mark or is queued again fresh, never both or neither
+        synchronized (this.modifiedRegions) {
+            long[] bits = this.modifiedRegions.get(key);
+            if (bits == null) {
+                bits = new long[16];
+                this.modifiedRegions.put(key, bits);
+            }
+            marker.accept(bits);
         }
     }
 
@@ -455,17 +687,30 @@ public abstract class World extends Keyed {
      * @return true if there are modified/dirty regions
      */
     public boolean hasModifiedRegions() {
-        return !this.modifiedRegions.isEmpty();
+        synchronized (this.modifiedRegions) {
+            return !this.modifiedRegions.isEmpty();
+        }
     }
 
     /**
      * Get the next modified/dirty region in the queue.
+     * <p>
+     * The dirty chunks are indexed by {@code (chunkZ & 31) * 32 + (chunkX & 31)}.
      *
-     * @return next modified/dirty region in the queue, or null
+     * @return next modified/dirty region in the queue with its dirty chunks, or null
      */
     @Nullable
-    public RegionCoordinate getNextModifiedRegion() {
-        return this.modifiedRegions.poll();
+    public Map.Entry<RegionCoordinate, BitSet> getNextModifiedRegion() {
+        long key;
+        long[] bits;
+        synchronized (this.modifiedRegions) {
+            if (this.modifiedRegions.isEmpty()) {
+                return null;
+            }
+            key = this.modifiedRegions.firstLongKey();
+            bits = this.modifiedRegions.removeFirst();
+        }
+        return Map.entry(new RegionCoordinate(ChunkPos.getX(key), ChunkPos.getZ(key)), BitSet.valueOf(bits));
     }
 
     /**
@@ -547,7 +792,8 @@ public abstract class World extends Keyed {
             return;
         }
 
-        this.backgroundRender = this.backgroundExecutor.scheduleAtFixedRate(new BackgroundRender(this), interval, interval, TimeUnit.SECONDS);
+        this.backgroundRenderJob = new BackgroundRender(this);
+        this.backgroundRender = this.backgroundExecutor.scheduleAtFixedRate(this.backgroundRenderJob, interval, interval, TimeUnit.SECONDS);
     }
 
     /**
@@ -560,6 +806,11 @@ public abstract class World extends Keyed {
 
         this.backgroundRender.cancel(false);
         this.backgroundRender = null;
+
+        // scan tasks still running finish their regions, they decode what they need again
+        Pl3xMap.api().getRenderScheduler().releaseChunkCache(this.backgroundRenderJob.getChunkCache());
+        this.backgroundRenderJob.getEdgeCache().clear();
+        this.backgroundRenderJob = null;
     }
 
     /**
@@ -666,10 +917,124 @@ public abstract class World extends Keyed {
             cancelRender(true);
         }
 
+        if (hasBackgroundRender()) {
+            stopBackgroundRender();
+        }
+
         stopMarkersTask();
 
+        this.tileFlusher.cancel(false);
+        this.tileCacheFlusher.cancel(false);
+        this.tileWriter.cancel(false);
+
+        // composing and saving the last tiles takes a while, keep it off the server thread.
+        // plugin disable waits for the io pool to finish this
+        if (!Pl3xMap.api().getRenderScheduler().submitIO(this::saveTiles)) {
+            saveTiles();
+        }
+
         serializeDirtyRegions();
         serializeScannedRegions();
+        serializeRenderedRegions();
+    }
+
+    private void flushIdleTiles() {
+        // surround in try/catch because executor eats exceptions
+        try {
+            this.tileCompositor.flushIdle();
+        } catch (Throwable t) {
+            t.printStackTrace();
+        } finally {
+            this.composing.set(false);
+        }
+    }
+
+    private void saveTiles() {
+        // surround in try/catch because executor eats exceptions
+        try {
+            // build whatever zoom levels are still waiting on their tiles, then save them
+            this.tileCompositor.flushAll();
+            this.tileCache.shutdown();
+            long sequence = this.tileFeed.getSequence();
+            this.tileStore.sync();
+            this.tileManifest.write();
+            this.tileFeed.write(sequence);
+            this.tileStore.close();
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+    }
+
+    /**
+     * Get the tile compositor for this world.
+     * <p>
+     * The compositor builds the zoomed out tiles from the zoom 0 tiles renders save.
+     *
+     * @return tile compositor
+     */
+    @NotNull
+    public TileCompositor getTileCompositor() {
+        return this.tileCompositor;
+    }
+
+    /**
+     * Get the tile cache for this world.
+     * <p>
+     * Tiles are read and written through this cache, which saves changed tiles to disk lazily.
+     *
+     * @return tile cache
+     */
+    @NotNull
+    public TileCache getTileCache() {
+        return this.tileCache;
+    }
+
+    /**
+     * Get the tile store for this world.
+     * <p>
+     * This is where tiles end up on disk, as picked by the tile store setting.
+     *
+     * @return tile store
+     */
+    @NotNull
+    public TileStore getTileStore() {
+        return this.tileStore;
+    }
+
+    /**
+     * Get the tile feed for this world.
+     * <p>
+     * The feed lists recently saved tiles, so the web map only has to refresh those.
+     *
+     * @return tile feed
+     */
+    @NotNull
+    public TileFeed getTileFeed() {
+        return this.tileFeed;
+    }
+
+    /**
+     * Get the tile manifest for this world.
+     * <p>
+     * The manifest holds the version of every saved tile, so the web map can use tile urls that are cached forever.
+     *
+     * @return tile manifest
+     */
+    @NotNull
+    public TileManifest getTileManifest() {
+        return this.tileManifest;
+    }
+
+    /**
+     * Get the block info cache for this world.
+     * <p>
+     * The web server answers block info lookups from this cache.
+     *
+     * @return block info cache
+     */
+    @NotNull
+    public BlockInfoCache getBlockInfoCache() {
+        return this.blockInfoCache;
     }
 
     /**
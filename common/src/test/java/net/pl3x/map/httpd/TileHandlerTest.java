@@ -0,0 +1,40 @@
+package net.pl3x.map.httpd;
+
+import net.pl3x.map.Key;
+import net.pl3x.map.image.TileKey;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class TileHandlerTest {
+    @Test
+    public void parsesTilePath() {
+        assertEquals(new TileKey(Key.of("vanilla"), 2, -3, 4), TileHandler.parseKey("/tiles/world/2/vanilla/-3_4.png"));
+        assertEquals(new TileKey(Key.of("blockinfo"), 0, 0, -1), TileHandler.parseKey("/tiles/world_nether/0/blockinfo/0_-1.gz"));
+    }
+
+    @Test
+    public void otherPathsAreNotTiles() {
+        assertNull(TileHandler.parseKey("/index.html"));
+        assertNull(TileHandler.parseKey("/tiles/world/2/vanilla/3_4"));
+        assertNull(TileHandler.parseKey("/tiles/world/x/vanilla/3_4.png"));
+        assertNull(TileHandler.parseKey("/tiles/world/2/vanilla/3_4_5.png"));
+        assertNull(TileHandler.parseKey("/tiles/world/2/vanilla/a/3_4.png"));
+        assertNull(TileHandler.parseKey("/tiles/world/-2/vanilla/3_4.png"));
+    }
+
+    @Test
+    public void numbersOutOfRangeAreNotTiles() {
+        assertNull(TileHandler.parseKey("/tiles/world/2/vanilla/99999999999_0.png"));
+        assertNull(TileHandler.parseKey("/tiles/world/2/vanilla/0_-99999999999.png"));
+        assertNull(TileHandler.parseKey("/tiles/world/99999999999/vanilla/0_0.png"));
+    }
+
+    @Test
+    public void invalidRenderersAreNotTiles() {
+        assertNull(TileHandler.parseKey("/tiles/world/2/../0_0.png"));
+        assertNull(TileHandler.parseKey("/tiles/world/2/vanilla./0_0.png"));
+        assertNull(TileHandler.parseKey("/tiles/world/2/bad$key/0_0.png"));
+    }
+}
@@ -0,0 +1,59 @@
+package net.pl3x.map.image;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import net.pl3x.map.image.store.TileStore;
+
+/**
+ * Tile store keeping tiles in memory, for tests and benchmarks.
+ */
+class MemoryStore extends TileStore {
+    private final Map<String, byte[]> tiles = new ConcurrentHashMap<>();
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+    private long version;
+
+    // writes of the blocked tile, or every tile if none, wait for this
+    volatile CountDownLatch block;
+    volatile TileKey blocked;
+
+    boolean has(TileKey key) {
+        return this.tiles.containsKey(name(key, "png"));
+    }
+
+    @Override
+    public byte[] read(TileKey key, String extension) {
+        return this.tiles.get(name(key, extension));
+    }
+
+    @Override
+    public void write(TileKey key, String extension, byte[] bytes) {
+        CountDownLatch block = this.block;
+        if (block != null && (this.blocked == null || this.blocked.equals(key))) {
+            try {
+                block.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        synchronized (this) {
+            this.tiles.put(name(key, extension), bytes);
+            this.versions.put(name(key, extension), ++this.version);
+        }
+    }
+
+    @Override
+    public long lastModified(TileKey key, String extension) {
+        return this.versions.getOrDefault(name(key, extension), 0L);
+    }
+
+    @Override
+    public void clear() {
+        this.tiles.clear();
+        this.versions.clear();
+    }
+
+    private static String name(TileKey key, String extension) {
+        return key + "." + extension;
+    }
+}
@@ -0,0 +1,92 @@
+package net.pl3x.map.image;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class PixelsTest {
+    @Test
+    public void averageMatchesPerChannelAverage() {
+        Random random = new Random(1L);
+        for (int i = 0; i < 100000; i++) {
+            int p0 = random.nextInt();
+            int p1 = random.nextInt();
+            int p2 = random.nextInt();
+            int p3 = random.nextInt();
+            assertEquals(expected(4, p0, p1, p2, p3), Pixels.average(p0, p1, p2, p3));
+        }
+    }
+
+    @Test
+    public void averageOfWhiteAndBlack() {
+        assertEquals(0xFFFFFFFF, Pixels.average(0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF));
+        assertEquals(0xFF7F7F7F, Pixels.average(0xFFFFFFFF, 0xFFFFFFFF, 0xFF000000, 0xFF000000));
+    }
+
+    @Test
+    public void transparentPixelsDontCount() {
+        Random random = new Random(2L);
+        for (int i = 0; i < 100000; i++) {
+            int[] p = new int[4];
+            int count = 0;
+            for (int j = 0; j < 4; j++) {
+                if (random.nextBoolean()) {
+                    p[j] = random.nextInt() | 0x01000000;
+                    count++;
+                }
+            }
+            if (count == 0) {
+                continue;
+            }
+            assertEquals(expected(count, p[0], p[1], p[2], p[3]), Pixels.average(p[0], p[1], p[2], p[3], count));
+        }
+        assertEquals(0xFF102030, Pixels.average(0xFF102030, 0, 0, 0, 1));
+    }
+
+    @Test
+    public void copyVisibleKeepsTransparentSpots() {
+        int[] src = {0, 1, 0, 0xFF00FF00};
+        int[] dst = {5, 5, 5, 5};
+        new Pixels().copyVisible(src, dst);
+        assertArrayEquals(new int[]{5, 1, 5, 0xFF00FF00}, dst);
+    }
+
+    @Test
+    public void vectorMatchesScalar() throws ReflectiveOperationException {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent());
+        Pixels scalar = new Pixels();
+        Pixels vector = Pixels.vector();
+        Random random = new Random(3L);
+        int[] src = new int[Image.SIZE * Image.SIZE];
+        for (int i = 0; i < src.length; i++) {
+            src[i] = random.nextInt(4) == 0 ? 0 : random.nextInt();
+        }
+
+        int[] expected = new int[src.length];
+        int[] actual = new int[src.length];
+        scalar.downSample(src, expected, Image.SIZE / 2);
+        vector.downSample(src, actual, Image.SIZE / 2);
+        assertArrayEquals(expected, actual);
+
+        int[] background = random.ints(src.length).toArray();
+        expected = background.clone();
+        actual = background.clone();
+        scalar.copyVisible(src, expected);
+        vector.copyVisible(src, actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    private static int expected(int count, int... p) {
+        int a = 0, r = 0, g = 0, b = 0;
+        for (int argb : p) {
+            a += argb >>> 24;
+            r += (argb >> 16) & 0xFF;
+            g += (argb >> 8) & 0xFF;
+            b += argb & 0xFF;
+        }
+        return (a / count) << 24 | (r / count) << 16 | (g / count) << 8 | (b / count);
+    }
+}
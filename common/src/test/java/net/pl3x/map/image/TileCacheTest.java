@@ -0,0 +1,186 @@
+package net.pl3x.map.image;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import net.pl3x.map.Key;
+import net.pl3x.map.configuration.Config;
+import net.pl3x.map.image.io.IO;
+import net.pl3x.map.image.io.Png;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TileCacheTest {
+    private static final long TILE = (long) Image.SIZE * Image.SIZE * 4L;
+    private static final Key RENDERER = Key.of("test");
+
+    private MemoryStore store;
+    private Map<TileKey, Long> saved;
+    private ExecutorService executor;
+    private TileCache cache;
+
+    @BeforeEach
+    public void setup() {
+        IO.unregister(Config.WEB_TILE_FORMAT);
+        IO.register(Config.WEB_TILE_FORMAT, new Png());
+        this.store = new MemoryStore();
+        this.saved = new ConcurrentHashMap<>();
+        this.executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        if (this.cache != null) {
+            this.cache.shutdown();
+        }
+        this.executor.shutdownNow();
+    }
+
+    private TileCache cache(long tiles) {
+        this.cache = new TileCache(this.store, tiles * TILE, this.saved::put, this.executor);
+        return this.cache;
+    }
+
+    @Test
+    public void putIsSavedOnFlush() {
+        TileCache cache = cache(4);
+        TileKey key = key(0);
+        BufferedImage image = tile(0xFF112233);
+        cache.put(key, image);
+
+        assertSame(image, cache.get(key));
+        assertFalse(this.store.has(key));
+
+        cache.flush();
+        assertTrue(this.store.has(key));
+        assertEquals(this.store.lastModified(key, "png"), (long) this.saved.get(key));
+        assertEquals(0xFF112233, decode(key).getRGB(5, 5));
+    }
+
+    @Test
+    public void missReadsStoreOnce() {
+        TileCache cache = cache(4);
+        TileKey key = key(0);
+        cache.put(key, tile(0xFF445566));
+        cache.shutdown();
+
+        TileCache fresh = cache(4);
+        BufferedImage image = fresh.get(key);
+        assertNotNull(image);
+        assertEquals(0xFF445566, image.getRGB(7, 7));
+        assertSame(image, fresh.get(key));
+        assertEquals(1, fresh.getMisses());
+        assertEquals(1, fresh.getHits());
+
+        assertNull(fresh.get(key(1)));
+        assertEquals(2, fresh.getMisses());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        TileCache cache = cache(2);
+        for (int i = 0; i < 3; i++) {
+            cache.put(key(i), tile(0xFF000000 | i));
+        }
+        cache.flush();
+        assertEquals(2 * TILE, cache.getSize());
+
+        // the first tile was evicted and saved, so it has to be read back
+        long misses = cache.getMisses();
+        assertNotNull(cache.get(key(0)));
+        assertEquals(misses + 1, cache.getMisses());
+
+        // the last one is still there
+        assertNotNull(cache.get(key(2)));
+        assertEquals(misses + 1, cache.getMisses());
+    }
+
+    @Test
+    public void evictedTilesAreServedUntilSaved() {
+        TileCache cache = cache(1);
+        this.store.block = new CountDownLatch(1);
+        BufferedImage first = tile(0xFF010101);
+        cache.put(key(0), first);
+        cache.put(key(1), tile(0xFF020202));
+
+        // not saved yet, the flush is stuck writing it
+        assertEquals(2 * TILE, cache.getSize());
+        assertSame(first, cache.get(key(0)));
+
+        this.store.block.countDown();
+        cache.flush();
+        assertTrue(this.store.has(key(0)));
+        assertTrue(this.store.has(key(1)));
+    }
+
+    @Test
+    public void savesRightAwayWhenBackedUp() {
+        TileCache cache = cache(1);
+        this.store.block = new CountDownLatch(1);
+        this.store.blocked = key(0);
+        cache.put(key(0), tile(0xFF010101));
+        // evicts the first tile, whose save gets stuck
+        cache.put(key(1), tile(0xFF020202));
+        // evicted tiles now fill the budget
+        cache.put(key(2), tile(0xFF030303));
+        assertTrue(this.store.has(key(2)));
+        assertFalse(this.store.has(key(0)));
+
+        this.store.block.countDown();
+        cache.flush();
+        assertTrue(this.store.has(key(0)));
+        assertEquals(0xFF020202, decode(key(1)).getRGB(0, 0));
+    }
+
+    @Test
+    public void invalidateDropsWithoutSaving() {
+        TileCache cache = cache(4);
+        cache.put(key(0), tile(0xFF010101));
+        cache.invalidate(key(0));
+        cache.flush();
+        assertFalse(this.store.has(key(0)));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void shutdownSavesEverything() {
+        TileCache cache = cache(4);
+        cache.put(key(0), tile(0xFF010101));
+        cache.shutdown();
+        assertTrue(this.store.has(key(0)));
+
+        // late puts go straight to disk
+        cache.put(key(1), tile(0xFF020202));
+        assertTrue(this.store.has(key(1)));
+    }
+
+    private BufferedImage decode(TileKey key) {
+        try {
+            return new Png().decode(this.store.read(key, "png"));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static TileKey key(int x) {
+        return new TileKey(RENDERER, 0, x, 0);
+    }
+
+    private static BufferedImage tile(int argb) {
+        BufferedImage image = new BufferedImage(Image.SIZE, Image.SIZE, BufferedImage.TYPE_INT_ARGB);
+        Arrays.fill(Image.getData(image), argb);
+        return image;
+    }
+}
@@ -0,0 +1,36 @@
+package net.pl3x.map.image;
+
+import net.pl3x.map.Key;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class TileKeyTest {
+    private static final Key VANILLA = Key.of("vanilla");
+
+    @Test
+    public void parentContainsTile() {
+        assertEquals(new TileKey(VANILLA, 1, 0, 0), new TileKey(VANILLA, 0, 0, 0).getParent());
+        assertEquals(new TileKey(VANILLA, 1, 0, 0), new TileKey(VANILLA, 0, 1, 1).getParent());
+        assertEquals(new TileKey(VANILLA, 3, 1, -2), new TileKey(VANILLA, 2, 3, -3).getParent());
+    }
+
+    @Test
+    public void negativeTilesRoundDown() {
+        assertEquals(new TileKey(VANILLA, 1, -1, -1), new TileKey(VANILLA, 0, -1, -1).getParent());
+        assertEquals(new TileKey(VANILLA, 1, -1, -1), new TileKey(VANILLA, 0, -2, -2).getParent());
+        assertEquals(new TileKey(VANILLA, 1, -2, 0), new TileKey(VANILLA, 0, -3, 0).getParent());
+    }
+
+    @Test
+    public void equalKeysHashTheSame() {
+        TileKey key = new TileKey(VANILLA, 2, 5, -7);
+        TileKey same = new TileKey(Key.of("vanilla"), 2, 5, -7);
+        assertEquals(key, same);
+        assertEquals(key.hashCode(), same.hashCode());
+        assertFalse(key.equals(new TileKey(Key.of("night"), 2, 5, -7)));
+        assertFalse(key.equals(new TileKey(VANILLA, 1, 5, -7)));
+        assertFalse(key.equals(new TileKey(VANILLA, 2, -7, 5)));
+    }
+}
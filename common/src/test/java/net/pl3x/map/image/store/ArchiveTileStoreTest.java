@@ -0,0 +1,187 @@
+package net.pl3x.map.image.store;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import net.pl3x.map.Key;
+import net.pl3x.map.image.TileKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ArchiveTileStoreTest {
+    private static final Key RENDERER = Key.of("test");
+
+    private Path dir;
+    // compactions wait here until the test runs them
+    private final List<Runnable> compactions = new ArrayList<>();
+    private ArchiveTileStore store;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        this.dir = Files.createTempDirectory("tiles");
+        this.store = new ArchiveTileStore(this.dir, this.compactions::add);
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        this.store.close();
+        try (Stream<Path> walk = Files.walk(this.dir)) {
+            for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        this.store.write(key(0, 0), "png", bytes("first"));
+        this.store.write(key(-3, 7), "png", bytes("second"));
+
+        assertArrayEquals(bytes("first"), this.store.read(key(0, 0), "png"));
+        assertArrayEquals(bytes("second"), this.store.read(key(-3, 7), "png"));
+        assertNull(this.store.read(key(1, 1), "png"));
+        assertNull(this.store.read(key(0, 0), "webp"));
+        assertTrue(this.store.lastModified(key(0, 0), "png") > 0L);
+        assertEquals(0L, this.store.lastModified(key(1, 1), "png"));
+
+        reopen();
+        assertArrayEquals(bytes("first"), this.store.read(key(0, 0), "png"));
+        assertArrayEquals(bytes("second"), this.store.read(key(-3, 7), "png"));
+    }
+
+    @Test
+    public void overwriteWins() throws IOException {
+        this.store.write(key(0, 0), "png", bytes("old"));
+        long first = this.store.lastModified(key(0, 0), "png");
+        this.store.write(key(0, 0), "png", bytes("new"));
+
+        assertArrayEquals(bytes("new"), this.store.read(key(0, 0), "png"));
+        // a changed tile always gets a newer time
+        assertTrue(this.store.lastModified(key(0, 0), "png") > first);
+
+        reopen();
+        assertArrayEquals(bytes("new"), this.store.read(key(0, 0), "png"));
+    }
+
+    @Test
+    public void tornLastRecordIsDroppedOnReopen() throws IOException {
+        this.store.write(key(0, 0), "png", bytes("kept"));
+        this.store.write(key(1, 0), "png", bytes("torn"));
+        this.store.close();
+
+        // crashed halfway through writing the last index record
+        Path index = archive(".idx");
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        this.store = new ArchiveTileStore(this.dir, this.compactions::add);
+        assertArrayEquals(bytes("kept"), this.store.read(key(0, 0), "png"));
+        assertNull(this.store.read(key(1, 0), "png"));
+
+        // the partial record is gone, so the next one lines up again
+        this.store.write(key(2, 0), "png", bytes("after"));
+        reopen();
+        assertArrayEquals(bytes("kept"), this.store.read(key(0, 0), "png"));
+        assertArrayEquals(bytes("after"), this.store.read(key(2, 0), "png"));
+    }
+
+    @Test
+    public void recordsPastTheDataAreDroppedOnReopen() throws IOException {
+        this.store.write(key(0, 0), "png", bytes("kept"));
+        this.store.write(key(1, 0), "png", bytes("lost"));
+        this.store.close();
+
+        // the index made it to disk but the last tile didn't
+        try (FileChannel channel = FileChannel.open(archive(".dat"), StandardOpenOption.WRITE)) {
+            channel.truncate(bytes("kept").length);
+        }
+
+        this.store = new ArchiveTileStore(this.dir, this.compactions::add);
+        assertArrayEquals(bytes("kept"), this.store.read(key(0, 0), "png"));
+        assertNull(this.store.read(key(1, 0), "png"));
+    }
+
+    @Test
+    public void compactsWhileRunning() throws IOException {
+        byte[] tile = new byte[1024 * 1024];
+        for (int i = 0; i < 20; i++) {
+            Arrays.fill(tile, (byte) i);
+            this.store.write(key(0, 0), "png", tile);
+        }
+        this.store.write(key(1, 0), "png", bytes("other"));
+        long before = Files.size(archive(".dat"));
+        assertEquals(1, this.compactions.size());
+
+        // reads keep working while the compaction is pending
+        assertArrayEquals(tile, this.store.read(key(0, 0), "png"));
+        runCompactions();
+
+        assertTrue(Files.size(archive(".dat")) < before / 10);
+        assertArrayEquals(tile, this.store.read(key(0, 0), "png"));
+        assertArrayEquals(bytes("other"), this.store.read(key(1, 0), "png"));
+
+        // writes after the swap land in the new files
+        this.store.write(key(2, 0), "png", bytes("later"));
+        reopen();
+        assertArrayEquals(tile, this.store.read(key(0, 0), "png"));
+        assertArrayEquals(bytes("other"), this.store.read(key(1, 0), "png"));
+        assertArrayEquals(bytes("later"), this.store.read(key(2, 0), "png"));
+        assertTrue(this.compactions.isEmpty());
+        assertFalse(Files.exists(archive(".dat.tmp")));
+    }
+
+    @Test
+    public void compactsWastefulArchivesOnOpen() throws IOException {
+        byte[] tile = new byte[1024 * 1024];
+        for (int i = 0; i < 20; i++) {
+            this.store.write(key(0, 0), "png", tile);
+        }
+        // left over from the last run
+        this.compactions.clear();
+        reopen();
+
+        assertArrayEquals(tile, this.store.read(key(0, 0), "png"));
+        assertEquals(1, this.compactions.size());
+        runCompactions();
+        assertEquals(tile.length, Files.size(archive(".dat")));
+    }
+
+    private void runCompactions() {
+        List<Runnable> tasks = new ArrayList<>(this.compactions);
+        this.compactions.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    private void reopen() {
+        this.store.close();
+        this.store = new ArchiveTileStore(this.dir, this.compactions::add);
+    }
+
+    private Path archive(String suffix) {
+        return this.dir.resolve("archive").resolve(RENDERER.toString()).resolve("0.png" + suffix);
+    }
+
+    private static TileKey key(int x, int z) {
+        return new TileKey(RENDERER, 0, x, z);
+    }
+
+    private static byte[] bytes(String str) {
+        return str.getBytes(StandardCharsets.UTF_8);
+    }
+}
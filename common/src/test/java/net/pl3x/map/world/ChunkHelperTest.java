@@ -0,0 +1,86 @@
+package net.pl3x.map.world;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.chunk.storage.RegionFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class ChunkHelperTest {
+    private Path dir;
+    private RegionFile regionFile;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        this.dir = Files.createTempDirectory("region");
+        this.regionFile = new RegionFile(this.dir.resolve("r.0.0.mca"), this.dir, false);
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        this.regionFile.close();
+        try (var files = Files.list(this.dir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(this.dir);
+    }
+
+    @Test
+    public void unlocksAfterRead() throws IOException {
+        ChunkPos pos = new ChunkPos(3, 4);
+        CompoundTag tag = new CompoundTag();
+        tag.putInt("xPos", 3);
+        tag.putInt("zPos", 4);
+        tag.putString("Status", "minecraft:full");
+        try (DataOutputStream out = this.regionFile.getChunkDataOutputStream(pos)) {
+            NbtIo.write(tag, out);
+        }
+
+        this.regionFile.fileLock.lock();
+        CompoundTag read = ChunkHelper.readChunkTag(null, this.regionFile, pos, false);
+        assertNotNull(read);
+        assertEquals(3, read.getInt("xPos"));
+        assertEquals(4, read.getInt("zPos"));
+        assertFalse(this.regionFile.fileLock.isHeldByCurrentThread());
+    }
+
+    @Test
+    public void unlocksWhenChunkIsMissing() throws IOException {
+        this.regionFile.fileLock.lock();
+        assertNull(ChunkHelper.readChunkTag(null, this.regionFile, new ChunkPos(1, 1), false));
+        assertFalse(this.regionFile.fileLock.isHeldByCurrentThread());
+    }
+
+    @Test
+    public void unlocksWhenReadFails() throws IOException {
+        ChunkPos pos = new ChunkPos(0, 0);
+        try (DataOutputStream out = this.regionFile.getChunkDataOutputStream(pos)) {
+            // a compound that never ends
+            out.writeByte(10);
+            out.writeUTF("");
+            out.writeByte(3);
+        }
+
+        this.regionFile.fileLock.lock();
+        try {
+            ChunkHelper.readChunkTag(null, this.regionFile, pos, false);
+            fail("read past the end of the chunk");
+        } catch (IOException ignore) {
+        }
+        assertFalse(this.regionFile.fileLock.isHeldByCurrentThread());
+    }
+}
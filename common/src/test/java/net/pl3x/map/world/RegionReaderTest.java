@@ -0,0 +1,249 @@
+package net.pl3x.map.world;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RegionReaderTest {
+    private Path file;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        this.file = Files.createTempFile("r.0.0", ".mca");
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(this.file);
+    }
+
+    @Test
+    public void missingFileIsNull() throws IOException {
+        Files.delete(this.file);
+        assertNull(RegionReader.open(this.file));
+    }
+
+    @Test
+    public void readsHeader() throws IOException {
+        Region region = new Region();
+        region.chunk(0, 0, 100, 2, payload("a"));
+        region.chunk(31, 31, 200, 2, payload("b"));
+        region.chunk(5, 7, 300, 2, payload("c"));
+        region.write(this.file);
+
+        RegionReader reader = RegionReader.open(this.file);
+        assertNotNull(reader);
+        assertTrue(reader.hasChunk(0, 0));
+        assertTrue(reader.hasChunk(31, 31));
+        assertTrue(reader.hasChunk(5, 7));
+        assertFalse(reader.hasChunk(7, 5));
+        assertEquals(100, reader.getTimestamp(0, 0));
+        assertEquals(200, reader.getTimestamp(31, 31));
+        assertEquals(300, reader.getTimestamp(5, 7));
+        assertEquals(0, reader.getTimestamp(7, 5));
+    }
+
+    @Test
+    public void chunkCoordsWrapToRegion() throws IOException {
+        Region region = new Region();
+        region.chunk(5, 7, 300, 2, payload("c"));
+        region.write(this.file);
+
+        RegionReader reader = RegionReader.open(this.file);
+        assertTrue(reader.hasChunk(32 + 5, -32 + 7));
+        assertEquals(300, reader.getTimestamp(-64 + 5, 64 + 7));
+    }
+
+    @Test
+    public void readsTimestampsOnly() throws IOException {
+        Region region = new Region();
+        region.chunk(3, 4, 1234, 2, payload("a"));
+        region.write(this.file);
+
+        int[] timestamps = RegionReader.readTimestamps(this.file);
+        assertEquals(1024, timestamps.length);
+        assertEquals(1234, timestamps[4 * 32 + 3]);
+        assertEquals(0, timestamps[0]);
+    }
+
+    @Test
+    public void truncatedHeaderMeansEverythingChanged() throws IOException {
+        Files.write(this.file, new byte[4096 + 100]);
+        int[] timestamps = RegionReader.readTimestamps(this.file);
+        int[] expected = new int[1024];
+        Arrays.fill(expected, Integer.MAX_VALUE);
+        assertArrayEquals(expected, timestamps);
+
+        RegionReader reader = RegionReader.open(this.file);
+        assertFalse(reader.hasChunk(0, 0));
+        assertEquals(0, reader.getTimestamp(0, 0));
+    }
+
+    @Test
+    public void readsEachCompression() throws IOException {
+        Region region = new Region();
+        region.chunk(0, 0, 1, 1, gzip(payload("gzip")));
+        region.chunk(1, 0, 1, 2, deflate(payload("deflate")));
+        region.chunk(2, 0, 1, 3, payload("none"));
+        region.write(this.file);
+
+        RegionReader reader = RegionReader.open(this.file);
+        assertArrayEquals(payload("gzip"), read(reader.getChunkDataInputStream(0, 0)));
+        assertArrayEquals(payload("deflate"), read(reader.getChunkDataInputStream(1, 0)));
+        assertArrayEquals(payload("none"), read(reader.getChunkDataInputStream(2, 0)));
+        assertNull(reader.getChunkDataInputStream(3, 0));
+    }
+
+    @Test
+    public void readsChunksOverManySectors() throws IOException {
+        byte[] big = new byte[20000];
+        for (int i = 0; i < big.length; i++) {
+            big[i] = (byte) (i * 31);
+        }
+        Region region = new Region();
+        region.chunk(0, 0, 1, 2, deflate(big));
+        region.chunk(1, 0, 1, 3, big);
+        region.write(this.file);
+
+        RegionReader reader = RegionReader.open(this.file);
+        assertArrayEquals(big, read(reader.getChunkDataInputStream(0, 0)));
+        assertArrayEquals(big, read(reader.getChunkDataInputStream(1, 0)));
+    }
+
+    @Test
+    public void unreadableChunksAreNull() throws IOException {
+        Region region = new Region();
+        region.chunk(0, 0, 1, 2 | 0x80, new byte[0]);
+        region.chunk(1, 0, 1, 42, payload("unknown"));
+        region.write(this.file);
+
+        RegionReader reader = RegionReader.open(this.file);
+        assertNull(reader.getChunkDataInputStream(0, 0));
+        assertNull(reader.getChunkDataInputStream(1, 0));
+    }
+
+    @Test
+    public void offsetsPastTheEndThrow() throws IOException {
+        Region region = new Region();
+        region.chunk(0, 0, 1, 3, payload("a"));
+        region.write(this.file);
+
+        // point the chunk a sector past the end of the file
+        byte[] bytes = Files.readAllBytes(this.file);
+        ByteBuffer.wrap(bytes).putInt(0, (bytes.length / 4096 + 1) << 8 | 1);
+        Files.write(this.file, bytes);
+
+        RegionReader reader = RegionReader.open(this.file);
+        assertTrue(reader.hasChunk(0, 0));
+        assertThrows(IOException.class, () -> reader.getChunkDataInputStream(0, 0));
+    }
+
+    @Test
+    public void chunksCutOffAfterOpenThrow() throws IOException {
+        byte[] big = new byte[20000];
+        Region region = new Region();
+        region.chunk(0, 0, 1, 3, payload("a"));
+        region.chunk(1, 0, 1, 3, big);
+        region.write(this.file);
+
+        RegionReader reader = RegionReader.open(this.file);
+        // the server shrinks the file while it is open, keeping the header and first chunk
+        try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.WRITE)) {
+            channel.truncate(3 * 4096);
+        }
+        assertTrue(reader.hasChunk(1, 0));
+        assertArrayEquals(payload("a"), read(reader.getChunkDataInputStream(0, 0)));
+        assertThrows(IOException.class, () -> reader.getChunkDataInputStream(1, 0));
+    }
+
+    @Test
+    public void headerCutOffAfterOpenIsNoChunks() throws IOException {
+        Region region = new Region();
+        region.chunk(0, 0, 1, 2, payload("a"));
+        region.write(this.file);
+
+        RegionReader reader = RegionReader.open(this.file);
+        try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.WRITE)) {
+            channel.truncate(0);
+        }
+        assertFalse(reader.hasChunk(0, 0));
+        assertEquals(0, reader.getTimestamp(0, 0));
+        assertNull(reader.getChunkDataInputStream(0, 0));
+    }
+
+    static byte[] payload(String str) {
+        return str.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    static byte[] deflate(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(out)) {
+            deflate.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] read(DataInputStream in) throws IOException {
+        assertNotNull(in);
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Builds a region file the way the server lays them out.
+     */
+    static class Region {
+        private final ByteBuffer header = ByteBuffer.allocate(8192);
+        private final ByteArrayOutputStream sectors = new ByteArrayOutputStream();
+        private int sector = 2;
+
+        void chunk(int chunkX, int chunkZ, int timestamp, int version, byte[] data) {
+            int index = (chunkX & 31) + (chunkZ & 31) * 32;
+            int length = data.length + 5;
+            int count = (length + 4095) / 4096;
+            this.header.putInt(index * 4, this.sector << 8 | count);
+            this.header.putInt(4096 + index * 4, timestamp);
+
+            ByteBuffer chunk = ByteBuffer.allocate(count * 4096);
+            chunk.putInt(data.length + 1).put((byte) version).put(data);
+            this.sectors.writeBytes(chunk.array());
+            this.sector += count;
+        }
+
+        void write(Path file) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.writeBytes(this.header.array());
+            out.writeBytes(this.sectors.toByteArray());
+            Files.write(file, out.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package net.pl3x.map.image;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link Pixels} on the Vector API. Only loaded when the module is there.
+ */
+class VectorPixels extends Pixels {
+    private static final int HALF = Image.SIZE / 2;
+
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    // two pixels side by side, read as one long
+    private static final VectorSpecies<Long> PAIRS = VectorSpecies.of(long.class, INTS.vectorShape());
+    // one averaged pixel per pair
+    private static final VectorSpecies<Integer> HALF_INTS = VectorSpecies.of(int.class, VectorShape.forBitSize(INTS.vectorBitSize() / 2));
+
+    private static final long LANES = 0x00FF00FF00FF00FFL;
+    private static final long LOW = 0xFFFFFFFFL;
+
+    @Override
+    public void copyVisible(int[] src, int[] dst) {
+        int i = 0;
+        for (int bound = INTS.loopBound(src.length); i < bound; i += INTS.length()) {
+            IntVector pixels = IntVector.fromArray(INTS, src, i);
+            // blend and store whole, masked stores are a lot slower
+            IntVector.fromArray(INTS, dst, i).blend(pixels, pixels.compare(VectorOperators.NE, 0)).intoArray(dst, i);
+        }
+        for (; i < src.length; i++) {
+            if (src[i] != 0) {
+                dst[i] = src[i];
+            }
+        }
+    }
+
+    @Override
+    public void downSample(int[] src, int[] dst, int offset) {
+        int step = PAIRS.length();
+        int bound = HALF - HALF % step;
+        for (int z = 0; z < HALF; z++) {
+            int top = (z * 2) * Image.SIZE;
+            int bottom = top + Image.SIZE;
+            int out = offset + z * Image.SIZE;
+            for (int x = 0; x < bound; x += step) {
+                LongVector t = IntVector.fromArray(INTS, src, top + x * 2).reinterpretAsLongs();
+                LongVector b = IntVector.fromArray(INTS, src, bottom + x * 2).reinterpretAsLongs();
+
+                // same 16 bit lane sums as the plain loop, for both pixels of a long, then the halves added up
+                LongVector rb = t.and(LANES).add(b.and(LANES));
+                LongVector ag = t.lanewise(VectorOperators.LSHR, 8).and(LANES).add(b.lanewise(VectorOperators.LSHR, 8).and(LANES));
+                rb = rb.and(LOW).add(rb.lanewise(VectorOperators.LSHR, 32));
+                ag = ag.and(LOW).add(ag.lanewise(VectorOperators.LSHR, 32));
+
+                // sums are below 2^10, so x / count is exactly (x * (2^17 / count)) >> 17, and 0 with no visible pixels
+                LongVector count = visible(t.and(LOW)).add(visible(t.lanewise(VectorOperators.LSHR, 32)))
+                        .add(visible(b.and(LOW))).add(visible(b.lanewise(VectorOperators.LSHR, 32)));
+                LongVector div = LongVector.zero(PAIRS)
+                        .blend(131072L, count.eq(1L))
+                        .blend(65536L, count.eq(2L))
+                        .blend(43691L, count.eq(3L))
+                        .blend(32768L, count.eq(4L));
+
+                LongVector argb = divide(ag.lanewise(VectorOperators.LSHR, 16), div).lanewise(VectorOperators.LSHL, 24)
+                        .or(divide(rb.lanewise(VectorOperators.LSHR, 16), div).lanewise(VectorOperators.LSHL, 16))
+                        .or(divide(ag.and(0xFFFFL), div).lanewise(VectorOperators.LSHL, 8))
+                        .or(divide(rb.and(0xFFFFL), div));
+
+                ((IntVector) argb.convertShape(VectorOperators.L2I, HALF_INTS, 0)).intoArray(dst, out + x);
+            }
+            if (bound < HALF) {
+                downSampleRow(src, dst, offset, z, bound);
+            }
+        }
+    }
+
+    private static LongVector divide(LongVector sum, LongVector div) {
+        return sum.mul(div).lanewise(VectorOperators.LSHR, 17);
+    }
+
+    private static LongVector visible(LongVector pixels) {
+        return LongVector.zero(PAIRS).blend(1L, pixels.compare(VectorOperators.NE, 0L));
+    }
+}
@@ -27,6 +27,8 @@ tasks {
         minimize {
             // undertow does not like being minimized (UndertowLogger errors)
             exclude(dependency("io.undertow:.*:.*"))
+            // classes loaded by name, such as the vector pixel loops, look unused
+            exclude(project(":Common"))
         }
         listOf(
             "cloud.commandframework",
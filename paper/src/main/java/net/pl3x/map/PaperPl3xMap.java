@@ -24,11 +24,15 @@ import net.pl3x.map.httpd.UndertowServer;
 import net.pl3x.map.image.IconRegistry;
 import net.pl3x.map.image.io.IO;
 import net.pl3x.map.image.io.Png;
+import net.pl3x.map.image.store.ArchiveTileStore;
+import net.pl3x.map.image.store.DirectoryTileStore;
+import net.pl3x.map.image.store.TileStore;
 import net.pl3x.map.logger.Logger;
 import net.pl3x.map.palette.BlockPaletteRegistry;
 import net.pl3x.map.player.BukkitPlayerListener;
 import net.pl3x.map.player.BukkitPlayerRegistry;
 import net.pl3x.map.render.RendererRegistry;
+import net.pl3x.map.render.job.RenderScheduler;
 import net.pl3x.map.task.UpdateSettingsData;
 import net.pl3x.map.world.BukkitWorldListener;
 import net.pl3x.map.world.BukkitWorldRegistry;
@@ -62,6 +66,7 @@ public class PaperPl3xMap extends JavaPlugin implements Pl3xMap {
     private BlockPaletteRegistry blockPaletteRegistry;
     private BukkitPlayerRegistry playerRegistry;
     private RendererRegistry rendererRegistry;
+    private RenderScheduler renderScheduler;
     private BukkitWorldRegistry worldRegistry;
 
     public static PaperPl3xMap getInstance() {
@@ -110,6 +115,10 @@ public class PaperPl3xMap extends JavaPlugin implements Pl3xMap {
         // register built in tile image types
         IO.register("png", new Png());
 
+        // register built in tile stores
+        TileStore.register("directory", DirectoryTileStore::new);
+        TileStore.register("archive", ArchiveTileStore::new);
+
         // register listeners
         this.playerListener = new BukkitPlayerListener();
         this.serverListener = new BukkitServerListener();
@@ -181,6 +190,9 @@ public class PaperPl3xMap extends JavaPlugin implements Pl3xMap {
 
     @Override
     public void enable() {
+        // start the shared render threads
+        this.renderScheduler = new RenderScheduler();
+
         // register built-in heightmaps
         getHeightmapRegistry().register();
 
@@ -229,6 +241,14 @@ public class PaperPl3xMap extends JavaPlugin implements Pl3xMap {
         // unload all map worlds
         getWorldRegistry().unregister();
 
+        // stop the shared render threads, giving the worlds' last tile saves a little while to finish
+        if (this.renderScheduler != null) {
+            this.renderScheduler.shutdown();
+            if (!this.renderScheduler.awaitTermination(30L, TimeUnit.SECONDS)) {
+                Logger.warn("Gave up waiting for tiles to be saved, some may be missing");
+            }
+        }
+
         // disable addons
         getAddonRegistry().unregister();
 
@@ -262,6 +282,11 @@ public class PaperPl3xMap extends JavaPlugin implements Pl3xMap {
         return getServer().getCurrentTick();
     }
 
+    @Override
+    public double getMSPT() {
+        return getServer().getAverageTickTime();
+    }
+
     @Override
     @NotNull
     public Path getMainDir() {
@@ -340,6 +365,12 @@ public class PaperPl3xMap extends JavaPlugin implements Pl3xMap {
         return this.rendererRegistry;
     }
 
+    @Override
+    @NotNull
+    public RenderScheduler getRenderScheduler() {
+        return this.renderScheduler;
+    }
+
     @Override
     @NotNull
     public BukkitWorldRegistry getWorldRegistry() {
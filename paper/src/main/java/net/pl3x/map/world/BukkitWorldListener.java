@@ -1,13 +1,20 @@
 package net.pl3x.map.world;
 
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
+import net.minecraft.core.BlockPos;
 import net.pl3x.map.PaperPl3xMap;
 import net.pl3x.map.configuration.AdvancedConfig;
 import net.pl3x.map.coordinate.Coordinate;
-import net.pl3x.map.coordinate.RegionCoordinate;
 import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
 import org.bukkit.Location;
@@ -52,6 +59,10 @@ public class BukkitWorldListener implements WorldListener, Listener {
     private final PaperPl3xMap plugin;
     private final List<Listener> registeredListeners = new ArrayList<>();
 
+    // chunks and blocks marked during this tick, handed to each world once the tick ends
+    private final Map<World, LongSet> pendingChunks = new HashMap<>();
+    private final Map<World, LongList> pendingBlocks = new HashMap<>();
+
     public BukkitWorldListener(PaperPl3xMap plugin) {
         this.plugin = plugin;
     }
@@ -66,6 +77,23 @@ public class BukkitWorldListener implements WorldListener, Listener {
         this.plugin.getWorldRegistry().unregister(event.getWorld());
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onTickEnd(ServerTickEndEvent event) {
+        flushPendingChunks();
+    }
+
+    private void flushPendingChunks() {
+        if (!this.pendingChunks.isEmpty()) {
+            this.pendingChunks.forEach((world, chunks) ->
+                    chunks.forEach((long key) -> world.addModifiedChunk(Chunk.getXFromChunkKey(key), Chunk.getZFromChunkKey(key))));
+            this.pendingChunks.clear();
+        }
+        if (!this.pendingBlocks.isEmpty()) {
+            this.pendingBlocks.forEach(World::addModifiedBlocks);
+            this.pendingBlocks.clear();
+        }
+    }
+
     public void registerEvents() {
         registerEvent(AdvancedConfig.BLOCK_BREAK_EVENT, BlockBreakEvent.class, this::handleBlockEvent);
         registerEvent(AdvancedConfig.BLOCK_BURN_EVENT, BlockBurnEvent.class, this::handleBlockEvent);
@@ -112,6 +140,7 @@ public class BukkitWorldListener implements WorldListener, Listener {
     public void unregisterEvents() {
         this.registeredListeners.forEach(HandlerList::unregisterAll);
         this.registeredListeners.clear();
+        flushPendingChunks();
     }
 
     private <E extends Event> void registerEvent(boolean enabled, Class<E> clazz, Consumer<E> consumer) {
@@ -152,7 +181,7 @@ public class BukkitWorldListener implements WorldListener, Listener {
         if (world == null) {
             return;
         }
-        blocks.forEach(block -> markChunk(world, block.getLocation(), false));
+        blocks.forEach(block -> markBlock(world, block.getX(), block.getY(), block.getZ()));
     }
 
     private void markChunk(org.bukkit.World bukkitWorld, Collection<BlockState> states) {
@@ -160,20 +189,32 @@ public class BukkitWorldListener implements WorldListener, Listener {
         if (world == null) {
             return;
         }
-        states.forEach(state -> markChunk(world, state.getLocation(), false));
+        states.forEach(state -> markBlock(world, state.getX(), state.getY(), state.getZ()));
     }
 
     private void markChunk(World world, Location loc, boolean skipVisibilityCheck) {
-        if (skipVisibilityCheck || locationVisible(loc)) {
-            world.addModifiedRegion(new RegionCoordinate(
-                    Coordinate.blockToRegion(loc.getBlockX()),
-                    Coordinate.blockToRegion(loc.getBlockZ())
-            ));
+        if (skipVisibilityCheck) {
+            int chunkX = Coordinate.blockToChunk(loc.getBlockX());
+            int chunkZ = Coordinate.blockToChunk(loc.getBlockZ());
+            if (!Bukkit.isPrimaryThread()) {
+                world.addModifiedChunk(chunkX, chunkZ);
+                return;
+            }
+            // explosions, pistons and physics touch the same chunks many times a tick
+            this.pendingChunks.computeIfAbsent(world, k -> new LongOpenHashSet()).add(Chunk.getChunkKey(chunkX, chunkZ));
+        } else {
+            markBlock(world, loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
         }
     }
 
-    private static boolean locationVisible(Location loc) {
-        return loc.getWorld().hasCeiling() || loc.getY() >= loc.getWorld().getHighestBlockYAt(loc) - 10;
+    private void markBlock(World world, int x, int y, int z) {
+        // visibility is checked off the main thread, just remember the position for now
+        long pos = BlockPos.asLong(x, y, z);
+        if (!Bukkit.isPrimaryThread()) {
+            world.addModifiedBlocks(LongArrayList.wrap(new long[]{pos}));
+            return;
+        }
+        this.pendingBlocks.computeIfAbsent(world, k -> new LongArrayList()).add(pos);
     }
 
     private Location toLoc(Chunk chunk) {
@@ -30,9 +30,20 @@ export class BlockInfoControl extends ControlBox {
 
     public update(map: Pl3xMapLeafletMap): void {
         const coords = this._pl3xmap.controlManager.coordsControl!;
-        const zoom: number = map.getCurrentZoom() < 0 ? 0 : map.getCurrentZoom();
+        const world = this._pl3xmap.worldManager.currentWorld;
         const x: number = coords.x;
         const z: number = coords.z;
+
+        if (world?.blockInfoQuery) {
+            // the server looks it up, the coordinates are already shown so show y when the answer comes
+            world.queryBlockInfo(x, z).then((block?: Block) => {
+                this.show(block);
+                coords.redraw();
+            });
+            return;
+        }
+
+        const zoom: number = map.getCurrentZoom() < 0 ? 0 : map.getCurrentZoom();
         const step: number = 1 << zoom;
         const regionX: number = x >> 9;
         const regionZ: number = z >> 9;
@@ -41,24 +52,24 @@ export class BlockInfoControl extends ControlBox {
         const tileX: number = (x / step) & 511;
         const tileZ: number = (z / step) & 511;
 
+        this.show(world?.getBlockInfo(zoom, fileX, fileZ)?.getBlock(tileZ * 512 + tileX));
+    }
+
+    private show(block?: Block): void {
         let blockName: string = 'unknown';
         let biomeName: string = 'unknown';
         let y: number | undefined;
 
-        const blockInfo = this._pl3xmap.worldManager.currentWorld?.getBlockInfo(zoom, fileX, fileZ);
-        if (blockInfo !== undefined) {
-            const block: Block = blockInfo.getBlock(tileZ * 512 + tileX);
-            if (block != null) {
-                blockName = block.block == 0 ? 'unknown' : this._blockPalette.get(block.block) ?? 'unknown';
-                biomeName = block.biome == 0 ? 'unknown' : this._pl3xmap.worldManager.currentWorld?.biomePalette.get(block.biome) ?? 'unknown';
+        if (block != null) {
+            blockName = block.block == 0 ? 'unknown' : this._blockPalette.get(block.block) ?? 'unknown';
+            biomeName = block.biome == 0 ? 'unknown' : this._pl3xmap.worldManager.currentWorld?.biomePalette.get(block.biome) ?? 'unknown';
 
-                if (block.block != 0) {
-                    y = block.yPos + 1;
-                }
+            if (block.block != 0) {
+                y = block.yPos + 1;
             }
         }
 
-        coords.y = y;
+        this._pl3xmap.controlManager.coordsControl!.y = y;
         this._dom.innerHTML = this._pl3xmap.settings!.lang.blockInfo.value
             .replace(/<block>/g, blockName!.padEnd(15, ' '))
             .replace(/<biome>/g, biomeName!.padEnd(15, ' '));
@@ -35,6 +35,10 @@ export class CoordsControl extends ControlBox {
         this.x = Math.round(point[0]) - 1;
         this.z = Math.round(point[1]) - 1;
         this._pl3xmap.controlManager.blockInfoControl?.update(map);
+        this.redraw();
+    }
+
+    public redraw(): void {
         this._dom.innerHTML = this._pl3xmap.settings!.lang.coords.value
             .replace(/<x>/g, this.x.toString().padStart(6, ' '))
             .replace(/<y>/g, (this.y?.toString() ?? '???').padStart(2, ' ').padEnd(3, ' '))
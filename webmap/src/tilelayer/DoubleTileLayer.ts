@@ -47,6 +47,12 @@ export class DoubleTileLayer {
         }
     }
 
+    public refreshTile(zoom: number, x: number, z: number): void {
+        // refresh both layers, the one underneath shows through transparent parts
+        this._tileLayer1.refreshTile(zoom, x, z);
+        this._tileLayer2.refreshTile(zoom, x, z);
+    }
+
     public addTo(map: Pl3xMapLeafletMap): void {
         this._tileLayer1.addTo(map);
         this._tileLayer2.addTo(map);
@@ -60,6 +60,51 @@ export class ReversedZoomTileLayer extends L.TileLayer {
         return (maxZoom - zoom) + offset;
     }
 
+    /**
+     * Refetch a single tile, if it is currently shown.
+     *
+     * @param zoom tile zoom level, as used in the tile url
+     * @param x    tile x
+     * @param z    tile z
+     */
+    public refreshTile(zoom: number, x: number, z: number): void {
+        if (this._tileZoom === undefined || this._getZoomForUrl() !== zoom) {
+            return;
+        }
+        const tile = this._tiles[`${x}:${z}:${this._tileZoom}`];
+        if (tile === undefined || !tile.loaded) {
+            // not shown, or still loading and about to be fresh anyway
+            return;
+        }
+        const img = tile.el as HTMLImageElement;
+        this.fetchTile(this.getTileUrl(tile.coords), zoom, x, z)
+            .then(res => {
+                if (!res.ok) {
+                    return;
+                }
+                res.blob().then(blob => {
+                    const reader = new FileReader();
+                    reader.readAsDataURL(blob);
+                    reader.onload = () => {
+                        img.dataset.refreshing = 'true';
+                        img.src = String(reader.result);
+                        this._world.loadBlockInfo(zoom, x, z);
+                    };
+                });
+            }).catch(() => {
+                // keep showing the old tile
+            });
+    }
+
+    // Tiles with a known version are fetched with it in the url, the server lets those be cached forever
+    private fetchTile(url: string, zoom: number, x: number, z: number): Promise<Response> {
+        return this._world.getManifest(this._renderer.label, zoom)
+            .then(versions => {
+                const version = versions.get(`${x}_${z}`);
+                return fetch(version === undefined ? url : `${url}?v=${version}`);
+            });
+    }
+
     // @method createTile(coords: Object, done?: Function): HTMLElement
     // Called only internally, overrides GridLayer's [`createTile()`](#gridlayer-createtile)
     // to return an `<img>` HTML element with the appropriate image URL given `coords`. The `done`
@@ -70,6 +115,11 @@ export class ReversedZoomTileLayer extends L.TileLayer {
         L.DomEvent.on(tile, 'load', () => {
             // Once image has loaded revoke the object URL as we don't need it anymore
             URL.revokeObjectURL(tile.src);
+            if (tile.dataset.refreshing) {
+                // tile was refreshed in place, leaflet already counted it as loaded
+                delete tile.dataset.refreshing;
+                return;
+            }
             this._tileOnLoad(done, tile)
         });
         L.DomEvent.on(tile, 'error', L.Util.bind(this._tileOnError, this, done, tile));
@@ -84,7 +134,7 @@ export class ReversedZoomTileLayer extends L.TileLayer {
         // Retrieve image via a fetch instead of just setting the src
         // This works around the fact that browsers usually don't make a request for an image that was previously loaded,
         // without resorting to changing the URL (which would break caching).
-        fetch(this.getTileUrl(coords))
+        this.fetchTile(this.getTileUrl(coords), this._getZoomForUrl(), coords.x, coords.y)
             .then(res => {
                 // Call leaflet's error handler if request fails for some reason
                 if (!res.ok) {
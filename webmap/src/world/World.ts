@@ -1,5 +1,6 @@
 import {Pl3xMap} from "../Pl3xMap";
 import {MarkerLayer} from "../layergroup/MarkerLayer";
+import {Block} from "../palette/Block";
 import {BlockInfo} from "../palette/BlockInfo";
 import {Palette} from "../palette/Palette";
 import {Label} from "../settings/Lang";
@@ -28,6 +29,18 @@ export class World {
 
     private _timer: NodeJS.Timeout | undefined;
 
+    private _feed?: EventSource;
+    private _feedFailed = false;
+    private _feedSequence?: number;
+
+    // block info comes from the server's /blockinfo endpoint instead of block info tiles
+    private _blockInfoQuery = false;
+    private _blockInfoQueryRunning = false;
+    private _blockInfoQueryPending?: { x: number, z: number, resolve: (block?: Block) => void };
+
+    // tile versions by renderer/zoom, then x_z
+    private _manifests: Map<string, Promise<Map<string, number>>> = new Map();
+
     constructor(pl3xmap: Pl3xMap, worldManager: WorldManager, settings: WorldSettings) {
         this._pl3xmap = pl3xmap;
         this._settings = settings;
@@ -68,13 +81,27 @@ export class World {
                         this._rendererLayers.set(renderer, new DoubleTileLayer(this._pl3xmap, this, renderer));
                     }
 
-                    resolve(this);
+                    if (!this.settings.ui.blockinfo) {
+                        resolve(this);
+                        return;
+                    }
+
+                    // only the integrated web server can answer block info lookups
+                    getJSON(`blockinfo?world=${encodeURIComponent(this.name)}&x=0&z=0`)
+                        .then((json?: BlockInfoQuery) => this._blockInfoQuery = json !== undefined)
+                        .catch(() => this._blockInfoQuery = false)
+                        .finally(() => resolve(this));
                 });
         });
     }
 
     public unload(): void {
         clearTimeout(this._timer);
+        // stop listening for changed tiles
+        this._feed?.close();
+        this._feed = undefined;
+        this._feedSequence = undefined;
+        this._manifests.clear();
         // unload and clear markers
         this._markerLayers.forEach(layer => layer.unload())
         this._markerLayers = [];
@@ -96,7 +123,7 @@ export class World {
     }
 
     public loadBlockInfo(zoom: number, x: number, z: number) {
-        if (!this.settings.ui.blockinfo) {
+        if (!this.settings.ui.blockinfo || this._blockInfoQuery) {
             return;
         }
         getBytes(`tiles/${this.name}/${zoom}/blockinfo/${x}_${z}.pl3xmap.gz`)
@@ -105,6 +132,42 @@ export class World {
             });
     }
 
+    get blockInfoQuery(): boolean {
+        return this._blockInfoQuery;
+    }
+
+    /**
+     * Ask the server what is at a block.
+     *
+     * Only one lookup runs at a time. Lookups still waiting when a newer one
+     * comes in are dropped and never resolve, only the newest block matters.
+     *
+     * @param x block x
+     * @param z block z
+     */
+    public queryBlockInfo(x: number, z: number): Promise<Block | undefined> {
+        return new Promise(resolve => {
+            this._blockInfoQueryPending = {x: x, z: z, resolve: resolve};
+            this.nextBlockInfoQuery();
+        });
+    }
+
+    private nextBlockInfoQuery(): void {
+        const query = this._blockInfoQueryPending;
+        if (query === undefined || this._blockInfoQueryRunning) {
+            return;
+        }
+        this._blockInfoQueryPending = undefined;
+        this._blockInfoQueryRunning = true;
+        getJSON(`blockinfo?world=${encodeURIComponent(this.name)}&x=${query.x}&z=${query.z}`)
+            .then((json?: BlockInfoQuery) => query.resolve(json === undefined ? undefined : new Block(json.blocks[0], json.minY)))
+            .catch(() => query.resolve(undefined))
+            .finally(() => {
+                this._blockInfoQueryRunning = false;
+                this.nextBlockInfoQuery();
+            });
+    }
+
     public getBlockInfo(zoom: number, x: number, z: number): BlockInfo | undefined {
         return this.blockInfo.get(zoom < 0 ? 0 : zoom)?.get(`${x}_${z}`);
     }
@@ -129,6 +192,33 @@ export class World {
         this.blockInfo.get(zoom)?.delete(`${x}_${z}`);
     }
 
+    /**
+     * Get the versions of the saved tiles of a renderer and zoom level.
+     *
+     * @param renderer renderer label
+     * @param zoom     tile zoom level, as used in the tile url
+     */
+    public getManifest(renderer: string, zoom: number): Promise<Map<string, number>> {
+        const key = `${renderer}/${zoom}`;
+        let manifest = this._manifests.get(key);
+        if (manifest === undefined) {
+            manifest = getJSON(`tiles/${this.name}/${zoom}/${renderer}/manifest.gz`)
+                .then((json?: TileManifest) => {
+                    const versions = new Map<string, number>();
+                    if (json !== undefined) {
+                        for (let i = 0; i + 2 < json.tiles.length; i += 3) {
+                            versions.set(`${json.tiles[i]}_${json.tiles[i + 1]}`, json.base + json.tiles[i + 2]);
+                        }
+                    }
+                    return versions;
+                })
+                // tiles without a version are still loaded, just not cached
+                .catch(() => new Map<string, number>());
+            this._manifests.set(key, manifest);
+        }
+        return manifest;
+    }
+
     public getRendererLayer(renderer: Renderer): DoubleTileLayer | undefined {
         return this._rendererLayers.get(renderer);
     }
@@ -157,7 +247,7 @@ export class World {
         this._currentRendererLayer = this._rendererLayers.get(this._currentRenderer);
         this._currentRendererLayer!.addTo(this._pl3xmap.map);
 
-        this.tick();
+        this.startFeed();
 
         fireCustomEvent('rendererselected', this);
     }
@@ -222,12 +312,107 @@ export class World {
         }
     }
 
-    private tick(): void {
+    private startFeed(): void {
+        if (this._feed !== undefined) {
+            // already listening, the new renderer layer loads fresh tiles anyway
+            return;
+        }
+        if (this._feedFailed || typeof EventSource === 'undefined') {
+            this.tick();
+            return;
+        }
+        const feed = new EventSource(`tiles/${this.name}/feed`);
+        feed.onmessage = (event: MessageEvent) => this.applyFeed(JSON.parse(event.data));
+        feed.onerror = () => {
+            if (feed.readyState === EventSource.CLOSED) {
+                // not served by the integrated web server, poll the feed file instead
+                feed.close();
+                this._feed = undefined;
+                this._feedFailed = true;
+                this.tick();
+            }
+        };
+        this._feed = feed;
+    }
+
+    private applyFeed(feed: TileFeed): void {
+        const last = this._feedSequence;
+        this._feedSequence = feed.sequence;
+        if (last === undefined || feed.sequence === last) {
+            // tiles shown are as fresh as the feed
+            return;
+        }
+        if (feed.sequence < last || feed.oldest > last + 1) {
+            // feed started over or we missed changes, redraw everything
+            this.redraw();
+            return;
+        }
+        const renderer = this.currentRenderer?.label;
+        const seen = new Set<string>();
+        // newest first, a tile saved more than once only needs its last version
+        for (let i = feed.tiles.length - 1; i >= 0; i--) {
+            const [sequence, tileRenderer, zoom, x, z, version] = feed.tiles[i];
+            const key = `${tileRenderer}/${zoom}/${x}_${z}`;
+            if (sequence <= last || seen.has(key)) {
+                continue;
+            }
+            seen.add(key);
+            // keep loaded manifests current, refreshed tiles get the new url
+            this._manifests.get(`${tileRenderer}/${zoom}`)?.then(versions => versions.set(`${x}_${z}`, version));
+            if (tileRenderer === renderer) {
+                this.currentRendererLayer?.refreshTile(zoom, x, z);
+            }
+        }
+    }
+
+    private redraw(): void {
+        // any tile may have a new version
+        this._manifests.clear();
         this.currentRendererLayer?.updateTileLayer();
+    }
+
+    private tick(): void {
+        getJSON(`tiles/${this.name}/feed.json`)
+            .then((feed?: TileFeed) => {
+                if (feed === undefined) {
+                    // no feed to go by, redraw everything
+                    this.redraw();
+                } else {
+                    this.applyFeed(feed);
+                }
+            });
         this._timer = setTimeout(() => this.tick(), this.settings.tileUpdateInterval * 1000);
     }
 }
 
+/**
+ * Block info lookup answer, as sent by the server.
+ */
+interface BlockInfoQuery {
+    minY: number;
+    // packed the same as in block info tiles
+    blocks: number[];
+}
+
+/**
+ * Versions of the saved tiles of a renderer and zoom level, as saved by the server.
+ */
+interface TileManifest {
+    base: number;
+    // x, z, version - base
+    tiles: number[];
+}
+
+/**
+ * Recently saved tiles, as sent by the server.
+ */
+interface TileFeed {
+    sequence: number;
+    oldest: number;
+    // sequence, renderer, zoom, x, z, version
+    tiles: [number, string, number, number, number, number][];
+}
+
 export class Renderer extends Label {
     private readonly _icon: string;
 